@@ -0,0 +1,27 @@
+package org.example.config;
+
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Определяет СУБД один раз при старте, чтобы выбирать нативные запросы (PostgreSQL / H2)
+@Component
+public class DatabaseDialect {
+
+    private final boolean postgres;
+
+    public DatabaseDialect(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            this.postgres = product != null && product.toLowerCase().contains("postgres");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot detect database type: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Размеры страниц для списочных эндпоинтов (app.pagination.* в application.yml)
+@Component
+public class PaginationSettings {
+
+    @Value("${app.pagination.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:1000}")
+    private int maxPageSize;
+
+    // Запрошенный размер страницы, ограниченный сверху max-page-size
+    public int resolvePageSize(Integer requested) {
+        if (requested == null) {
+            return defaultPageSize;
+        }
+        if (requested <= 0) {
+            throw new RuntimeException("Page size must be positive");
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
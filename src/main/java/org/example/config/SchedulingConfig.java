@@ -0,0 +1,10 @@
+package org.example.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Фоновые задачи по расписанию (@Scheduled), например обработчик очереди результатов матчей
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,98 @@
+package org.example.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Проверка при старте: последовательности ID впереди данных.
+// База, переведённая с IDENTITY без db/postgres/pooled-sequences.sql, выдала бы уже занятые ID
+// при первой же вставке, поэтому запуск прерывается со списком отстающих последовательностей.
+// Выполняется после создания всех бинов (схема уже обновлена Hibernate), до запуска веб-сервера и ApplicationRunner
+@Component
+public class SequenceGuard implements SmartInitializingSingleton {
+
+    // Таблица -> последовательность её ID (тот же список, что в pooled-sequences.sql)
+    static final Map<String, String> SEQUENCES = Map.of(
+            "users", "users_seq",
+            "teams", "teams_seq",
+            "players", "players_seq",
+            "venues", "venues_seq",
+            "matches", "matches_seq",
+            "standings", "standings_seq",
+            "match_outbox", "match_outbox_seq",
+            "team_statistics", "team_statistics_seq",
+            "standings_checkpoints", "standings_checkpoints_seq",
+            "standings_checkpoint_rows", "standings_checkpoint_rows_seq");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatabaseDialect databaseDialect;
+
+    public SequenceGuard(JdbcTemplate jdbcTemplate, DatabaseDialect databaseDialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.databaseDialect = databaseDialect;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        verify();
+    }
+
+    // Следующее значение v закрепляет диапазон (v - 50, v], поэтому для непустой таблицы
+    // должно быть не меньше MAX(id) + 50
+    public void verify() {
+        List<String> problems = new ArrayList<>();
+        SEQUENCES.forEach((table, sequence) -> {
+            if (!tableExists(table)) {
+                return;
+            }
+            List<long[]> state = sequenceState(sequence);
+            if (state.isEmpty()) {
+                problems.add(sequence + " is missing");
+                return;
+            }
+            long nextValue = state.get(0)[0];
+            long increment = state.get(0)[1];
+            if (increment != SequenceIds.ALLOCATION_SIZE) {
+                problems.add(sequence + " increments by " + increment + ", expected " + SequenceIds.ALLOCATION_SIZE);
+            }
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            if (maxId > 0 && nextValue < maxId + SequenceIds.ALLOCATION_SIZE) {
+                problems.add(sequence + " next value " + nextValue + " is behind MAX(id) " + maxId + " of " + table);
+            }
+        });
+
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("ID sequences are not ready, run db/postgres/pooled-sequences.sql: "
+                    + String.join("; ", problems));
+        }
+    }
+
+    private boolean tableExists(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE LOWER(table_name) = ?", Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    // [следующее значение, шаг]; пустой список - последовательности нет
+    private List<long[]> sequenceState(String sequence) {
+        if (databaseDialect.isPostgres()) {
+            // pg_sequences.last_value пуст после setval(..., false), поэтому значение читается из самой последовательности
+            List<Long> increments = jdbcTemplate.queryForList(
+                    "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, sequence);
+            if (increments.isEmpty()) {
+                return List.of();
+            }
+            long increment = increments.get(0);
+            Long nextValue = jdbcTemplate.queryForObject("SELECT CASE WHEN is_called THEN last_value + " + increment
+                    + " ELSE last_value END FROM " + sequence, Long.class);
+            return List.<long[]>of(new long[] {nextValue, increment});
+        }
+        return jdbcTemplate.query("""
+                SELECT BASE_VALUE, INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES WHERE LOWER(SEQUENCE_NAME) = ?""",
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)}, sequence);
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.config;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// ID для пакетных нативных INSERT из тех же последовательностей, что и у сущностей.
+// Последовательности pooled: значение v закрепляет за получившим его диапазон (v - ALLOCATION_SIZE, v] -
+// так же распределяет ID Hibernate, поэтому диапазоны не пересекаются, а пачка из N строк
+// стоит N / ALLOCATION_SIZE обращений к последовательности.
+// nextval('...') поддерживают и PostgreSQL, и H2
+@Component
+public class SequenceIds {
+
+    // Должен совпадать с allocationSize в @SequenceGenerator сущностей
+    public static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceIds(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // count новых ID по возрастанию; остаток последнего диапазона не используется
+    public long[] next(String sequence, int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            Long hi = jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+            for (long id = Math.max(1, hi - ALLOCATION_SIZE + 1); id <= hi && filled < count; id++) {
+                ids[filled++] = id;
+            }
+        }
+        return ids;
+    }
+}
@@ -1,11 +1,22 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.dto.MatchResultOutcome;
+import org.example.dto.MatchResultRequest;
 import org.example.model.Match;
+import org.example.service.LiveEventHub;
+import org.example.service.MatchImportService;
 import org.example.service.MatchService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -13,16 +24,71 @@ import java.util.Map;
 @RequestMapping("/api/matches")
 public class MatchController {
 
+    private static final String STANDINGS_APPLIED_HEADER = "X-Standings-Applied";
+    private static final String CSV_VALUE = "text/csv";
+
     private final MatchService matchService;
+    private final LiveEventHub liveEventHub;
+    private final ObjectMapper objectMapper;
+    private final MatchImportService matchImportService;
 
-    public MatchController(MatchService matchService) {
+    public MatchController(MatchService matchService, LiveEventHub liveEventHub, ObjectMapper objectMapper,
+                           MatchImportService matchImportService) {
         this.matchService = matchService;
+        this.liveEventHub = liveEventHub;
+        this.objectMapper = objectMapper;
+        this.matchImportService = matchImportService;
     }
 
     @GetMapping
     @PreAuthorize("permitAll()")
-    public List<Match> getAllMatches() {
-        return matchService.getAllMatches();
+    public ResponseEntity<?> getAllMatches(@RequestParam(required = false) Long afterId,
+                                           @RequestParam(required = false) Integer limit) {
+        // Без параметров - прежний ответ списком
+        if (afterId == null && limit == null) {
+            return ResponseEntity.ok(matchService.getAllMatches());
+        }
+        try {
+            return ResponseEntity.ok(matchService.getMatchesPage(afterId, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Потоковая выгрузка всех матчей (NDJSON, по объекту на строку)
+    @GetMapping(value = "/stream", produces = NdjsonResponses.NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamAllMatches() {
+        return NdjsonResponses.stream(objectMapper, matchService::streamAllMatches);
+    }
+
+    // Live-канал (SSE): счёт и статусы матчей, изменения позиций в таблице.
+    // matchId - подписка на один матч (изменения таблицы приходят всегда)
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("permitAll()")
+    public SseEmitter subscribeLive(@RequestParam(required = false) Long matchId) {
+        return liveEventHub.subscribe(matchId);
+    }
+
+    @GetMapping("/live/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getLiveStats() {
+        return liveEventHub.getStats();
+    }
+
+    // Метрики очереди результатов: необработанные события, отставание, размер последних порций
+    @GetMapping("/outbox/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> getOutboxStats() {
+        return matchService.getOutboxStats();
+    }
+
+    // Повторить применение результатов, отложенных с ошибкой (например, после восстановления записи в таблице).
+    // Без matchId - все отложенные события
+    @PostMapping("/outbox/requeue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Object> requeueFailedResults(@RequestParam(required = false) List<Long> matchId) {
+        return Map.of("requeued", matchService.requeueFailedResults(matchId));
     }
 
     @GetMapping("/{id}")
@@ -46,9 +112,15 @@ public class MatchController {
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Match> updateMatch(@PathVariable Long id, @RequestBody Match matchDetails) {
+    public ResponseEntity<Match> updateMatch(@PathVariable Long id, @RequestBody Match matchDetails,
+                                             @RequestParam(defaultValue = "false") boolean awaitStandings) {
         try {
             Match updatedMatch = matchService.updateMatch(id, matchDetails);
+            if (awaitStandings) {
+                // Таблица обновляется в фоне - по запросу ждём применения результата
+                boolean applied = matchService.awaitStandings(List.of(id));
+                return ResponseEntity.ok().header(STANDINGS_APPLIED_HEADER, Boolean.toString(applied)).body(updatedMatch);
+            }
             return ResponseEntity.ok(updatedMatch);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
@@ -61,4 +133,44 @@ public class MatchController {
         matchService.deleteMatch(id);
         return ResponseEntity.ok().build();
     }
+
+    // Потоковый импорт исторических матчей (CSV с заголовком или NDJSON); тело читается по мере поступления.
+    // source - имя источника: повторный запуск с тем же именем продолжает с места остановки
+    @PostMapping(value = "/import", consumes = {CSV_VALUE, NdjsonResponses.NDJSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importMatches(HttpServletRequest request,
+                                           @RequestParam(required = false) String source,
+                                           @RequestParam(required = false) Integer chunkSize) {
+        String format = request.getContentType().startsWith(CSV_VALUE)
+                ? MatchImportService.FORMAT_CSV : MatchImportService.FORMAT_NDJSON;
+        try {
+            return ResponseEntity.ok(matchImportService.importMatches(request.getInputStream(), format, source, chunkSize));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Пакетное завершение матчей: у каждого элемента свой результат (applied / error)
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> completeMatches(@RequestBody List<MatchResultRequest> results,
+                                             @RequestParam(defaultValue = "false") boolean awaitStandings) {
+        try {
+            List<MatchResultOutcome> outcomes = matchService.completeMatches(results);
+            long applied = outcomes.stream().filter(MatchResultOutcome::applied).count();
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("applied", applied);
+            body.put("rejected", outcomes.size() - applied);
+            body.put("results", outcomes);
+            if (awaitStandings) {
+                body.put("standingsApplied", matchService.awaitStandings(outcomes.stream()
+                        .filter(MatchResultOutcome::applied)
+                        .map(MatchResultOutcome::matchId)
+                        .toList()));
+            }
+            return ResponseEntity.ok(body);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 }
\ No newline at end of file
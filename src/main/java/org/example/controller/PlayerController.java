@@ -1,10 +1,14 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.PlayerSummary;
+import org.example.dto.TeamPlayerStatistics;
 import org.example.model.Player;
 import org.example.service.PlayerService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -14,16 +18,34 @@ import java.util.Map;
 public class PlayerController {
 
     private final PlayerService playerService;
+    private final ObjectMapper objectMapper;
 
-    public PlayerController(PlayerService playerService) {
+    public PlayerController(PlayerService playerService, ObjectMapper objectMapper) {
         this.playerService = playerService;
+        this.objectMapper = objectMapper;
     }
 
     // 1. Получить всех игроков
     @GetMapping
     @PreAuthorize("permitAll()")
-    public List<Player> getAllPlayers() {
-        return playerService.getAllPlayers();
+    public ResponseEntity<?> getAllPlayers(@RequestParam(required = false) Long afterId,
+                                           @RequestParam(required = false) Integer limit) {
+        // Без параметров - прежний ответ списком
+        if (afterId == null && limit == null) {
+            return ResponseEntity.ok(playerService.getAllPlayers());
+        }
+        try {
+            return ResponseEntity.ok(playerService.getPlayersPage(afterId, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 1a. Потоковая выгрузка всех игроков (NDJSON, по объекту на строку)
+    @GetMapping(value = "/stream", produces = NdjsonResponses.NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamAllPlayers() {
+        return NdjsonResponses.stream(objectMapper, playerService::streamAllPlayers);
     }
 
     // 2. Получить игрока по ID
@@ -52,7 +74,7 @@ public class PlayerController {
     // 5. Получить топ бомбардиров
     @GetMapping("/top-scorers")
     @PreAuthorize("permitAll()")
-    public List<Player> getTopScorers(@RequestParam(required = false) Integer limit) {
+    public List<PlayerSummary> getTopScorers(@RequestParam(required = false) Integer limit) {
         return playerService.getTopScorers(limit);
     }
 
@@ -106,6 +128,25 @@ public class PlayerController {
         }
     }
 
+    // 9a. Записать накопленные голы в БД сейчас
+    @PostMapping("/goals/flush")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> flushGoals() {
+        try {
+            int players = playerService.flushGoals();
+            return ResponseEntity.ok(Map.of("flushedPlayers", players));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 9b. Состояние счётчиков голов (режим, незаписанные голы, ошибки записи)
+    @GetMapping("/goals/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getGoalCounterStats() {
+        return ResponseEntity.ok(playerService.getGoalCounterStats());
+    }
+
     // 10. Перевести игрока в другую команду
     @PostMapping("/{id}/transfer")
     @PreAuthorize("hasRole('ADMIN')")
@@ -125,7 +166,7 @@ public class PlayerController {
     @PreAuthorize("permitAll()")
     public ResponseEntity<?> getTeamPlayerStatistics(@PathVariable Long teamId) {
         try {
-            Map<String, Object> statistics = playerService.getTeamPlayerStatistics(teamId);
+            TeamPlayerStatistics statistics = playerService.getTeamPlayerStatistics(teamId);
             return ResponseEntity.ok(statistics);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -137,8 +178,8 @@ public class PlayerController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> incrementAllPlayersAge() {
         try {
-            playerService.incrementAllPlayersAge();
-            return ResponseEntity.ok("All players' ages incremented by 1");
+            Map<String, Object> report = playerService.incrementAllPlayersAge();
+            return ResponseEntity.ok(report);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
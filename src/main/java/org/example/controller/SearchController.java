@@ -0,0 +1,58 @@
+package org.example.controller;
+
+import org.example.dto.TypeaheadResult;
+import org.example.service.NameSearchIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.security.access.prepost.PreAuthorize;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private final NameSearchIndex nameSearchIndex;
+
+    public SearchController(NameSearchIndex nameSearchIndex) {
+        this.nameSearchIndex = nameSearchIndex;
+    }
+
+    // 1. Подсказка по названиям команд, арен и именам игроков (types - через запятую, по умолчанию все)
+    @GetMapping("/typeahead")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> typeahead(@RequestParam String q,
+                                       @RequestParam(required = false) String types,
+                                       @RequestParam(required = false) Integer limit) {
+        try {
+            Set<NameSearchIndex.Kind> kinds = EnumSet.noneOf(NameSearchIndex.Kind.class);
+            if (types != null) {
+                for (String type : types.split(",")) {
+                    if (!type.isBlank()) {
+                        kinds.add(NameSearchIndex.Kind.fromType(type));
+                    }
+                }
+            }
+            TypeaheadResult result = nameSearchIndex.search(q, kinds, limit);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 2. Размер индекса: имена и различные триграммы по типам
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(nameSearchIndex.getStats());
+    }
+
+    // 3. Перестроить индекс из БД
+    @PostMapping("/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reload() {
+        nameSearchIndex.reload();
+        return ResponseEntity.ok(nameSearchIndex.getStats());
+    }
+}
@@ -1,11 +1,18 @@
 package org.example.controller;
 
+import org.example.dto.FormRow;
 import org.example.model.Standing;
+import org.example.service.StandingHistoryService;
+import org.example.service.StandingRebuildService;
 import org.example.service.StandingService;
+import org.example.service.StandingsSnapshot;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -14,23 +21,37 @@ import java.util.Map;
 public class StandingController {
 
     private final StandingService standingService;
+    private final StandingRebuildService standingRebuildService;
+    private final StandingHistoryService standingHistoryService;
 
-    public StandingController(StandingService standingService) {
+    public StandingController(StandingService standingService, StandingRebuildService standingRebuildService,
+                              StandingHistoryService standingHistoryService) {
         this.standingService = standingService;
+        this.standingRebuildService = standingRebuildService;
+        this.standingHistoryService = standingHistoryService;
     }
 
     // 1. Полуть всю турнирную таблицу
     @GetMapping
     @PreAuthorize("permitAll()")
-    public List<Standing> getAllStandings() {
-        return standingService.getAllStandings();
+    public ResponseEntity<List<Standing>> getAllStandings(WebRequest request) {
+        StandingsSnapshot snapshot = standingService.getStandingsSnapshot();
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok().eTag(snapshot.getEtag()).body(snapshot.toStandings(null));
     }
 
     // 2. Получить топ команд
     @GetMapping("/top")
     @PreAuthorize("permitAll()")
-    public List<Standing> getTopStandings(@RequestParam(required = false) Integer limit) {
-        return standingService.getTopStandings(limit);
+    public ResponseEntity<List<Standing>> getTopStandings(@RequestParam(required = false) Integer limit,
+                                                          WebRequest request) {
+        StandingsSnapshot snapshot = standingService.getStandingsSnapshot();
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok().eTag(snapshot.getEtag()).body(snapshot.toStandings(limit));
     }
 
     // 3. Получить запись по ID
@@ -63,6 +84,15 @@ public class StandingController {
         }
     }
 
+    // 5a. Получить команду на позиции
+    @GetMapping("/position/{position}")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> getTeamAtPosition(@PathVariable Integer position) {
+        return standingService.getTeamIdAtPosition(position)
+                .map(teamId -> ResponseEntity.ok(Map.of("position", position, "teamId", teamId)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     // 6. Создать запись
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -106,8 +136,8 @@ public class StandingController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> updatePositions() {
         try {
-            standingService.updatePositions();
-            return ResponseEntity.ok("Standings positions updated");
+            int changed = standingService.updatePositions();
+            return ResponseEntity.ok("Standings positions updated (" + changed + " rows changed)");
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -118,8 +148,20 @@ public class StandingController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> resetAllStandings() {
         try {
-            standingService.resetAllStandings();
-            return ResponseEntity.ok("All standings reset to zero");
+            Map<String, Object> report = standingService.resetAllStandings();
+            return ResponseEntity.ok(report);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 10a. Таблица формы: очки и исходы за последние last матчей каждой команды
+    @GetMapping("/form")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> getFormTable(@RequestParam(required = false) Integer last) {
+        try {
+            List<FormRow> table = standingService.getFormTable(last);
+            return ResponseEntity.ok(table);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -137,12 +179,24 @@ public class StandingController {
         }
     }
 
-    // 12. Прогноз чемпиона
+    // 11a. Сверить инкрементальную статистику лиги с полным пересчётом
+    @GetMapping("/league/stats/verify")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> verifyLeagueStats() {
+        try {
+            return ResponseEntity.ok(standingService.verifyLeagueStats());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 12. Прогноз чемпиона (iterations - число симуляций, budgetMs - ограничение по времени)
     @GetMapping("/predict-champion")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<?> predictChampion() {
+    public ResponseEntity<?> predictChampion(@RequestParam(required = false) Integer iterations,
+                                             @RequestParam(required = false) Long budgetMs) {
         try {
-            Map<String, Object> prediction = standingService.predictChampion();
+            Map<String, Object> prediction = standingService.predictChampion(iterations, budgetMs);
             return ResponseEntity.ok(prediction);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -160,4 +214,56 @@ public class StandingController {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // 14. Пересчитать таблицу по истории завершённых матчей (с отчётом о расхождениях)
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildFromMatches(@RequestParam(defaultValue = "false") boolean dryRun) {
+        try {
+            Map<String, Object> report = standingRebuildService.rebuildFromMatches(dryRun);
+            return ResponseEntity.ok(report);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 15. Турнирная таблица на конец дня date (since - учитывать только матчи начиная с этого дня)
+    @GetMapping("/as-of")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> getStandingsAsOf(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
+        try {
+            return ResponseEntity.ok(standingHistoryService.getStandingsAsOf(date, since));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 16. Позиция команды по датам from..to с шагом stepDays
+    @GetMapping("/history/team/{teamId}")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> getTeamPositionHistory(
+            @PathVariable Long teamId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer stepDays,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since) {
+        try {
+            return ResponseEntity.ok(standingHistoryService.getTeamPositionHistory(teamId, from, to, stepDays, since));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 17. Перестроить контрольные точки таблицы по истории матчей
+    @PostMapping("/checkpoints/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildCheckpoints() {
+        try {
+            return ResponseEntity.ok(standingHistoryService.rebuildCheckpoints());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.LeagueStatistics;
+import org.example.dto.TeamSummary;
 import org.example.model.Team;
 import org.example.service.TeamService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -14,16 +18,34 @@ import java.util.Map;
 public class TeamController {
 
     private final TeamService teamService;
+    private final ObjectMapper objectMapper;
 
-    public TeamController(TeamService teamService) {
+    public TeamController(TeamService teamService, ObjectMapper objectMapper) {
         this.teamService = teamService;
+        this.objectMapper = objectMapper;
     }
 
     // 1. Получить все команды
     @GetMapping
     @PreAuthorize("permitAll()")
-    public List<Team> getAllTeams() {
-        return teamService.getAllTeams();
+    public ResponseEntity<?> getAllTeams(@RequestParam(required = false) Long afterId,
+                                         @RequestParam(required = false) Integer limit) {
+        // Без параметров - прежний ответ списком
+        if (afterId == null && limit == null) {
+            return ResponseEntity.ok(teamService.getAllTeams());
+        }
+        try {
+            return ResponseEntity.ok(teamService.getTeamsPage(afterId, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 1a. Потоковая выгрузка всех команд (NDJSON, по объекту на строку)
+    @GetMapping(value = "/stream", produces = NdjsonResponses.NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamAllTeams() {
+        return NdjsonResponses.stream(objectMapper, teamService::streamAllTeams);
     }
 
     // 2. Получить команду по ID
@@ -54,7 +76,7 @@ public class TeamController {
     // 5. Получить топ команд
     @GetMapping("/top")
     @PreAuthorize("permitAll()")
-    public List<Team> getTopTeams(@RequestParam(required = false) Integer limit) {
+    public List<TeamSummary> getTopTeams(@RequestParam(required = false) Integer limit) {
         return teamService.getTopTeams(limit);
     }
 
@@ -139,7 +161,7 @@ public class TeamController {
     @PreAuthorize("permitAll()")
     public ResponseEntity<?> getLeagueStatistics() {
         try {
-            Map<String, Object> statistics = teamService.getLeagueStatistics();
+            LeagueStatistics statistics = teamService.getLeagueStatistics();
             return ResponseEntity.ok(statistics);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -153,4 +175,11 @@ public class TeamController {
         boolean exists = teamService.existsByName(name);
         return ResponseEntity.ok(Map.of("exists", exists, "teamName", name));
     }
+
+    // 14. Метрики кэша команд (размер, попадания, доля попаданий, вытеснения)
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(teamService.getCacheStats());
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package org.example.controller;
 
+import org.example.dto.SeasonScheduleRequest;
 import org.example.model.Match;
 import org.example.model.Player;
 import org.example.model.Venue;
@@ -9,7 +10,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Map;
 
@@ -28,8 +32,8 @@ public class TournamentController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> initializeNewSeason() {
         try {
-            tournamentService.initializeNewSeason();
-            return ResponseEntity.ok("New season initialized successfully");
+            Map<String, Object> report = tournamentService.initializeNewSeason();
+            return ResponseEntity.ok(report);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -47,6 +51,17 @@ public class TournamentController {
         }
     }
 
+    // 2a. Заполнение статистики команд по истории матчей (первичная загрузка или сверка)
+    @PostMapping("/statistics/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> backfillTeamStatistics() {
+        try {
+            return ResponseEntity.ok(tournamentService.backfillTeamStatistics());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // 3. Назначение лучшего игрока матча
     @PostMapping("/match/{matchId}/man-of-the-match/{playerId}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -75,6 +90,40 @@ public class TournamentController {
         }
     }
 
+    // 4a. Арены, свободные на весь интервал времени
+    @GetMapping("/venues/available/range")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> findVenuesFreeBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) String city) {
+        try {
+            return ResponseEntity.ok(tournamentService.findVenuesFreeBetween(start, end, minCapacity, city));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 4b. Арены, свободные во все выбранные дни недели диапазона (например, все субботы марта)
+    @GetMapping("/venues/available/recurring")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<?> findVenuesFreeOnDays(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) DayOfWeek dayOfWeek,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime,
+            @RequestParam(required = false) Integer minCapacity,
+            @RequestParam(required = false) String city) {
+        try {
+            return ResponseEntity.ok(tournamentService.findVenuesFreeOnDays(
+                    from, to, dayOfWeek, startTime, endTime, minCapacity, city));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // 5. Создание расписания тура
     @PostMapping("/schedule/round")
     @PreAuthorize("hasRole('ADMIN')")
@@ -91,4 +140,14 @@ public class TournamentController {
         }
     }
 
-}
\ No newline at end of file
+    // 6. Генерация расписания сезона (двойной круг, арены и дни отдыха)
+    @PostMapping("/schedule/season")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> generateSeasonSchedule(@RequestBody SeasonScheduleRequest request) {
+        try {
+            return ResponseEntity.ok(tournamentService.generateSeasonSchedule(request));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
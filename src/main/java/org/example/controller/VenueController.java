@@ -1,10 +1,14 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.VenueStatistics;
+import org.example.dto.VenueSummary;
 import org.example.model.Venue;
 import org.example.service.VenueService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -14,16 +18,34 @@ import java.util.Map;
 public class VenueController {
 
     private final VenueService venueService;
+    private final ObjectMapper objectMapper;
 
-    public VenueController(VenueService venueService) {
+    public VenueController(VenueService venueService, ObjectMapper objectMapper) {
         this.venueService = venueService;
+        this.objectMapper = objectMapper;
     }
 
     // 1. Получить все арены
     @GetMapping
     @PreAuthorize("permitAll()")
-    public List<Venue> getAllVenues() {
-        return venueService.getAllVenues();
+    public ResponseEntity<?> getAllVenues(@RequestParam(required = false) Long afterId,
+                                          @RequestParam(required = false) Integer limit) {
+        // Без параметров - прежний ответ списком
+        if (afterId == null && limit == null) {
+            return ResponseEntity.ok(venueService.getAllVenues());
+        }
+        try {
+            return ResponseEntity.ok(venueService.getVenuesPage(afterId, limit));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // 1a. Потоковая выгрузка всех арен (NDJSON, по объекту на строку)
+    @GetMapping(value = "/stream", produces = NdjsonResponses.NDJSON_VALUE)
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamAllVenues() {
+        return NdjsonResponses.stream(objectMapper, venueService::streamAllVenues);
     }
 
     // 2. Получить арену по ID
@@ -61,7 +83,7 @@ public class VenueController {
     // 6. Получить самые большие арены
     @GetMapping("/largest")
     @PreAuthorize("permitAll()")
-    public List<Venue> getLargestVenues(@RequestParam(required = false) Integer limit) {
+    public List<VenueSummary> getLargestVenues(@RequestParam(required = false) Integer limit) {
         return venueService.getLargestVenues(limit);
     }
 
@@ -129,7 +151,7 @@ public class VenueController {
     @PreAuthorize("permitAll()")
     public ResponseEntity<?> getVenueStatistics() {
         try {
-            Map<String, Object> statistics = venueService.getVenueStatistics();
+            VenueStatistics statistics = venueService.getVenueStatistics();
             return ResponseEntity.ok(statistics);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -150,4 +172,11 @@ public class VenueController {
         boolean exists = venueService.getVenueByName(name).isPresent();
         return ResponseEntity.ok(Map.of("exists", exists, "venueName", name));
     }
+
+    // 15. Метрики кэша арен (размер, попадания, доля попаданий, вытеснения)
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.ok(venueService.getCacheStats());
+    }
 }
\ No newline at end of file
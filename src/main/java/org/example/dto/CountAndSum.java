@@ -0,0 +1,6 @@
+package org.example.dto;
+
+// Агрегат по таблице: COUNT строк и SUM числового поля (null, если строк нет)
+public record CountAndSum(Long count,
+                          Long sum) {
+}
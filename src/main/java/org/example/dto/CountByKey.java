@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Строка группировки GROUP BY: значение поля и количество записей
+public record CountByKey(String key,
+                         Long count) {
+
+    // Строки группировки в виде map в порядке запроса
+    public static Map<String, Long> toMap(List<CountByKey> rows) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        rows.forEach(row -> counts.put(row.key(), row.count()));
+        return counts;
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.dto;
+
+import java.time.LocalDateTime;
+
+// Результат завершённого матча вместе со временем начала (воспроизведение таблицы по датам)
+public record DatedMatchResult(Long id,
+                               LocalDateTime matchDate,
+                               Long homeTeamId,
+                               Long awayTeamId,
+                               Integer homeScore,
+                               Integer awayScore) {
+}
@@ -0,0 +1,7 @@
+package org.example.dto;
+
+// Предстоящий матч: только ID команд
+public record FixtureRow(Long id,
+                         Long homeTeamId,
+                         Long awayTeamId) {
+}
@@ -0,0 +1,14 @@
+package org.example.dto;
+
+// Строка таблицы формы: показатели команды за последние N матчей, form - исходы от нового к старому (W/D/L)
+public record FormRow(Integer position,
+                      Long teamId,
+                      Integer matchesPlayed,
+                      Integer wins,
+                      Integer draws,
+                      Integer losses,
+                      Integer goalsFor,
+                      Integer goalsAgainst,
+                      Integer points,
+                      String form) {
+}
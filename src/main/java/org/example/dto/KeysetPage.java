@@ -0,0 +1,19 @@
+package org.example.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Страница keyset-пагинации: следующая страница запрашивается с afterId = nextAfterId
+public record KeysetPage<T>(List<T> items,
+                            int limit,
+                            boolean hasMore,
+                            Long nextAfterId) {
+
+    // rows - результат запроса с limit + 1 строкой: лишняя строка только признак продолжения
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, Long> idOf) {
+        boolean hasMore = rows.size() > limit;
+        List<T> items = hasMore ? rows.subList(0, limit) : rows;
+        Long nextAfterId = hasMore ? idOf.apply(items.get(items.size() - 1)) : null;
+        return new KeysetPage<>(items, limit, hasMore, nextAfterId);
+    }
+}
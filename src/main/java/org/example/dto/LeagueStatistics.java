@@ -0,0 +1,10 @@
+package org.example.dto;
+
+// Общая статистика лиги (ответ API)
+public record LeagueStatistics(long totalTeams,
+                               long totalPoints,
+                               double averagePoints,
+                               String oldestTeam,
+                               String newestTeam,
+                               String cityWithMostTeams) {
+}
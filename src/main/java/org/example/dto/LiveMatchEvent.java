@@ -0,0 +1,17 @@
+package org.example.dto;
+
+import org.example.model.Match;
+
+// Событие live-канала по матчу: счёт и статус на момент коммита
+public record LiveMatchEvent(Long matchId,
+                             Long homeTeamId,
+                             Long awayTeamId,
+                             Integer homeScore,
+                             Integer awayScore,
+                             String status) {
+
+    public static LiveMatchEvent of(Match match) {
+        return new LiveMatchEvent(match.getId(), match.getHomeTeamId(), match.getAwayTeamId(),
+                match.getHomeTeamScore(), match.getAwayTeamScore(), match.getStatus());
+    }
+}
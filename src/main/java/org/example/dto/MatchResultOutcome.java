@@ -0,0 +1,15 @@
+package org.example.dto;
+
+// Результат обработки одного элемента пакета
+public record MatchResultOutcome(Long matchId,
+                                 boolean applied,
+                                 String error) {
+
+    public static MatchResultOutcome applied(Long matchId) {
+        return new MatchResultOutcome(matchId, true, null);
+    }
+
+    public static MatchResultOutcome rejected(Long matchId, String error) {
+        return new MatchResultOutcome(matchId, false, error);
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.dto;
+
+import lombok.Data;
+
+// Результат матча из фида (проверяется в MatchService поэлементно)
+@Data
+public class MatchResultRequest {
+
+    private Long matchId;
+
+    private Integer homeScore;
+
+    private Integer awayScore;
+}
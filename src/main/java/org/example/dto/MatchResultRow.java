@@ -0,0 +1,9 @@
+package org.example.dto;
+
+// Облегчённая строка результата матча (без загрузки сущности Match)
+public record MatchResultRow(Long id,
+                             Long homeTeamId,
+                             Long awayTeamId,
+                             Integer homeScore,
+                             Integer awayScore) {
+}
@@ -0,0 +1,8 @@
+package org.example.dto;
+
+// Совпадение поиска по названию: тип сущности (team, venue, player), ID, название и оценка сходства (0..1)
+public record NameMatch(String type,
+                        Long id,
+                        String name,
+                        Double score) {
+}
@@ -0,0 +1,7 @@
+package org.example.dto;
+
+// Агрегаты состава команды, посчитанные в БД
+public record PlayerAggregate(Long players,
+                              Double averageAge,
+                              Long goals) {
+}
@@ -0,0 +1,10 @@
+package org.example.dto;
+
+// Облегчённая проекция игрока для списков (без управляемой сущности)
+public record PlayerSummary(Long id,
+                            String name,
+                            Long teamId,
+                            String position,
+                            Integer jerseyNumber,
+                            Integer goalsScored) {
+}
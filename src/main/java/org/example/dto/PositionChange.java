@@ -0,0 +1,7 @@
+package org.example.dto;
+
+// Изменение позиции команды между двумя снимками таблицы (from = null - команда появилась в таблице)
+public record PositionChange(Long teamId,
+                             Integer from,
+                             Integer to) {
+}
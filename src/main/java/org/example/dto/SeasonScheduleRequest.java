@@ -0,0 +1,35 @@
+package org.example.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Параметры генерации расписания сезона (двойной круг). Пустые поля - значения по умолчанию
+@Data
+public class SeasonScheduleRequest {
+
+    // Команды сезона; по умолчанию - все команды
+    private List<Long> teamIds;
+
+    // Доступные арены; по умолчанию - все арены
+    private List<Long> venueIds;
+
+    private LocalDate startDate;
+
+    // Время начала матчей внутри игрового дня (интервал между ними - не меньше длительности матча)
+    private List<LocalTime> kickoffTimes;
+
+    // Интервал между началами соседних туров, дней
+    private Integer daysBetweenRounds;
+
+    // Сколько дней занимает один тур
+    private Integer roundSpanDays;
+
+    // Минимум полных дней отдыха команды между матчами
+    private Integer minRestDays;
+
+    // true - только построить и вернуть расписание, без записи
+    private Boolean dryRun;
+}
@@ -0,0 +1,11 @@
+package org.example.dto;
+
+import java.util.Map;
+
+// Статистика состава команды (ответ API)
+public record TeamPlayerStatistics(long totalPlayers,
+                                   double averageAge,
+                                   long totalGoals,
+                                   String topScorer,
+                                   Map<String, Long> positionDistribution) {
+}
@@ -0,0 +1,8 @@
+package org.example.dto;
+
+// Облегчённая проекция команды для списков (без управляемой сущности)
+public record TeamSummary(Long id,
+                          String name,
+                          String city,
+                          Integer points) {
+}
@@ -0,0 +1,10 @@
+package org.example.dto;
+
+import java.util.List;
+
+// Результат подсказки: лучшие совпадения по убыванию сходства;
+// partial - поиск прерван по бюджету времени, tookMicros - время поиска
+public record TypeaheadResult(List<NameMatch> matches,
+                              boolean partial,
+                              long tookMicros) {
+}
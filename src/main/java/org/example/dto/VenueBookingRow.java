@@ -0,0 +1,9 @@
+package org.example.dto;
+
+import java.time.LocalDateTime;
+
+// Занятость арены матчем: только ID матча, арены и время начала
+public record VenueBookingRow(Long id,
+                              Long venueId,
+                              LocalDateTime matchDate) {
+}
@@ -0,0 +1,12 @@
+package org.example.dto;
+
+import java.util.Map;
+
+// Статистика арен (ответ API)
+public record VenueStatistics(long totalVenues,
+                              long totalCapacity,
+                              double averageCapacity,
+                              String largestVenue,
+                              Map<String, Long> venuesByCity,
+                              Map<String, Long> venuesByFieldType) {
+}
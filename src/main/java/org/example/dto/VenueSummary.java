@@ -0,0 +1,8 @@
+package org.example.dto;
+
+// Облегчённая проекция арены для списков (без управляемой сущности)
+public record VenueSummary(Long id,
+                           String name,
+                           String city,
+                           Integer capacity) {
+}
@@ -0,0 +1,28 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Прогресс импорта по имени источника: сколько строк файла уже обработано (для продолжения после сбоя)
+@Data
+@Entity
+@Table(name = "import_checkpoints")
+public class ImportCheckpoint {
+
+    @Id
+    @Column(length = 200)
+    private String source;
+
+    @Column(name = "lines_processed", nullable = false)
+    private Long linesProcessed = 0L;
+
+    @Column(nullable = false)
+    private Long inserted = 0L;
+
+    @Column(nullable = false)
+    private Boolean completed = false;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
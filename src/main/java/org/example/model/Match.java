@@ -6,11 +6,19 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "matches")
+// Естественный ключ матча (хозяева, гости, время начала) уникален - на нём держится идемпотентность импорта
+@Table(name = "matches", indexes = {
+        @Index(name = "idx_matches_home_date", columnList = "home_team_id, match_date"),
+        @Index(name = "idx_matches_away_date", columnList = "away_team_id, match_date"),
+        @Index(name = "idx_matches_date", columnList = "match_date")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_matches_home_away_date", columnNames = {"home_team_id", "away_team_id", "match_date"})
+})
 public class Match {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "matches_seq")
+    @SequenceGenerator(name = "matches_seq", sequenceName = "matches_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "home_team_id", nullable = false)
@@ -0,0 +1,45 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Событие "матч завершён" в исходящей очереди (transactional outbox).
+// Пишется в транзакции завершения матча, разбирается фоновым обработчиком таблицы;
+// обработанные события удаляются, необработанные помечаются failedAt.
+// Уникальность match_id - не больше одного необработанного события на матч (повторное завершение отклоняется БД)
+@Data
+@Entity
+@Table(name = "match_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_match_outbox_match", columnNames = "match_id"))
+public class MatchOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "match_outbox_seq")
+    @SequenceGenerator(name = "match_outbox_seq", sequenceName = "match_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "match_id", nullable = false)
+    private Long matchId;
+
+    @Column(name = "home_team_id", nullable = false)
+    private Long homeTeamId;
+
+    @Column(name = "away_team_id", nullable = false)
+    private Long awayTeamId;
+
+    @Column(name = "home_score", nullable = false)
+    private Integer homeScore;
+
+    @Column(name = "away_score", nullable = false)
+    private Integer awayScore;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -5,11 +5,17 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "players")
+// Индексы повторяют ORDER BY топ-запросов (goals_scored DESC NULLS LAST, id); для PostgreSQL
+// NULLS LAST задаёт db/postgres/top-n-indexes.sql
+@Table(name = "players", indexes = {
+        @Index(name = "idx_players_top_scorers", columnList = "goals_scored DESC, id"),
+        @Index(name = "idx_players_team_top_scorers", columnList = "team_id, goals_scored DESC, id")
+})
 public class Player {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "players_seq")
+    @SequenceGenerator(name = "players_seq", sequenceName = "players_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -27,6 +33,9 @@ public class Player {
     @Column(nullable = false)
     private Integer age;
 
-    @Column(name = "goals_scored")
-    private Integer goalsScored = 0;
+    // Меняется только атомарными UPDATE (инкремент, явная установка): save() изменённого игрока
+    // не должен записывать прочитанное ранее значение поверх голов, записанных счётчиком параллельно.
+    // Без значения по умолчанию: null в теле PUT - "не менять", а не "обнулить" (0 при создании ставит сервис)
+    @Column(name = "goals_scored", updatable = false)
+    private Integer goalsScored;
 }
\ No newline at end of file
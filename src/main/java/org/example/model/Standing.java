@@ -9,7 +9,8 @@ import lombok.Data;
 public class Standing {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "standings_seq")
+    @SequenceGenerator(name = "standings_seq", sequenceName = "standings_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "team_id", nullable = false, unique = true)
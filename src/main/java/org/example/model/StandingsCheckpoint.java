@@ -0,0 +1,27 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Контрольная точка таблицы: накопленные показатели команд по всем завершённым матчам до asOf (не включая).
+// Строки по командам - в standings_checkpoint_rows
+@Data
+@Entity
+@Table(name = "standings_checkpoints")
+public class StandingsCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "standings_checkpoints_seq")
+    @SequenceGenerator(name = "standings_checkpoints_seq", sequenceName = "standings_checkpoints_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "as_of", nullable = false, unique = true)
+    private LocalDateTime asOf;
+
+    @Column(name = "match_count", nullable = false)
+    private Long matchCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,44 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Показатели команды в контрольной точке таблицы
+@Data
+@Entity
+@Table(name = "standings_checkpoint_rows",
+        indexes = @Index(name = "idx_checkpoint_rows_checkpoint", columnList = "checkpoint_id"))
+public class StandingsCheckpointRow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "standings_checkpoint_rows_seq")
+    @SequenceGenerator(name = "standings_checkpoint_rows_seq", sequenceName = "standings_checkpoint_rows_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "checkpoint_id", nullable = false)
+    private Long checkpointId;
+
+    @Column(name = "team_id", nullable = false)
+    private Long teamId;
+
+    @Column(name = "matches_played", nullable = false)
+    private Integer matchesPlayed;
+
+    @Column(nullable = false)
+    private Integer wins;
+
+    @Column(nullable = false)
+    private Integer draws;
+
+    @Column(nullable = false)
+    private Integer losses;
+
+    @Column(name = "goals_for", nullable = false)
+    private Integer goalsFor;
+
+    @Column(name = "goals_against", nullable = false)
+    private Integer goalsAgainst;
+
+    @Column(nullable = false)
+    private Integer points;
+}
@@ -5,11 +5,12 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "teams")
+@Table(name = "teams", indexes = @Index(name = "idx_teams_top", columnList = "points DESC, id"))
 public class Team {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "teams_seq")
+    @SequenceGenerator(name = "teams_seq", sequenceName = "teams_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
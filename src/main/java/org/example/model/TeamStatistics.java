@@ -0,0 +1,56 @@
+package org.example.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Накопленная статистика команды по завершённым матчам с разбивкой дома/в гостях.
+// Обновляется инкрементально в транзакции завершения матча, читается одной строкой.
+@Data
+@Entity
+@Table(name = "team_statistics")
+public class TeamStatistics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_statistics_seq")
+    @SequenceGenerator(name = "team_statistics_seq", sequenceName = "team_statistics_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "team_id", nullable = false, unique = true)
+    private Long teamId;
+
+    @Column(name = "home_played", nullable = false)
+    private Integer homePlayed = 0;
+
+    @Column(name = "home_wins", nullable = false)
+    private Integer homeWins = 0;
+
+    @Column(name = "home_draws", nullable = false)
+    private Integer homeDraws = 0;
+
+    @Column(name = "home_losses", nullable = false)
+    private Integer homeLosses = 0;
+
+    @Column(name = "home_goals_for", nullable = false)
+    private Integer homeGoalsFor = 0;
+
+    @Column(name = "home_goals_against", nullable = false)
+    private Integer homeGoalsAgainst = 0;
+
+    @Column(name = "away_played", nullable = false)
+    private Integer awayPlayed = 0;
+
+    @Column(name = "away_wins", nullable = false)
+    private Integer awayWins = 0;
+
+    @Column(name = "away_draws", nullable = false)
+    private Integer awayDraws = 0;
+
+    @Column(name = "away_losses", nullable = false)
+    private Integer awayLosses = 0;
+
+    @Column(name = "away_goals_for", nullable = false)
+    private Integer awayGoalsFor = 0;
+
+    @Column(name = "away_goals_against", nullable = false)
+    private Integer awayGoalsAgainst = 0;
+}
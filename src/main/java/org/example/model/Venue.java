@@ -5,11 +5,13 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "venues")
+// Индекс повторяет ORDER BY capacity DESC NULLS LAST, id; для PostgreSQL NULLS LAST задаёт db/postgres/top-n-indexes.sql
+@Table(name = "venues", indexes = @Index(name = "idx_venues_largest", columnList = "capacity DESC, id"))
 public class Venue {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "venues_seq")
+    @SequenceGenerator(name = "venues_seq", sequenceName = "venues_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -0,0 +1,49 @@
+package org.example.repository;
+
+import org.example.model.MatchOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MatchOutboxRepository extends JpaRepository<MatchOutboxEvent, Long> {
+
+    // Очередная порция необработанных событий в порядке записи
+    List<MatchOutboxEvent> findByFailedAtIsNullOrderByIdAsc(Pageable pageable);
+
+    long countByFailedAtIsNull();
+
+    long countByFailedAtIsNotNull();
+
+    // Сколько событий по этим матчам ещё ждут обработки
+    long countByMatchIdInAndFailedAtIsNull(Collection<Long> matchIds);
+
+    // Сколько событий по этим матчам отложено с ошибкой
+    long countByMatchIdInAndFailedAtIsNotNull(Collection<Long> matchIds);
+
+    // Вернуть отложенные с ошибкой события в очередь (после устранения причины)
+    @Modifying
+    @Query("UPDATE MatchOutboxEvent e SET e.failedAt = NULL, e.lastError = NULL WHERE e.failedAt IS NOT NULL")
+    int requeueFailed();
+
+    @Modifying
+    @Query("UPDATE MatchOutboxEvent e SET e.failedAt = NULL, e.lastError = NULL " +
+            "WHERE e.failedAt IS NOT NULL AND e.matchId IN :matchIds")
+    int requeueFailedByMatchIdIn(@Param("matchIds") Collection<Long> matchIds);
+
+    // Отбросить необработанные события (сброс таблицы или пересчёт по истории матчей)
+    @Modifying
+    @Query("DELETE FROM MatchOutboxEvent e WHERE e.failedAt IS NULL")
+    int deletePending();
+
+    // Время записи самого старого необработанного события (для метрики отставания)
+    @Query("SELECT MIN(e.createdAt) FROM MatchOutboxEvent e WHERE e.failedAt IS NULL")
+    LocalDateTime findOldestPendingCreatedAt();
+}
@@ -1,13 +1,24 @@
 package org.example.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.dto.DatedMatchResult;
+import org.example.dto.FixtureRow;
+import org.example.dto.MatchResultRow;
+import org.example.dto.VenueBookingRow;
 import org.example.model.Match;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface MatchRepository extends JpaRepository<Match, Long> {
@@ -18,6 +29,22 @@ public interface MatchRepository extends JpaRepository<Match, Long> {
     // Поиск матчей по статусу (НЕ равному указанному)
     List<Match> findByStatusNot(String status);
 
+    // Неотменённые матчи с ареной, начинающиеся не раньше from, порциями по ID (keyset) - для календаря арен
+    @Query("SELECT new org.example.dto.VenueBookingRow(m.id, m.venueId, m.matchDate) FROM Match m " +
+            "WHERE m.status <> 'CANCELLED' AND m.venueId IS NOT NULL AND m.matchDate >= :from AND m.id > :afterId " +
+            "ORDER BY m.id")
+    List<VenueBookingRow> findVenueBookingsFrom(@Param("from") LocalDateTime from,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+
+    // Удалить все незавершённые матчи одним DELETE (новый сезон)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Match m WHERE m.status <> 'FINISHED'")
+    int deleteUnfinished();
+
+    // Матчи, статус которых не входит в список (для индекса расписания)
+    List<Match> findByStatusNotIn(Collection<String> statuses);
+
     // Поиск матчей команды (домашние или гостевые)
     List<Match> findByHomeTeamIdOrAwayTeamId(Long homeTeamId, Long awayTeamId);
 
@@ -48,7 +75,60 @@ public interface MatchRepository extends JpaRepository<Match, Long> {
             "(m.homeTeamScore > m.awayTeamScore OR m.awayTeamScore > m.homeTeamScore)")
     List<Match> findMatchesWithWinner();
 
+    // Результаты завершённых матчей порциями по ID (keyset), без загрузки сущностей
+    @Query("SELECT new org.example.dto.MatchResultRow(m.id, m.homeTeamId, m.awayTeamId, m.homeTeamScore, m.awayTeamScore) " +
+            "FROM Match m WHERE m.status = 'FINISHED' AND m.id > :afterId " +
+            "AND m.homeTeamScore IS NOT NULL AND m.awayTeamScore IS NOT NULL ORDER BY m.id")
+    List<MatchResultRow> findFinishedResultsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // То же без матчей, чьи события ещё ждут в очереди (их применит обработчик очереди)
+    @Query("SELECT new org.example.dto.MatchResultRow(m.id, m.homeTeamId, m.awayTeamId, m.homeTeamScore, m.awayTeamScore) " +
+            "FROM Match m WHERE m.status = 'FINISHED' AND m.id > :afterId " +
+            "AND m.homeTeamScore IS NOT NULL AND m.awayTeamScore IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM MatchOutboxEvent e WHERE e.matchId = m.id AND e.failedAt IS NULL) ORDER BY m.id")
+    List<MatchResultRow> findAppliedResultsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Результаты завершённых матчей за период [from, to) в порядке времени (восстановление таблицы на дату)
+    @Query("SELECT new org.example.dto.DatedMatchResult(m.id, m.matchDate, m.homeTeamId, m.awayTeamId, " +
+            "m.homeTeamScore, m.awayTeamScore) FROM Match m WHERE m.status = 'FINISHED' " +
+            "AND m.matchDate >= :from AND m.matchDate < :to " +
+            "AND m.homeTeamScore IS NOT NULL AND m.awayTeamScore IS NOT NULL ORDER BY m.matchDate, m.id")
+    List<DatedMatchResult> findFinishedResultsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // То же порциями по ID (keyset) - для заполнения индексов в памяти, которым важен порядок по дате
+    @Query("SELECT new org.example.dto.DatedMatchResult(m.id, m.matchDate, m.homeTeamId, m.awayTeamId, " +
+            "m.homeTeamScore, m.awayTeamScore) FROM Match m WHERE m.status = 'FINISHED' AND m.id > :afterId " +
+            "AND m.homeTeamScore IS NOT NULL AND m.awayTeamScore IS NOT NULL ORDER BY m.id")
+    List<DatedMatchResult> findFinishedDatedResultsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Последние завершённые матчи команды (сначала новые)
+    @Query("SELECT new org.example.dto.DatedMatchResult(m.id, m.matchDate, m.homeTeamId, m.awayTeamId, " +
+            "m.homeTeamScore, m.awayTeamScore) FROM Match m WHERE m.status = 'FINISHED' " +
+            "AND (m.homeTeamId = :teamId OR m.awayTeamId = :teamId) " +
+            "AND m.homeTeamScore IS NOT NULL AND m.awayTeamScore IS NOT NULL ORDER BY m.matchDate DESC, m.id DESC")
+    List<DatedMatchResult> findRecentFinishedResultsByTeamId(@Param("teamId") Long teamId, Pageable pageable);
+
+    // Дата первого завершённого матча
+    @Query("SELECT MIN(m.matchDate) FROM Match m WHERE m.status = 'FINISHED'")
+    LocalDateTime findEarliestFinishedMatchDate();
+
+    // Дата первого завершённого матча не раньше указанного момента (пропуск периодов без матчей)
+    @Query("SELECT MIN(m.matchDate) FROM Match m WHERE m.status = 'FINISHED' AND m.matchDate >= :from")
+    LocalDateTime findEarliestFinishedMatchDateFrom(@Param("from") LocalDateTime from);
+
+    // Оставшиеся матчи для симуляции сезона
+    @Query("SELECT new org.example.dto.FixtureRow(m.id, m.homeTeamId, m.awayTeamId) " +
+            "FROM Match m WHERE m.status = 'SCHEDULED' ORDER BY m.id")
+    List<FixtureRow> findScheduledFixtures();
+
     // Количество матчей команды
     @Query("SELECT COUNT(m) FROM Match m WHERE (m.homeTeamId = :teamId OR m.awayTeamId = :teamId) AND m.status = 'FINISHED'")
     Long countMatchesByTeamId(@Param("teamId") Long teamId);
-}
\ No newline at end of file
+
+    // Keyset-пагинация по ID
+    List<Match> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Потоковое чтение всей таблицы курсором (порциями по fetch size)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Match> streamAllByOrderByIdAsc();
+}
@@ -1,12 +1,22 @@
 package org.example.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.dto.CountByKey;
+import org.example.dto.PlayerAggregate;
+import org.example.dto.PlayerSummary;
 import org.example.model.Player;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface PlayerRepository extends JpaRepository<Player, Long> {
@@ -30,6 +40,19 @@ public interface PlayerRepository extends JpaRepository<Player, Long> {
     // Топ бомбардиры
     List<Player> findAllByOrderByGoalsScoredDesc();
 
+    // Топ бомбардиры с ограничением на стороне БД (проекция вместо сущностей)
+    @Query("SELECT new org.example.dto.PlayerSummary(p.id, p.name, p.teamId, p.position, p.jerseyNumber, p.goalsScored) " +
+            "FROM Player p ORDER BY p.goalsScored DESC NULLS LAST, p.id")
+    List<PlayerSummary> findTopScorers(Pageable pageable);
+
+    // Лучшие бомбардиры команды (индекс team_id, goals_scored)
+    @Query("SELECT new org.example.dto.PlayerSummary(p.id, p.name, p.teamId, p.position, p.jerseyNumber, p.goalsScored) " +
+            "FROM Player p WHERE p.teamId = :teamId ORDER BY p.goalsScored DESC NULLS LAST, p.id")
+    List<PlayerSummary> findTopScorersByTeamId(@Param("teamId") Long teamId, Pageable pageable);
+
+    // Размер состава
+    long countByTeamId(Long teamId);
+
     // Игроки команды по позициям
     @Query("SELECT p FROM Player p WHERE p.teamId = :teamId AND p.position = :position ORDER BY p.jerseyNumber")
     List<Player> findByTeamIdAndPosition(
@@ -44,9 +67,41 @@ public interface PlayerRepository extends JpaRepository<Player, Long> {
     @Query("SELECT SUM(p.goalsScored) FROM Player p WHERE p.teamId = :teamId")
     Integer getTotalGoalsByTeamId(@Param("teamId") Long teamId);
 
+    // Размер состава, средний возраст и сумма голов одним запросом
+    @Query("SELECT new org.example.dto.PlayerAggregate(COUNT(p), AVG(p.age), SUM(p.goalsScored)) " +
+            "FROM Player p WHERE p.teamId = :teamId")
+    PlayerAggregate aggregateByTeamId(@Param("teamId") Long teamId);
+
+    // Распределение игроков команды по позициям
+    @Query("SELECT new org.example.dto.CountByKey(p.position, COUNT(p)) FROM Player p " +
+            "WHERE p.teamId = :teamId AND p.position IS NOT NULL GROUP BY p.position ORDER BY p.position")
+    List<CountByKey> countByPositionForTeam(@Param("teamId") Long teamId);
+
+    // Игроки команды из заданного набора ID (для учёта ещё не записанных голов)
+    @Query("SELECT new org.example.dto.PlayerSummary(p.id, p.name, p.teamId, p.position, p.jerseyNumber, p.goalsScored) " +
+            "FROM Player p WHERE p.teamId = :teamId AND p.id IN :ids")
+    List<PlayerSummary> findSummariesByTeamIdAndIdIn(@Param("teamId") Long teamId, @Param("ids") Collection<Long> ids);
+
     // Проверка уникальности номера в команде
     @Query("SELECT COUNT(p) > 0 FROM Player p WHERE p.teamId = :teamId AND p.jerseyNumber = :jerseyNumber")
     boolean existsByTeamIdAndJerseyNumber(
             @Param("teamId") Long teamId,
             @Param("jerseyNumber") Integer jerseyNumber);
-}
\ No newline at end of file
+
+    // Возраст всех игроков +1 одним UPDATE (новый сезон)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Player p SET p.age = p.age + 1 WHERE p.age IS NOT NULL")
+    int incrementAllAges();
+
+    // Атомарное увеличение счётчика голов (без чтения и записи сущности)
+    @Modifying
+    @Query("UPDATE Player p SET p.goalsScored = COALESCE(p.goalsScored, 0) + :goals WHERE p.id = :playerId")
+    int incrementGoals(@Param("playerId") Long playerId, @Param("goals") int goals);
+
+    // Keyset-пагинация по ID
+    List<Player> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Потоковое чтение всей таблицы курсором (порциями по fetch size)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Player> streamAllByOrderByIdAsc();
+}
@@ -1,11 +1,15 @@
 package org.example.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.model.Standing;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +18,46 @@ public interface StandingRepository extends JpaRepository<Standing, Long> {
 
     Optional<Standing> findByTeamId(Long teamId);
 
+    // Блокировка строк команд в порядке team_id (защита от потерянных обновлений и взаимных блокировок)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Standing s WHERE s.teamId IN :teamIds ORDER BY s.teamId")
+    List<Standing> findByTeamIdInForUpdate(@Param("teamIds") Collection<Long> teamIds);
+
+    // Строки изменившихся команд для инкрементального обновления снимка
+    List<Standing> findByTeamIdIn(Collection<Long> teamIds);
+
+    @Query("SELECT s.teamId FROM Standing s WHERE s.teamId IN :teamIds")
+    List<Long> findTeamIdsIn(@Param("teamIds") Collection<Long> teamIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Standing s WHERE s.id = :id")
+    Optional<Standing> findByIdForUpdate(@Param("id") Long id);
+
+    // Блокировка всей таблицы построчно в том же порядке (перед пересчётом позиций)
+    @Query(value = "SELECT id FROM standings ORDER BY team_id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllOrderByTeamId();
+
+    // Массовый сброс показателей одним UPDATE (новый сезон, сброс таблицы)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Standing s SET s.position = 0, s.matchesPlayed = 0, s.wins = 0, s.draws = 0, s.losses = 0, " +
+            "s.goalsFor = 0, s.goalsAgainst = 0, s.goalDifference = 0, s.points = 0")
+    int resetAll();
+
+    // Записи удалённых команд
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Standing s WHERE NOT EXISTS (SELECT t.id FROM Team t WHERE t.id = s.teamId)")
+    int deleteWithoutTeam();
+
+    // Пустые записи для команд, у которых записи нет (INSERT ... SELECT, ID - из последовательности)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        INSERT INTO standings (id, team_id, position, matches_played, wins, draws, losses,
+            goals_for, goals_against, goal_difference, points)
+        SELECT nextval('standings_seq'), t.id, 0, 0, 0, 0, 0, 0, 0, 0, 0 FROM teams t
+        WHERE NOT EXISTS (SELECT 1 FROM standings s WHERE s.team_id = t.id)
+        """, nativeQuery = true)
+    int insertMissingForTeams();
+
     // Получить всю таблицу отсортированную
     List<Standing> findAllByOrderByPointsDescGoalDifferenceDescGoalsForDesc();
 
@@ -33,6 +77,30 @@ public interface StandingRepository extends JpaRepository<Standing, Long> {
     @Query(value = "UPDATE standings SET position = :position WHERE id = :id", nativeQuery = true)
     void updatePosition(@Param("id") Long id, @Param("position") Integer position);
 
+    // Пересчёт всех позиций одним запросом (PostgreSQL), пишутся только изменившиеся строки.
+    // Порядок при равенстве - по team_id, как в StandingRankIndex, из которого строится снимок таблицы
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        UPDATE standings s SET position = r.new_position
+        FROM (SELECT id, ROW_NUMBER() OVER (
+                  ORDER BY points DESC, goal_difference DESC, goals_for DESC, team_id) AS new_position
+              FROM standings) r
+        WHERE s.id = r.id AND s.position <> r.new_position
+        """, nativeQuery = true)
+    int rerankPositions();
+
+    // То же через MERGE для H2 (UPDATE ... FROM не поддерживается)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+        MERGE INTO standings s
+        USING (SELECT id, ROW_NUMBER() OVER (
+                   ORDER BY points DESC, goal_difference DESC, goals_for DESC, team_id) AS new_position
+               FROM standings) r
+        ON s.id = r.id
+        WHEN MATCHED AND s.position <> r.new_position THEN UPDATE SET position = r.new_position
+        """, nativeQuery = true)
+    int rerankPositionsMerge();
+
     // Позиция команды в таблице (1-based)
     @Query(value = """
         SELECT COUNT(*) + 1 FROM standings s 
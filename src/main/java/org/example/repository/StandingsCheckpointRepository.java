@@ -0,0 +1,17 @@
+package org.example.repository;
+
+import org.example.model.StandingsCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StandingsCheckpointRepository extends JpaRepository<StandingsCheckpoint, Long> {
+
+    // Ближайшая контрольная точка не позже указанного момента
+    Optional<StandingsCheckpoint> findTopByAsOfLessThanEqualOrderByAsOfDesc(LocalDateTime asOf);
+
+    Optional<StandingsCheckpoint> findTopByOrderByAsOfDesc();
+}
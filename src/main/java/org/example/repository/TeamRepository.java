@@ -1,13 +1,22 @@
 package org.example.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.dto.CountAndSum;
+import org.example.dto.CountByKey;
+import org.example.dto.TeamSummary;
 import org.example.model.Team;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TeamRepository extends JpaRepository<Team, Long> {
@@ -22,9 +31,19 @@ public interface TeamRepository extends JpaRepository<Team, Long> {
     // Команды с определенным количеством очков или больше
     List<Team> findByPointsGreaterThanEqual(Integer points);
 
+    // Обнулить очки всех команд одним UPDATE (пишутся только ненулевые строки)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Team t SET t.points = 0 WHERE t.points IS NULL OR t.points <> 0")
+    int resetAllPoints();
+
     // Топ команд по очкам
     List<Team> findAllByOrderByPointsDesc();
 
+    // Топ команд с ограничением на стороне БД (проекция вместо сущностей)
+    @Query("SELECT new org.example.dto.TeamSummary(t.id, t.name, t.city, t.points) " +
+            "FROM Team t ORDER BY t.points DESC, t.id")
+    List<TeamSummary> findTopTeams(Pageable pageable);
+
     // Поиск по году основания
     List<Team> findByFoundationYear(Integer year);
 
@@ -37,4 +56,27 @@ public interface TeamRepository extends JpaRepository<Team, Long> {
     // Количество команд в городе
     @Query("SELECT COUNT(t) FROM Team t WHERE t.city = :city")
     Long countByCity(@Param("city") String city);
-}
\ No newline at end of file
+
+    // Количество команд и сумма очков
+    @Query("SELECT new org.example.dto.CountAndSum(COUNT(t), SUM(t.points)) FROM Team t")
+    CountAndSum aggregatePoints();
+
+    // Названия команд по году основания (старейшая - первая; при равенстве - меньший ID)
+    @Query("SELECT t.name FROM Team t WHERE t.foundationYear IS NOT NULL ORDER BY t.foundationYear, t.id")
+    List<String> findNamesByFoundationYearAsc(Pageable pageable);
+
+    @Query("SELECT t.name FROM Team t WHERE t.foundationYear IS NOT NULL ORDER BY t.foundationYear DESC, t.id")
+    List<String> findNamesByFoundationYearDesc(Pageable pageable);
+
+    // Количество команд по городам, самые многочисленные - первыми
+    @Query("SELECT new org.example.dto.CountByKey(t.city, COUNT(t)) FROM Team t " +
+            "WHERE t.city IS NOT NULL GROUP BY t.city ORDER BY COUNT(t) DESC, t.city")
+    List<CountByKey> countByCityDesc(Pageable pageable);
+
+    // Keyset-пагинация по ID
+    List<Team> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Потоковое чтение всей таблицы курсором (порциями по fetch size)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Team> streamAllByOrderByIdAsc();
+}
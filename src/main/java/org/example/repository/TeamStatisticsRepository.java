@@ -0,0 +1,13 @@
+package org.example.repository;
+
+import org.example.model.TeamStatistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TeamStatisticsRepository extends JpaRepository<TeamStatistics, Long> {
+
+    Optional<TeamStatistics> findByTeamId(Long teamId);
+}
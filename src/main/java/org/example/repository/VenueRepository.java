@@ -1,13 +1,21 @@
 package org.example.repository;
 
+import jakarta.persistence.QueryHint;
+import org.example.dto.CountAndSum;
+import org.example.dto.CountByKey;
+import org.example.dto.VenueSummary;
 import org.example.model.Venue;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VenueRepository extends JpaRepository<Venue, Long> {
@@ -34,11 +42,37 @@ public interface VenueRepository extends JpaRepository<Venue, Long> {
     // Арены отсортированные по вместимости
     List<Venue> findAllByOrderByCapacityDesc();
 
+    // Самые большие арены с ограничением на стороне БД (проекция вместо сущностей)
+    @Query("SELECT new org.example.dto.VenueSummary(v.id, v.name, v.city, v.capacity) " +
+            "FROM Venue v ORDER BY v.capacity DESC NULLS LAST, v.id")
+    List<VenueSummary> findLargestVenues(Pageable pageable);
+
     // Общая вместимость всех арен в городе
     @Query("SELECT SUM(v.capacity) FROM Venue v WHERE v.city = :city")
     Integer getTotalCapacityByCity(@Param("city") String city);
 
+    // Количество арен и общая вместимость
+    @Query("SELECT new org.example.dto.CountAndSum(COUNT(v), SUM(v.capacity)) FROM Venue v")
+    CountAndSum aggregateCapacity();
+
+    // Количество арен по городам
+    @Query("SELECT new org.example.dto.CountByKey(v.city, COUNT(v)) FROM Venue v " +
+            "WHERE v.city IS NOT NULL GROUP BY v.city ORDER BY v.city")
+    List<CountByKey> countByCity();
+
+    // Количество арен по типу покрытия
+    @Query("SELECT new org.example.dto.CountByKey(v.fieldType, COUNT(v)) FROM Venue v " +
+            "WHERE v.fieldType IS NOT NULL GROUP BY v.fieldType ORDER BY v.fieldType")
+    List<CountByKey> countByFieldType();
+
     // Поиск по части названия
     @Query("SELECT v FROM Venue v WHERE LOWER(v.name) LIKE LOWER(CONCAT('%', :namePart, '%'))")
     List<Venue> findByNameContainingIgnoreCase(@Param("namePart") String namePart);
-}
\ No newline at end of file
+
+    // Keyset-пагинация по ID
+    List<Venue> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    // Потоковое чтение всей таблицы курсором (порциями по fetch size)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Venue> streamAllByOrderByIdAsc();
+}
@@ -0,0 +1,36 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+// Отчёт о массовой операции: по каждому шагу (одному SQL-оператору) - число строк и длительность
+public final class BulkOperationReport {
+
+    private final long startedAt = System.currentTimeMillis();
+    private final List<Map<String, Object>> steps = new ArrayList<>();
+    private long totalRows;
+
+    public int step(String name, IntSupplier statement) {
+        long stepStartedAt = System.currentTimeMillis();
+        int rows = statement.getAsInt();
+
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("step", name);
+        step.put("rows", rows);
+        step.put("durationMs", System.currentTimeMillis() - stepStartedAt);
+        steps.add(step);
+        totalRows += rows;
+        return rows;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("steps", steps);
+        report.put("totalRows", totalRows);
+        report.put("durationMs", System.currentTimeMillis() - startedAt);
+        return report;
+    }
+}
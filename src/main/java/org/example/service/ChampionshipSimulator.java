@@ -0,0 +1,378 @@
+package org.example.service;
+
+import org.example.dto.FixtureRow;
+import jakarta.annotation.PreDestroy;
+import org.example.model.Standing;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Симуляция оставшейся части сезона методом Монте-Карло.
+// Модель: голы - пуассоновские с интенсивностью (средний тотал лиги) x (атака) x (защита соперника),
+// атака и защита считаются по забитым/пропущенным со сглаживанием к среднему.
+// Прогоны делятся между потоками собственного пула (общий ForkJoinPool не занимается),
+// у каждого потока свой SplittableRandom и свои примитивные массивы.
+@Component
+public class ChampionshipSimulator {
+
+    public static final int TOP_ZONE = 4;
+    public static final int RELEGATION_ZONE = 3;
+
+    private static final double DEFAULT_GOALS_PER_TEAM = 1.35;
+    private static final double HOME_ADVANTAGE = 1.15;
+    private static final int PRIOR_MATCHES = 3;
+    private static final int BATCH = 256;
+
+    // Запрошенные параметры округляются вверх до ступени (и не выше последней),
+    // поэтому кэш одной версии таблицы содержит не больше ITERATION_TIERS x BUDGET_TIERS записей
+    private static final int[] ITERATION_TIERS = {1_000, 5_000, 20_000, 50_000, 100_000, 200_000};
+    private static final long[] BUDGET_TIERS = {100, 250, 500, 1_000, 2_000};
+
+    private record CacheScope(long version, String fixtures) {
+    }
+
+    // Кэш полных (не прерванных бюджетом) результатов для текущей версии таблицы и набора матчей
+    private final Map<String, Map<String, Object>> cache = new ConcurrentHashMap<>();
+    private volatile CacheScope cacheScope = new CacheScope(-1, "");
+
+    private final int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private final ExecutorService pool;
+
+    public ChampionshipSimulator() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "championship-simulator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Map<String, Object> simulate(StandingsSnapshot snapshot, List<FixtureRow> fixtures,
+                                        int iterations, long budgetMs) {
+        CacheScope scope = new CacheScope(snapshot.getVersion(), fixturesSignature(fixtures));
+        if (!scope.equals(cacheScope)) {
+            cache.clear();
+            cacheScope = scope;
+        }
+
+        int iterationsTier = tier(ITERATION_TIERS, iterations);
+        long budgetTier = tier(BUDGET_TIERS, budgetMs);
+        String key = iterationsTier + ":" + budgetTier;
+        Map<String, Object> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Map<String, Object> result = run(snapshot, fixtures, iterationsTier, budgetTier);
+        result.put("standingsVersion", snapshot.getVersion());
+        result.put("budgetMs", budgetTier);
+        // Прерванный бюджетом прогон не кэшируется: при меньшей нагрузке тот же запрос даст полный результат
+        boolean truncated = ((Number) result.get("iterations")).longValue() < iterationsTier;
+        result.put("truncated", truncated);
+        if (!truncated && cacheScope.equals(scope)) {
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static int tier(int[] tiers, int value) {
+        for (int tier : tiers) {
+            if (value <= tier) {
+                return tier;
+            }
+        }
+        return tiers[tiers.length - 1];
+    }
+
+    private static long tier(long[] tiers, long value) {
+        for (long tier : tiers) {
+            if (value <= tier) {
+                return tier;
+            }
+        }
+        return tiers[tiers.length - 1];
+    }
+
+    private Map<String, Object> run(StandingsSnapshot snapshot, List<FixtureRow> fixtures,
+                                    int iterations, long budgetMs) {
+        List<Standing> table = snapshot.toStandings(null);
+        int teams = table.size();
+
+        Map<Long, Integer> indexByTeam = new HashMap<>();
+        int[] basePoints = new int[teams];
+        int[] baseGoalDifference = new int[teams];
+        int[] baseGoalsFor = new int[teams];
+        long totalGoals = 0;
+        long totalAppearances = 0;
+        for (int i = 0; i < teams; i++) {
+            Standing standing = table.get(i);
+            indexByTeam.put(standing.getTeamId(), i);
+            basePoints[i] = standing.getPoints();
+            baseGoalDifference[i] = standing.getGoalDifference();
+            baseGoalsFor[i] = standing.getGoalsFor();
+            totalGoals += standing.getGoalsFor();
+            totalAppearances += standing.getMatchesPlayed();
+        }
+
+        double leagueAverage = totalAppearances > 0 ? (double) totalGoals / totalAppearances : DEFAULT_GOALS_PER_TEAM;
+        if (leagueAverage <= 0) {
+            leagueAverage = DEFAULT_GOALS_PER_TEAM;
+        }
+
+        double[] attack = new double[teams];
+        double[] defence = new double[teams];
+        for (int i = 0; i < teams; i++) {
+            Standing standing = table.get(i);
+            double played = standing.getMatchesPlayed() + PRIOR_MATCHES;
+            attack[i] = (standing.getGoalsFor() + leagueAverage * PRIOR_MATCHES) / played / leagueAverage;
+            defence[i] = (standing.getGoalsAgainst() + leagueAverage * PRIOR_MATCHES) / played / leagueAverage;
+        }
+
+        // Матчи в примитивных массивах; для пуассоновской выборки храним exp(-lambda)
+        int[] homeIndex = new int[fixtures.size()];
+        int[] awayIndex = new int[fixtures.size()];
+        double[] homeExpLambda = new double[fixtures.size()];
+        double[] awayExpLambda = new double[fixtures.size()];
+        int fixtureCount = 0;
+        for (FixtureRow fixture : fixtures) {
+            Integer home = indexByTeam.get(fixture.homeTeamId());
+            Integer away = indexByTeam.get(fixture.awayTeamId());
+            if (home == null || away == null) {
+                continue;
+            }
+            homeIndex[fixtureCount] = home;
+            awayIndex[fixtureCount] = away;
+            homeExpLambda[fixtureCount] = Math.exp(-leagueAverage * attack[home] * defence[away] * HOME_ADVANTAGE);
+            awayExpLambda[fixtureCount] = Math.exp(-leagueAverage * attack[away] * defence[home]);
+            fixtureCount++;
+        }
+
+        Model model = new Model(teams, fixtureCount, basePoints, baseGoalDifference, baseGoalsFor,
+                homeIndex, awayIndex, homeExpLambda, awayExpLambda);
+
+        int workers = Math.max(1, Math.min(parallelism, iterations / BATCH + 1));
+        long deadline = System.nanoTime() + budgetMs * 1_000_000L;
+        SplittableRandom root = new SplittableRandom();
+
+        List<Future<Worker>> tasks = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            int quota = iterations / workers + (w < iterations % workers ? 1 : 0);
+            Worker worker = new Worker(model, root.split(), quota, deadline);
+            tasks.add(pool.submit(worker, worker));
+        }
+
+        long[] titles = new long[teams];
+        long[] topZone = new long[teams];
+        long[] relegation = new long[teams];
+        long[] pointsSum = new long[teams];
+        long completed = 0;
+        for (Future<Worker> task : tasks) {
+            Worker worker = await(task);
+            completed += worker.completed;
+            for (int i = 0; i < teams; i++) {
+                titles[i] += worker.titles[i];
+                topZone[i] += worker.topZone[i];
+                relegation[i] += worker.relegation[i];
+                pointsSum[i] += worker.pointsSum[i];
+            }
+        }
+
+        List<Map<String, Object>> teamResults = new ArrayList<>();
+        for (int i = 0; i < teams; i++) {
+            Map<String, Object> teamResult = new LinkedHashMap<>();
+            teamResult.put("teamId", table.get(i).getTeamId());
+            teamResult.put("currentPosition", table.get(i).getPosition());
+            teamResult.put("points", basePoints[i]);
+            teamResult.put("expectedPoints", round(completed > 0 ? (double) pointsSum[i] / completed : basePoints[i]));
+            teamResult.put("titleProbability", percent(titles[i], completed));
+            teamResult.put("topZoneProbability", percent(topZone[i], completed));
+            teamResult.put("relegationProbability", percent(relegation[i], completed));
+            teamResults.add(teamResult);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("iterationsRequested", iterations);
+        result.put("iterations", completed);
+        result.put("remainingFixtures", fixtureCount);
+        result.put("teams", teamResults);
+        result.put("probabilities", titlesByTeam(table, titles, completed));
+        return result;
+    }
+
+    private static Worker await(Future<Worker> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Simulation failed", e.getCause());
+        }
+    }
+
+    private static Map<Long, Double> titlesByTeam(List<Standing> table, long[] titles, long completed) {
+        Map<Long, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < table.size(); i++) {
+            result.put(table.get(i).getTeamId(), percent(titles[i], completed));
+        }
+        return result;
+    }
+
+    private static String fixturesSignature(List<FixtureRow> fixtures) {
+        long hash = fixtures.size();
+        for (FixtureRow fixture : fixtures) {
+            hash = hash * 31 + fixture.id();
+        }
+        return Long.toHexString(hash);
+    }
+
+    private static double percent(long count, long total) {
+        return total > 0 ? round(count * 100.0 / total) : 0.0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    // Неизменяемые входные данные, общие для всех потоков
+    private record Model(int teams, int fixtures,
+                         int[] basePoints, int[] baseGoalDifference, int[] baseGoalsFor,
+                         int[] homeIndex, int[] awayIndex,
+                         double[] homeExpLambda, double[] awayExpLambda) {
+    }
+
+    // Поток симуляции: все буферы выделяются один раз, внутренний цикл без аллокаций
+    private static final class Worker implements Runnable {
+
+        private final Model model;
+        private final SplittableRandom random;
+        private final int quota;
+        private final long deadline;
+
+        private final int[] points;
+        private final int[] goalDifference;
+        private final int[] goalsFor;
+        private final long[] sortKeys;
+
+        final long[] titles;
+        final long[] topZone;
+        final long[] relegation;
+        final long[] pointsSum;
+        long completed;
+
+        Worker(Model model, SplittableRandom random, int quota, long deadline) {
+            this.model = model;
+            this.random = random;
+            this.quota = quota;
+            this.deadline = deadline;
+            this.points = new int[model.teams()];
+            this.goalDifference = new int[model.teams()];
+            this.goalsFor = new int[model.teams()];
+            this.sortKeys = new long[model.teams()];
+            this.titles = new long[model.teams()];
+            this.topZone = new long[model.teams()];
+            this.relegation = new long[model.teams()];
+            this.pointsSum = new long[model.teams()];
+        }
+
+        @Override
+        public void run() {
+            int teams = model.teams();
+            while (completed < quota) {
+                if (System.nanoTime() > deadline && completed > 0) {
+                    return; // бюджет времени исчерпан
+                }
+
+                long batchEnd = Math.min(quota, completed + BATCH);
+                for (; completed < batchEnd; completed++) {
+                    System.arraycopy(model.basePoints(), 0, points, 0, teams);
+                    System.arraycopy(model.baseGoalDifference(), 0, goalDifference, 0, teams);
+                    System.arraycopy(model.baseGoalsFor(), 0, goalsFor, 0, teams);
+
+                    playFixtures();
+                    tallySeason(teams);
+                }
+            }
+        }
+
+        private void playFixtures() {
+            for (int f = 0; f < model.fixtures(); f++) {
+                int home = model.homeIndex()[f];
+                int away = model.awayIndex()[f];
+                int homeGoals = poisson(model.homeExpLambda()[f]);
+                int awayGoals = poisson(model.awayExpLambda()[f]);
+
+                goalsFor[home] += homeGoals;
+                goalsFor[away] += awayGoals;
+                goalDifference[home] += homeGoals - awayGoals;
+                goalDifference[away] += awayGoals - homeGoals;
+
+                if (homeGoals > awayGoals) {
+                    points[home] += 3;
+                } else if (homeGoals < awayGoals) {
+                    points[away] += 3;
+                } else {
+                    points[home]++;
+                    points[away]++;
+                }
+            }
+        }
+
+        // Итоговая таблица: ключ (очки, разница, забитые, индекс) упакован в long и сортируется как примитив
+        private void tallySeason(int teams) {
+            for (int i = 0; i < teams; i++) {
+                sortKeys[i] = ((long) clamp(points[i], 0, 0xFFFF) << 47)
+                        | ((long) clamp(goalDifference[i] + 0x8000, 0, 0xFFFF) << 31)
+                        | ((long) clamp(goalsFor[i], 0, 0xFFFF) << 15)
+                        | (0x7FFF - i);
+                pointsSum[i] += points[i];
+            }
+            Arrays.sort(sortKeys, 0, teams);
+
+            for (int place = 0; place < teams; place++) {
+                int team = 0x7FFF - (int) (sortKeys[teams - 1 - place] & 0x7FFF);
+                if (place == 0) {
+                    titles[team]++;
+                }
+                if (place < TOP_ZONE) {
+                    topZone[team]++;
+                }
+                if (place >= teams - RELEGATION_ZONE) {
+                    relegation[team]++;
+                }
+            }
+        }
+
+        // Алгоритм Кнута: достаточно быстрый для футбольных интенсивностей (lambda ~ 1-3)
+        private int poisson(double expLambda) {
+            int k = 0;
+            double p = random.nextDouble();
+            while (p > expLambda) {
+                k++;
+                p *= random.nextDouble();
+            }
+            return k;
+        }
+
+        private static int clamp(int value, int min, int max) {
+            return Math.max(min, Math.min(max, value));
+        }
+    }
+}
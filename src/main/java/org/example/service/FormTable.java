@@ -0,0 +1,305 @@
+package org.example.service;
+
+import org.example.dto.DatedMatchResult;
+import org.example.dto.FormRow;
+import org.example.repository.MatchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Таблица формы в памяти: для каждой команды - кольцевой буфер последних app.form.capacity результатов,
+// упорядоченных по времени матча. Новый результат обычно самый поздний и записывается за O(1) на место старейшего;
+// результат задним числом вставляется сдвигом внутри буфера.
+// Исправление или удаление завершённого матча перечитывает буферы его команд из БД.
+// Чтение из БД идёт без блокировки; изменения, пришедшие за это время, применяются повторно
+// к прочитанным буферам перед заменой (добавление и удаление результата идемпотентны).
+@Component
+public class FormTable {
+
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+
+    private static final Comparator<FormRow> ORDER = Comparator
+            .comparing(FormRow::points, Comparator.reverseOrder())
+            .thenComparing(row -> row.goalsFor() - row.goalsAgainst(), Comparator.reverseOrder())
+            .thenComparing(FormRow::goalsFor, Comparator.reverseOrder())
+            .thenComparing(FormRow::teamId);
+
+    // Результаты одной команды; логический индекс 0 - самый старый
+    private static final class Ring {
+        final long[] matchIds;
+        final long[] kickoffs;
+        final int[] goalsFor;
+        final int[] goalsAgainst;
+        int head;
+        int size;
+
+        Ring(int capacity) {
+            matchIds = new long[capacity];
+            kickoffs = new long[capacity];
+            goalsFor = new int[capacity];
+            goalsAgainst = new int[capacity];
+        }
+
+        int slot(int index) {
+            return (head + index) % matchIds.length;
+        }
+
+        void add(long matchId, long kickoff, int scored, int conceded) {
+            remove(matchId);
+            if (size == matchIds.length) {
+                if (laterThan(slot(0), kickoff, matchId)) {
+                    return; // старше всех хранимых - в форму не попадает
+                }
+                head = slot(1);
+                size--;
+            }
+
+            int index = size++;
+            while (index > 0 && laterThan(slot(index - 1), kickoff, matchId)) {
+                copy(slot(index - 1), slot(index));
+                index--;
+            }
+            int target = slot(index);
+            matchIds[target] = matchId;
+            kickoffs[target] = kickoff;
+            goalsFor[target] = scored;
+            goalsAgainst[target] = conceded;
+        }
+
+        void remove(long matchId) {
+            for (int index = size - 1; index >= 0; index--) {
+                if (matchIds[slot(index)] == matchId) {
+                    for (int i = index; i < size - 1; i++) {
+                        copy(slot(i + 1), slot(i));
+                    }
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        // Матч в ячейке позже (kickoff, matchId)
+        boolean laterThan(int slot, long kickoff, long matchId) {
+            return kickoffs[slot] > kickoff || (kickoffs[slot] == kickoff && matchIds[slot] > matchId);
+        }
+
+        void copy(int from, int to) {
+            matchIds[to] = matchIds[from];
+            kickoffs[to] = kickoffs[from];
+            goalsFor[to] = goalsFor[from];
+            goalsAgainst[to] = goalsAgainst[from];
+        }
+    }
+
+    private final MatchRepository matchRepository;
+    private final int capacity;
+    private final int defaultSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, Ring> byTeam = new HashMap<>();
+    // Изменения, пришедшие во время загрузок из БД; очищаются, когда идущих загрузок не остаётся
+    private final List<Consumer<Map<Long, Ring>>> changesDuringLoad = new ArrayList<>();
+    private int activeLoads;
+
+    public FormTable(MatchRepository matchRepository,
+                     @Value("${app.form.capacity:10}") int capacity,
+                     @Value("${app.form.default-size:5}") int defaultSize) {
+        if (capacity <= 0 || defaultSize <= 0 || defaultSize > capacity) {
+            throw new IllegalStateException("app.form.default-size must be between 1 and app.form.capacity ("
+                    + capacity + "), got " + defaultSize);
+        }
+        this.matchRepository = matchRepository;
+        this.capacity = capacity;
+        this.defaultSize = defaultSize;
+    }
+
+    // Заполнение из БД: все завершённые матчи порциями по ID
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        int firstChange = startLoad();
+        Map<Long, Ring> loaded = new HashMap<>();
+        try {
+            long lastId = 0;
+            while (true) {
+                List<DatedMatchResult> chunk = matchRepository.findFinishedDatedResultsAfter(lastId,
+                        PageRequest.of(0, LOAD_CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                chunk.forEach(result -> addLocked(loaded, result));
+                lastId = chunk.get(chunk.size() - 1).id();
+            }
+        } catch (RuntimeException e) {
+            finishLoad(null);
+            throw e;
+        }
+        finishLoad(() -> {
+            replayChanges(firstChange, loaded);
+            byTeam = loaded;
+        });
+    }
+
+    // Учесть завершённые матчи (вызывается после коммита)
+    public void addResults(Collection<DatedMatchResult> results) {
+        apply(rings -> results.forEach(result -> addLocked(rings, result)));
+    }
+
+    // Перечитать буферы команд из БД (результат матча исправлен или матч удалён)
+    public void reloadTeams(Collection<Long> teamIds) {
+        for (Long teamId : teamIds) {
+            int firstChange = startLoad();
+            List<DatedMatchResult> recent;
+            try {
+                recent = matchRepository.findRecentFinishedResultsByTeamId(teamId, PageRequest.of(0, capacity));
+            } catch (RuntimeException e) {
+                finishLoad(null);
+                throw e;
+            }
+            finishLoad(() -> {
+                Ring ring = new Ring(capacity);
+                recent.forEach(result -> addToRing(ring, teamId, result));
+                // Изменения за время чтения применяются к буферу команды (буферы других команд отбрасываются)
+                Map<Long, Ring> reloaded = new HashMap<>();
+                reloaded.put(teamId, ring);
+                replayChanges(firstChange, reloaded);
+                Ring current = reloaded.get(teamId);
+                if (current != null && current.size > 0) {
+                    byTeam.put(teamId, current);
+                } else {
+                    byTeam.remove(teamId);
+                }
+            });
+        }
+    }
+
+    public void removeTeam(Long teamId) {
+        apply(rings -> rings.remove(teamId));
+    }
+
+    // Изменение применяется к текущим буферам и, если идёт загрузка, запоминается для повторного применения
+    private void apply(Consumer<Map<Long, Ring>> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(byTeam);
+            if (activeLoads > 0) {
+                changesDuringLoad.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Начало загрузки: номер первого изменения, которое придётся применить повторно
+    private int startLoad() {
+        lock.writeLock().lock();
+        try {
+            activeLoads++;
+            return changesDuringLoad.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Завершение загрузки под блокировкой: swap (null - загрузка не удалась) видит все изменения с её начала
+    private void finishLoad(Runnable swap) {
+        lock.writeLock().lock();
+        try {
+            if (swap != null) {
+                swap.run();
+            }
+            if (--activeLoads == 0) {
+                changesDuringLoad.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replayChanges(int firstChange, Map<Long, Ring> rings) {
+        for (int i = firstChange; i < changesDuringLoad.size(); i++) {
+            changesDuringLoad.get(i).accept(rings);
+        }
+    }
+
+    // Таблица по последним last матчам каждой команды (null - app.form.default-size):
+    // очки, разница, забитые, при равенстве - ID команды
+    public List<FormRow> getTable(Integer last) {
+        int size = last != null ? last : defaultSize;
+        if (size <= 0 || size > capacity) {
+            throw new RuntimeException("last must be between 1 and " + capacity);
+        }
+
+        List<FormRow> rows;
+        lock.readLock().lock();
+        try {
+            rows = new ArrayList<>(byTeam.size());
+            byTeam.forEach((teamId, ring) -> rows.add(toRow(teamId, ring, size)));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        rows.sort(ORDER);
+        List<FormRow> ranked = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            FormRow row = rows.get(i);
+            ranked.add(new FormRow(i + 1, row.teamId(), row.matchesPlayed(), row.wins(), row.draws(), row.losses(),
+                    row.goalsFor(), row.goalsAgainst(), row.points(), row.form()));
+        }
+        return ranked;
+    }
+
+    private static FormRow toRow(Long teamId, Ring ring, int last) {
+        int count = Math.min(last, ring.size);
+        int wins = 0;
+        int draws = 0;
+        int losses = 0;
+        int goalsFor = 0;
+        int goalsAgainst = 0;
+        StringBuilder form = new StringBuilder(count);
+        for (int index = ring.size - 1; index >= ring.size - count; index--) {
+            int slot = ring.slot(index);
+            int scored = ring.goalsFor[slot];
+            int conceded = ring.goalsAgainst[slot];
+            goalsFor += scored;
+            goalsAgainst += conceded;
+            if (scored > conceded) {
+                wins++;
+                form.append('W');
+            } else if (scored < conceded) {
+                losses++;
+                form.append('L');
+            } else {
+                draws++;
+                form.append('D');
+            }
+        }
+        return new FormRow(null, teamId, count, wins, draws, losses, goalsFor, goalsAgainst,
+                wins * 3 + draws, form.toString());
+    }
+
+    private void addLocked(Map<Long, Ring> rings, DatedMatchResult result) {
+        addToRing(rings.computeIfAbsent(result.homeTeamId(), id -> new Ring(capacity)), result.homeTeamId(), result);
+        addToRing(rings.computeIfAbsent(result.awayTeamId(), id -> new Ring(capacity)), result.awayTeamId(), result);
+    }
+
+    private static void addToRing(Ring ring, Long teamId, DatedMatchResult result) {
+        long kickoff = result.matchDate().toEpochSecond(ZoneOffset.UTC);
+        boolean home = teamId.equals(result.homeTeamId());
+        ring.add(result.id(), kickoff,
+                home ? result.homeScore() : result.awayScore(),
+                home ? result.awayScore() : result.homeScore());
+    }
+}
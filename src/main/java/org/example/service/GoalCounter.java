@@ -0,0 +1,293 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Счётчики голов с отложенной записью (app.goals.mode = write-behind).
+// Гол - инкремент LongAdder игрока в памяти без обращения к БД; раз в app.goals.flush-interval-ms
+// накопленные дельты записываются одной пачкой атомарных UPDATE (goals_scored = goals_scored + ?).
+// Чтение игрока добавляет к значению из БД ещё не записанные дельты.
+// Переходы дельты (накопленная -> записываемая -> в БД) выполняются под блокировкой записи visibility:
+// коммит порции и снятие её из записываемых - один шаг. Чтение через read() держит блокировку чтения
+// на время запроса к БД и pendingFor, поэтому видит либо старое значение БД вместе с дельтой, либо новое без неё.
+// При аварийной остановке теряются голы за последний интервал; write-through пишет каждый гол сразу.
+@Component
+public class GoalCounter {
+
+    public static final String WRITE_BEHIND = "write-behind";
+    public static final String WRITE_THROUGH = "write-through";
+
+    private static final String UPDATE_SQL =
+            "UPDATE players SET goals_scored = COALESCE(goals_scored, 0) + ? WHERE id = ?";
+    private static final String REPLACE_SQL = "UPDATE players SET goals_scored = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    // Отдельная транзакция: запись может идти из afterCommit, где соединение завершённой транзакции ещё привязано к потоку
+    private final TransactionDefinition newTransaction =
+            new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    private final boolean writeBehind;
+    private final boolean flushOnShutdown;
+
+    // Накопленные голы по игрокам (только игроки с ещё не записанными голами)
+    // и дельты, которые сейчас записываются в БД (меняются только под блокировкой записи visibility)
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Long> inFlight = new HashMap<>();
+    // Одна запись в БД за раз (порция, явное значение, удаление)
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Чтение и инкременты - блокировка чтения; переходы дельты между pending, inFlight и БД - блокировка записи
+    private final ReadWriteLock visibility = new ReentrantReadWriteLock();
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedGoals = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong lastFlushMs = new AtomicLong();
+    private volatile String lastError;
+
+    public GoalCounter(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${app.goals.mode:" + WRITE_BEHIND + "}") String mode,
+                       @Value("${app.goals.flush-on-shutdown:true}") boolean flushOnShutdown) {
+        if (!WRITE_BEHIND.equals(mode) && !WRITE_THROUGH.equals(mode)) {
+            throw new IllegalStateException("app.goals.mode must be " + WRITE_BEHIND + " or " + WRITE_THROUGH
+                    + ", got " + mode);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionTemplate.getTransactionManager();
+        this.writeBehind = WRITE_BEHIND.equals(mode);
+        this.flushOnShutdown = flushOnShutdown;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    // Под блокировкой чтения: перенос накопленного в записываемые не теряет параллельные инкременты
+    public void add(Long playerId, long goals) {
+        visibility.readLock().lock();
+        try {
+            pending.computeIfAbsent(playerId, id -> new LongAdder()).add(goals);
+        } finally {
+            visibility.readLock().unlock();
+        }
+    }
+
+    // Прочитать значения из БД так, чтобы ни одна порция не закоммитилась между этим чтением
+    // и pendingFor/pendingSnapshot внутри reader: сумма не удваивает и не теряет записываемую дельту
+    public <T> T read(Supplier<T> reader) {
+        visibility.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            visibility.readLock().unlock();
+        }
+    }
+
+    // Голы игрока, ещё не попавшие в БД: накопленные и записываемые сейчас.
+    // Точная сумма со значением из БД - только если оба прочитаны внутри read()
+    public long pendingFor(Long playerId) {
+        visibility.readLock().lock();
+        try {
+            LongAdder adder = pending.get(playerId);
+            long goals = adder != null ? adder.sum() : 0;
+            Long writing = inFlight.get(playerId);
+            return writing != null ? goals + writing : goals;
+        } finally {
+            visibility.readLock().unlock();
+        }
+    }
+
+    // Все ещё не записанные голы: игрок -> голы (копия на момент вызова)
+    public Map<Long, Long> pendingSnapshot() {
+        visibility.readLock().lock();
+        try {
+            Map<Long, Long> snapshot = new HashMap<>();
+            pending.forEach((playerId, adder) -> {
+                long goals = adder.sum();
+                if (goals != 0) {
+                    snapshot.put(playerId, goals);
+                }
+            });
+            inFlight.forEach((playerId, goals) -> snapshot.merge(playerId, goals, Long::sum));
+            return snapshot;
+        } finally {
+            visibility.readLock().unlock();
+        }
+    }
+
+    // Отбросить накопленное (игрок удалён; вызывается после коммита удаления).
+    // После записи текущей порции: её дельта уже в БД (строки игрока нет - UPDATE ничего не изменил)
+    public void discard(Long playerId) {
+        flushLock.lock();
+        try {
+            visibility.writeLock().lock();
+            try {
+                pending.remove(playerId);
+            } finally {
+                visibility.writeLock().unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Явно заданный счётчик игрока. Вызывается после коммита изменения игрока.
+    // Под блокировкой записи в БД: порция не ложится ни между сбросом и записью, ни поверх нового значения;
+    // коммит значения и сброс накопленного видны читателям одновременно
+    public void replace(Long playerId, int goals) {
+        flushLock.lock();
+        try {
+            TransactionStatus status = transactionManager.getTransaction(newTransaction);
+            try {
+                jdbcTemplate.update(REPLACE_SQL, goals, playerId);
+            } catch (RuntimeException e) {
+                transactionManager.rollback(status);
+                throw e;
+            }
+            visibility.writeLock().lock();
+            try {
+                transactionManager.commit(status);
+                pending.remove(playerId);
+            } finally {
+                visibility.writeLock().unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.goals.flush-interval-ms:500}")
+    public void flushScheduled() {
+        if (writeBehind) {
+            flush();
+        }
+    }
+
+    // Записать накопленные дельты одной транзакцией; игроки - в порядке ID.
+    // UPDATE выполняются без блокировки visibility, коммит и снятие порции из записываемых - под ней.
+    // При ошибке дельты возвращаются в накопленные тем же шагом и уйдут со следующей порцией
+    public int flush() {
+        flushLock.lock();
+        try {
+            TreeMap<Long, Long> batch = new TreeMap<>();
+            visibility.writeLock().lock();
+            try {
+                pending.forEach((playerId, adder) -> {
+                    long goals = adder.sum();
+                    if (goals != 0) {
+                        batch.put(playerId, goals);
+                    }
+                });
+                // Инкременты идут под блокировкой чтения, поэтому записи целиком переходят в записываемые
+                pending.clear();
+                inFlight.putAll(batch);
+            } finally {
+                visibility.writeLock().unlock();
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            long startedAt = System.currentTimeMillis();
+            List<Object[]> updates = new ArrayList<>(batch.size());
+            batch.forEach((playerId, goals) -> updates.add(new Object[]{goals, playerId}));
+            TransactionStatus status = null;
+            try {
+                status = transactionManager.getTransaction(newTransaction);
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            } catch (RuntimeException e) {
+                if (status != null) {
+                    transactionManager.rollback(status);
+                }
+                return failed(batch, e);
+            }
+
+            visibility.writeLock().lock();
+            try {
+                transactionManager.commit(status);
+                inFlight.clear();
+            } catch (RuntimeException e) {
+                return failedLocked(batch, e);
+            } finally {
+                visibility.writeLock().unlock();
+            }
+            flushes.increment();
+            batch.values().forEach(flushedGoals::add);
+            lastFlushMs.set(System.currentTimeMillis() - startedAt);
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int failed(Map<Long, Long> batch, RuntimeException e) {
+        visibility.writeLock().lock();
+        try {
+            return failedLocked(batch, e);
+        } finally {
+            visibility.writeLock().unlock();
+        }
+    }
+
+    // Порция не записана: дельты переходят из записываемых обратно в накопленные
+    private int failedLocked(Map<Long, Long> batch, RuntimeException e) {
+        errors.increment();
+        lastError = e.getMessage();
+        inFlight.clear();
+        batch.forEach((playerId, goals) -> pending.computeIfAbsent(playerId, id -> new LongAdder()).add(goals));
+        return 0;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (writeBehind && flushOnShutdown) {
+            flush();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long pendingGoals = 0;
+        int pendingPlayers = 0;
+        for (LongAdder adder : pending.values()) {
+            long goals = adder.sum();
+            if (goals != 0) {
+                pendingGoals += goals;
+                pendingPlayers++;
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", writeBehind ? WRITE_BEHIND : WRITE_THROUGH);
+        stats.put("flushOnShutdown", flushOnShutdown);
+        stats.put("pendingPlayers", pendingPlayers);
+        stats.put("pendingGoals", pendingGoals);
+        stats.put("flushes", flushes.sum());
+        stats.put("flushedGoals", flushedGoals.sum());
+        stats.put("lastFlushMs", lastFlushMs.get());
+        stats.put("errors", errors.sum());
+        stats.put("lastError", lastError);
+        return stats;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.service;
+
+import org.example.model.Standing;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Агрегаты лиги, поддерживаемые инкрементально: суммы матчей и голов,
+// лучшая атака (максимум забитых) и лучшая защита (минимум пропущенных) через упорядоченные деревья.
+@Component
+public class LeagueAggregates {
+
+    private static final int PLAYED = 0;
+    private static final int GOALS_FOR = 1;
+    private static final int GOALS_AGAINST = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, int[]> byTeam = new HashMap<>();
+    // значение -> команды с этим значением (при равенстве берётся меньший ID)
+    private final TreeMap<Integer, TreeSet<Long>> goalsForIndex = new TreeMap<>();
+    private final TreeMap<Integer, TreeSet<Long>> goalsAgainstIndex = new TreeMap<>();
+    private long totalPlayed;
+    private long totalGoals;
+
+    public record Totals(int teams, long totalMatches, long totalGoals,
+                         Long bestAttackTeamId, int bestAttackGoals,
+                         Long bestDefenseTeamId, int bestDefenseGoalsConceded) {
+    }
+
+    public void rebuild(List<Standing> standings) {
+        lock.writeLock().lock();
+        try {
+            byTeam.clear();
+            goalsForIndex.clear();
+            goalsAgainstIndex.clear();
+            totalPlayed = 0;
+            totalGoals = 0;
+            standings.forEach(this::putLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Standing standing) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(standing.getTeamId());
+            putLocked(standing);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long teamId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(teamId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // O(1) (минимум/максимум дерева - O(log n))
+    public Totals totals() {
+        lock.readLock().lock();
+        try {
+            Map.Entry<Integer, TreeSet<Long>> bestAttack = goalsForIndex.lastEntry();
+            Map.Entry<Integer, TreeSet<Long>> bestDefense = goalsAgainstIndex.firstEntry();
+            return new Totals(byTeam.size(), totalPlayed / 2, totalGoals,
+                    bestAttack != null ? bestAttack.getValue().first() : null,
+                    bestAttack != null ? bestAttack.getKey() : 0,
+                    bestDefense != null ? bestDefense.getValue().first() : null,
+                    bestDefense != null ? bestDefense.getKey() : 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Сверка с полным пересчётом; пустой результат - расхождений нет
+    public Map<String, Object> verify(List<Standing> standings) {
+        LeagueAggregates recomputed = new LeagueAggregates();
+        recomputed.rebuild(standings);
+        Totals expected = recomputed.totals();
+        Totals actual = totals();
+
+        Map<String, Object> mismatches = new LinkedHashMap<>();
+        compare(mismatches, "teams", actual.teams(), expected.teams());
+        compare(mismatches, "totalMatches", actual.totalMatches(), expected.totalMatches());
+        compare(mismatches, "totalGoals", actual.totalGoals(), expected.totalGoals());
+        compare(mismatches, "bestAttackGoals", actual.bestAttackGoals(), expected.bestAttackGoals());
+        compare(mismatches, "bestDefenseGoalsConceded", actual.bestDefenseGoalsConceded(), expected.bestDefenseGoalsConceded());
+        return mismatches;
+    }
+
+    private static void compare(Map<String, Object> mismatches, String name, long actual, long expected) {
+        if (actual != expected) {
+            mismatches.put(name, Map.of("incremental", actual, "recomputed", expected));
+        }
+    }
+
+    private void putLocked(Standing standing) {
+        int[] values = {
+                valueOrZero(standing.getMatchesPlayed()),
+                valueOrZero(standing.getGoalsFor()),
+                valueOrZero(standing.getGoalsAgainst())
+        };
+        byTeam.put(standing.getTeamId(), values);
+        totalPlayed += values[PLAYED];
+        totalGoals += values[GOALS_FOR];
+        goalsForIndex.computeIfAbsent(values[GOALS_FOR], k -> new TreeSet<>()).add(standing.getTeamId());
+        goalsAgainstIndex.computeIfAbsent(values[GOALS_AGAINST], k -> new TreeSet<>()).add(standing.getTeamId());
+    }
+
+    private void removeLocked(Long teamId) {
+        int[] values = byTeam.remove(teamId);
+        if (values == null) {
+            return;
+        }
+        totalPlayed -= values[PLAYED];
+        totalGoals -= values[GOALS_FOR];
+        removeFromIndex(goalsForIndex, values[GOALS_FOR], teamId);
+        removeFromIndex(goalsAgainstIndex, values[GOALS_AGAINST], teamId);
+    }
+
+    private static void removeFromIndex(TreeMap<Integer, TreeSet<Long>> index, int value, Long teamId) {
+        TreeSet<Long> teams = index.get(value);
+        if (teams != null) {
+            teams.remove(teamId);
+            if (teams.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,286 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Рассылка live-событий (счёт, статусы матчей, позиции в таблице) по Server-Sent Events.
+// Событие сериализуется один раз в готовый кадр, который кладётся в ограниченную очередь каждого подписчика.
+// Очереди разбирает общий пул отправителей; подписчик, не успевающий читать (очередь переполнена), отключается.
+// Отправка кадра ограничена SEND_TIMEOUT_MS: подписчик, чей сокет не принимает данные дольше, отключается,
+// а пул получает запасной поток взамен зависшего, пока тот не вернётся из записи (таймаут записи Tomcat) -
+// зависшие сокеты не занимают отправителей здоровых подписчиков.
+@Component
+public class LiveEventHub {
+
+    public static final String MATCH_SCORE = "match-score";
+    public static final String MATCH_STATUS = "match-status";
+    public static final String STANDINGS = "standings";
+
+    private static final int BUFFER_CAPACITY = 64;
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final long SEND_TIMEOUT_MS = 2_000;
+    private static final long WATCHDOG_INTERVAL_MS = 250;
+    private static final int MAX_STALLED_SENDERS = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Подписчики, чьи очереди сейчас разбираются (в том числе уже отключённые при переполнении)
+    private final Set<Subscriber> inDrain = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor senders;
+    private final int baseSenders = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private int stalledSenders;
+    private final ScheduledExecutorService heartbeat;
+
+    private final AtomicLong eventIds = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder droppedSlow = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    private final LongAdder sendTimeouts = new LongAdder();
+
+    public LiveEventHub(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+
+        AtomicInteger senderNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(baseSenders, baseSenders, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "live-events-" + senderNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-events-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Комментарий-пинг: держит соединение через прокси и выявляет отвалившихся клиентов
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        heartbeat.scheduleAtFixedRate(() -> subscribers.forEach(s -> s.offer(ping)),
+                HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        heartbeat.scheduleWithFixedDelay(this::dropStalledSubscribers,
+                WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // matchId = null - все события; иначе только события матча и изменения таблицы
+    public SseEmitter subscribe(Long matchId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter, matchId);
+
+        emitter.onCompletion(() -> subscriber.close(false));
+        emitter.onTimeout(() -> subscriber.close(false));
+        emitter.onError(e -> subscriber.close(false));
+
+        subscribers.add(subscriber);
+        subscriber.offer(SseEmitter.event().name("connected").data("{}", MediaType.APPLICATION_JSON).build());
+        return emitter;
+    }
+
+    // matchId = null - событие для всех подписчиков
+    public void publish(String eventName, Long matchId, Object payload) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize live event " + eventName, e);
+        }
+
+        Set<DataWithMediaType> frame = SseEmitter.event()
+                .id(Long.toString(eventIds.incrementAndGet()))
+                .name(eventName)
+                .data(json, MediaType.APPLICATION_JSON)
+                .build();
+        published.increment();
+
+        for (Subscriber subscriber : subscribers) {
+            if (matchId == null || subscriber.matchId == null || subscriber.matchId.equals(matchId)) {
+                subscriber.offer(frame);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("published", published.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("droppedSlowSubscribers", droppedSlow.sum());
+        stats.put("disconnected", disconnected.sum());
+        stats.put("sendTimeouts", sendTimeouts.sum());
+        stats.put("stalledSenders", stalledSenderCount());
+        stats.put("bufferCapacity", BUFFER_CAPACITY);
+        return stats;
+    }
+
+    // Подписчики, чья отправка идёт дольше SEND_TIMEOUT_MS, отключаются; занятый ими поток заменяется запасным
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : inDrain) {
+            long startedAt = subscriber.sendStartedAt;
+            if (startedAt != 0 && now - startedAt > TimeUnit.MILLISECONDS.toNanos(SEND_TIMEOUT_MS)) {
+                addStalledSender(subscriber);
+                subscriber.close(true);
+            }
+        }
+    }
+
+    // Проверка под тем же монитором, что и освобождение: запасной поток выдаётся только ещё зависшей отправке
+    private synchronized void addStalledSender(Subscriber subscriber) {
+        if (subscriber.sendStartedAt != 0 && !subscriber.holdsSpareSender && stalledSenders < MAX_STALLED_SENDERS) {
+            subscriber.holdsSpareSender = true;
+            sendTimeouts.increment();
+            stalledSenders++;
+            resizeSenders();
+        }
+    }
+
+    // Зависшая отправка завершилась (ошибкой записи или таймаутом Tomcat) - запасной поток больше не нужен
+    private synchronized void releaseStalledSender(Subscriber subscriber) {
+        if (subscriber.holdsSpareSender) {
+            subscriber.holdsSpareSender = false;
+            stalledSenders--;
+            resizeSenders();
+        }
+    }
+
+    private void resizeSenders() {
+        int size = baseSenders + stalledSenders;
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private synchronized int stalledSenderCount() {
+        return stalledSenders;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        subscribers.forEach(s -> s.close(false));
+        senders.shutdownNow();
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Long matchId;
+        private final BlockingQueue<Set<DataWithMediaType>> queue = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Начало текущей отправки (System.nanoTime), 0 - отправки нет
+        private volatile long sendStartedAt;
+        // Пока отправка висит, пул держит вместо неё запасной поток (меняется под монитором хаба)
+        private volatile boolean holdsSpareSender;
+
+        Subscriber(SseEmitter emitter, Long matchId) {
+            this.emitter = emitter;
+            this.matchId = matchId;
+        }
+
+        void offer(Set<DataWithMediaType> frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                close(true); // медленный клиент: не копим события, клиент переподключится
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.set(false); // пул остановлен
+                }
+            }
+        }
+
+        // Не более одного отправителя на подписчика, порядок кадров сохраняется
+        private void drain() {
+            inDrain.add(this);
+            try {
+                Set<DataWithMediaType> frame;
+                while (!closed.get() && (frame = queue.poll()) != null) {
+                    sendStartedAt = System.nanoTime();
+                    emitter.send(frame);
+                    sendStartedAt = 0;
+                    delivered.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                close(false);
+            } finally {
+                sendStartedAt = 0;
+                if (holdsSpareSender) {
+                    releaseStalledSender(this);
+                }
+                inDrain.remove(this);
+                draining.set(false);
+            }
+
+            if (closed.get()) {
+                complete();
+            } else if (!queue.isEmpty()) {
+                // Кадр мог прийти между последним poll и сбросом флага
+                scheduleDrain();
+            }
+        }
+
+        void close(boolean slow) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.remove(this);
+            queue.clear();
+            if (slow) {
+                droppedSlow.increment();
+            } else {
+                disconnected.increment();
+            }
+            // Соединение закрывается в потоке отправителя: publish не ждёт сокет медленного клиента
+            scheduleDrain();
+        }
+
+        private void complete() {
+            try {
+                emitter.complete();
+            } catch (RuntimeException ignored) {
+                // соединение уже закрыто
+            }
+        }
+    }
+}
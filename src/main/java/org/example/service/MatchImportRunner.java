@@ -0,0 +1,73 @@
+package org.example.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// Импорт матчей из файла при запуске из командной строки:
+//   java -jar app.jar --spring.main.web-application-type=none --import-matches=seasons.csv [--import-source=seasons] [--import-chunk-size=5000]
+// Формат определяется по расширению (.csv, иначе NDJSON). После импорта отчёт выводится в stdout и приложение завершается.
+@Component
+public class MatchImportRunner implements ApplicationRunner {
+
+    private static final String FILE_OPTION = "import-matches";
+    private static final String SOURCE_OPTION = "import-source";
+    private static final String CHUNK_SIZE_OPTION = "import-chunk-size";
+
+    private final MatchImportService matchImportService;
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+
+    public MatchImportRunner(MatchImportService matchImportService,
+                             ObjectMapper objectMapper,
+                             ConfigurableApplicationContext context) {
+        this.matchImportService = matchImportService;
+        this.objectMapper = objectMapper;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        String file = singleOption(args, FILE_OPTION);
+        if (file == null) {
+            return;
+        }
+
+        Path path = Path.of(file);
+        String format = path.getFileName().toString().toLowerCase().endsWith(".csv")
+                ? MatchImportService.FORMAT_CSV : MatchImportService.FORMAT_NDJSON;
+        String chunkSize = singleOption(args, CHUNK_SIZE_OPTION);
+
+        int exitCode;
+        try (InputStream input = Files.newInputStream(path)) {
+            Map<String, Object> report = matchImportService.importMatches(input, format,
+                    singleOption(args, SOURCE_OPTION), chunkSize != null ? Integer.valueOf(chunkSize) : null);
+            System.out.println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+            exitCode = 0;
+        } catch (IOException e) {
+            System.err.println("Cannot read import file: " + e.getMessage());
+            exitCode = 1;
+        } catch (RuntimeException e) {
+            System.err.println("Match import failed: " + e.getMessage());
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private static String singleOption(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+}
@@ -0,0 +1,568 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.DatabaseDialect;
+import org.example.config.SequenceIds;
+import org.example.dto.MatchResultRow;
+import org.example.model.ImportCheckpoint;
+import org.example.repository.ImportCheckpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Бизнес-операция: потоковый импорт исторических матчей из CSV или NDJSON.
+// Файл читается построчно; ID команд и арен сверяются с множествами ID в памяти.
+// Строки пишутся пакетами JDBC порциями (app.import.chunk-size), каждая порция - отдельная транзакция
+// вместе с отметкой прогресса источника, поэтому прерванный импорт продолжается с места остановки.
+// Матч, который уже есть в БД (те же команды и время начала), пропускается - повторный запуск ничего не дублирует:
+// уникальный ключ uk_matches_home_away_date проверяет сама БД (ON CONFLICT DO NOTHING / MERGE),
+// число дубликатов берётся из результата вставки.
+@Service
+public class MatchImportService {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final int MAX_SOURCE_LENGTH = 200;
+    private static final Set<String> IMPORT_STATUSES = Set.of("SCHEDULED", "FINISHED", "CANCELLED");
+
+    // Нормализованные имена полей: регистр, '_', '-' и пробелы не учитываются (home_team_id = homeTeamId)
+    private static final String HOME_TEAM = "hometeamid";
+    private static final String AWAY_TEAM = "awayteamid";
+    private static final String VENUE = "venueid";
+    private static final String MATCH_DATE = "matchdate";
+    private static final String HOME_SCORE = "hometeamscore";
+    private static final String AWAY_SCORE = "awayteamscore";
+    private static final String STATUS = "status";
+    private static final Map<String, String> ALIASES = Map.of("homescore", HOME_SCORE, "awayscore", AWAY_SCORE);
+
+    private record ImportRow(long homeTeamId, long awayTeamId, Long venueId, LocalDateTime matchDate,
+                             Integer homeScore, Integer awayScore, String status) {
+    }
+
+    // PostgreSQL: вся порция одним запросом, RETURNING возвращает ID только реально вставленных строк
+    // (счётчики пакета при reWriteBatchedInserts=true приходят как SUCCESS_NO_INFO и не годятся)
+    private static final String INSERT_POSTGRES = """
+            INSERT INTO matches (id, home_team_id, away_team_id, venue_id, match_date,
+                home_team_score, away_team_score, status)
+            SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::timestamp[],
+                ?::integer[], ?::integer[], ?::varchar[])
+            ON CONFLICT (home_team_id, away_team_id, match_date) DO NOTHING
+            RETURNING id""";
+
+    // H2: пакет MERGE, счётчик строки 1 - вставлена, 0 - такой матч уже есть
+    private static final String INSERT_H2 = """
+            MERGE INTO matches m
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT),
+                CAST(? AS TIMESTAMP), CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS VARCHAR)))
+                AS r(id, home_team_id, away_team_id, venue_id, match_date, home_team_score, away_team_score, status)
+            ON m.home_team_id = r.home_team_id AND m.away_team_id = r.away_team_id AND m.match_date = r.match_date
+            WHEN NOT MATCHED THEN INSERT (id, home_team_id, away_team_id, venue_id, match_date,
+                home_team_score, away_team_score, status)
+            VALUES (r.id, r.home_team_id, r.away_team_id, r.venue_id, r.match_date,
+                r.home_team_score, r.away_team_score, r.status)""";
+
+    // Счётчики одного запуска
+    private static final class Progress {
+        long linesRead;
+        long resumedAfterLine;
+        long inserted;
+        long duplicates;
+        long rejected;
+        long chunks;
+        final List<Map<String, Object>> rejections = new ArrayList<>();
+
+        void reject(long line, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                Map<String, Object> rejection = new LinkedHashMap<>();
+                rejection.put("line", line);
+                rejection.put("reason", reason);
+                rejections.add(rejection);
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Autowired
+    private DatabaseDialect databaseDialect;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ImportCheckpointRepository importCheckpointRepository;
+
+    @Autowired
+    private TeamStatisticsService teamStatisticsService;
+
+    @Autowired
+    private StandingHistoryService standingHistoryService;
+
+    @Autowired
+    private FormTable formTable;
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private VenueCalendar venueCalendar;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.import.chunk-size:1000}")
+    private int defaultChunkSize;
+
+    @Value("${app.import.max-chunk-size:10000}")
+    private int maxChunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // source - имя источника для продолжения после сбоя (null - без отметок прогресса)
+    public Map<String, Object> importMatches(InputStream input, String format, String source, Integer chunkSize) {
+        if (!FORMAT_CSV.equals(format) && !FORMAT_NDJSON.equals(format)) {
+            throw new RuntimeException("Unsupported import format: " + format + " (expected csv or ndjson)");
+        }
+        if (source != null && (source.isBlank() || source.length() > MAX_SOURCE_LENGTH)) {
+            throw new RuntimeException("Import source must be 1.." + MAX_SOURCE_LENGTH + " characters");
+        }
+        int batchSize = chunkSize != null ? chunkSize : defaultChunkSize;
+        if (batchSize <= 0) {
+            throw new RuntimeException("Chunk size must be positive");
+        }
+        batchSize = Math.min(batchSize, maxChunkSize);
+
+        // Импорты выполняются по одному, чтобы не делить отметки прогресса и перечитывание индексов;
+        // от дубликатов защищает уникальный ключ, а не эта проверка
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Match import is already running");
+        }
+        try {
+            return runImport(input, format, source, batchSize);
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Failed to read import data: " + e.getCause().getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<String, Object> runImport(InputStream input, String format, String source, int chunkSize) {
+        long startedAt = System.currentTimeMillis();
+
+        Set<Long> teamIds = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM teams", Long.class));
+        Set<Long> venueIds = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM venues", Long.class));
+
+        ImportCheckpoint checkpoint = source != null ? importCheckpointRepository.findById(source).orElse(null) : null;
+        long resumeAfter = checkpoint != null ? checkpoint.getLinesProcessed() : 0;
+
+        Progress progress = new Progress();
+        progress.resumedAfterLine = resumeAfter;
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16)) {
+            Map<String, Integer> columns = FORMAT_CSV.equals(format) ? readCsvHeader(reader) : null;
+
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (line <= resumeAfter) {
+                    continue; // уже импортировано прошлым запуском
+                }
+                progress.linesRead++;
+                if (text.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    Map<String, String> fields = columns != null ? csvFields(text, columns) : ndjsonFields(text);
+                    chunk.add(toRow(fields, teamIds, venueIds));
+                } catch (RuntimeException e) {
+                    progress.reject(line, e.getMessage());
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    flushChunk(chunk, source, line, false, progress);
+                    chunk.clear();
+                }
+            }
+            flushChunk(chunk, source, line, true, progress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // Индексы расписания, календарь арен и таблица формы перечитываются один раз после импорта
+        if (progress.inserted > 0) {
+            scheduleIndex.reload();
+            venueCalendar.reload();
+            formTable.reload();
+        }
+
+        long durationMs = System.currentTimeMillis() - startedAt;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("source", source);
+        report.put("format", format);
+        report.put("resumedAfterLine", progress.resumedAfterLine);
+        report.put("linesRead", progress.linesRead);
+        report.put("inserted", progress.inserted);
+        report.put("duplicates", progress.duplicates);
+        report.put("rejected", progress.rejected);
+        report.put("chunks", progress.chunks);
+        report.put("chunkSize", chunkSize);
+        report.put("durationMs", durationMs);
+        report.put("rowsPerSecond", durationMs > 0 ? progress.linesRead * 1000 / durationMs : progress.linesRead);
+        report.put("rejections", progress.rejections);
+        return report;
+    }
+
+    // Порция: вставляем пакетом, пропуская уже существующие матчи, учитываем вставленные результаты
+    // в статистике команд и сдвигаем отметку прогресса - всё в одной транзакции
+    private void flushChunk(List<ImportRow> chunk, String source, long lastLine, boolean completed, Progress progress) {
+        if (chunk.isEmpty() && source == null) {
+            return;
+        }
+
+        // Счётчики обновляются только после коммита порции
+        Integer inserted = transactionTemplate.execute(status -> {
+            List<ImportRow> fresh = chunk.isEmpty() ? List.of() : insertNew(chunk);
+
+            if (!fresh.isEmpty()) {
+                List<MatchResultRow> results = fresh.stream()
+                        .filter(row -> "FINISHED".equals(row.status()))
+                        .map(row -> new MatchResultRow(null, row.homeTeamId(), row.awayTeamId(),
+                                row.homeScore(), row.awayScore()))
+                        .toList();
+                teamStatisticsService.recordResults(results);
+                fresh.stream()
+                        .filter(row -> "FINISHED".equals(row.status()))
+                        .map(ImportRow::matchDate)
+                        .min(Comparator.naturalOrder())
+                        .ifPresent(standingHistoryService::invalidateFrom);
+            }
+
+            if (source != null) {
+                ImportCheckpoint checkpoint = importCheckpointRepository.findById(source).orElseGet(() -> {
+                    ImportCheckpoint created = new ImportCheckpoint();
+                    created.setSource(source);
+                    return created;
+                });
+                checkpoint.setLinesProcessed(lastLine);
+                checkpoint.setInserted(checkpoint.getInserted() + fresh.size());
+                checkpoint.setCompleted(completed);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                importCheckpointRepository.save(checkpoint);
+            }
+
+            return fresh.size();
+        });
+        progress.inserted += inserted;
+        progress.duplicates += chunk.size() - inserted;
+        progress.chunks++;
+    }
+
+    // Вставка порции без дубликатов по ключу (хозяева, гости, время начала); возвращает реально вставленные строки.
+    // ID выделяются на всю порцию, у пропущенных строк они просто не используются
+    private List<ImportRow> insertNew(List<ImportRow> chunk) {
+        long[] ids = sequenceIds.next("matches_seq", chunk.size());
+        List<ImportRow> fresh = new ArrayList<>(chunk.size());
+
+        if (databaseDialect.isPostgres()) {
+            Set<Long> insertedIds = new HashSet<>(jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_POSTGRES);
+                bindArrays(connection, ps, chunk, ids);
+                return ps;
+            }, (rs, rowNum) -> rs.getLong(1)));
+            for (int i = 0; i < chunk.size(); i++) {
+                if (insertedIds.contains(ids[i])) {
+                    fresh.add(chunk.get(i));
+                }
+            }
+            return fresh;
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_H2, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ImportRow row = chunk.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setLong(2, row.homeTeamId());
+                ps.setLong(3, row.awayTeamId());
+                if (row.venueId() != null) {
+                    ps.setLong(4, row.venueId());
+                } else {
+                    ps.setNull(4, Types.BIGINT);
+                }
+                ps.setTimestamp(5, Timestamp.valueOf(row.matchDate()));
+                setNullableInt(ps, 6, row.homeScore());
+                setNullableInt(ps, 7, row.awayScore());
+                ps.setString(8, row.status());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                fresh.add(chunk.get(i));
+            }
+        }
+        return fresh;
+    }
+
+    private static void bindArrays(Connection connection, PreparedStatement ps, List<ImportRow> chunk, long[] ids)
+            throws SQLException {
+        int size = chunk.size();
+        Long[] matchIds = new Long[size];
+        Long[] homeTeams = new Long[size];
+        Long[] awayTeams = new Long[size];
+        Long[] venues = new Long[size];
+        Timestamp[] dates = new Timestamp[size];
+        Integer[] homeScores = new Integer[size];
+        Integer[] awayScores = new Integer[size];
+        String[] statuses = new String[size];
+        for (int i = 0; i < size; i++) {
+            ImportRow row = chunk.get(i);
+            matchIds[i] = ids[i];
+            homeTeams[i] = row.homeTeamId();
+            awayTeams[i] = row.awayTeamId();
+            venues[i] = row.venueId();
+            dates[i] = Timestamp.valueOf(row.matchDate());
+            homeScores[i] = row.homeScore();
+            awayScores[i] = row.awayScore();
+            statuses[i] = row.status();
+        }
+        ps.setArray(1, connection.createArrayOf("bigint", matchIds));
+        ps.setArray(2, connection.createArrayOf("bigint", homeTeams));
+        ps.setArray(3, connection.createArrayOf("bigint", awayTeams));
+        ps.setArray(4, connection.createArrayOf("bigint", venues));
+        ps.setArray(5, connection.createArrayOf("timestamp", dates));
+        ps.setArray(6, connection.createArrayOf("integer", homeScores));
+        ps.setArray(7, connection.createArrayOf("integer", awayScores));
+        ps.setArray(8, connection.createArrayOf("varchar", statuses));
+    }
+
+    private static Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new RuntimeException("CSV header is missing");
+        }
+        // Маркер порядка байт в начале файла
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(normalize(names.get(i)), i);
+        }
+        for (String required : List.of(HOME_TEAM, AWAY_TEAM, MATCH_DATE)) {
+            if (!columns.containsKey(required)) {
+                throw new RuntimeException("CSV header must contain column: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static Map<String, String> csvFields(String text, Map<String, Integer> columns) {
+        List<String> values = splitCsv(text);
+        Map<String, String> fields = new HashMap<>();
+        columns.forEach((name, index) -> {
+            if (index < values.size()) {
+                fields.put(name, values.get(index));
+            }
+        });
+        return fields;
+    }
+
+    private Map<String, String> ndjsonFields(String text) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Malformed JSON: " + e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            throw new RuntimeException("JSON object expected");
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            fields.put(normalize(entry.getKey()), entry.getValue().isNull() ? null : entry.getValue().asText());
+        }
+        return fields;
+    }
+
+    private static ImportRow toRow(Map<String, String> fields, Set<Long> teamIds, Set<Long> venueIds) {
+        Long homeTeamId = parseLong(fields, HOME_TEAM);
+        Long awayTeamId = parseLong(fields, AWAY_TEAM);
+        Long venueId = parseLong(fields, VENUE);
+        Integer homeScore = parseInt(fields, HOME_SCORE);
+        Integer awayScore = parseInt(fields, AWAY_SCORE);
+
+        if (homeTeamId == null || awayTeamId == null) {
+            throw new RuntimeException("Home and away team IDs are required");
+        }
+        if (homeTeamId.equals(awayTeamId)) {
+            throw new RuntimeException("Team cannot play against itself");
+        }
+        if (!teamIds.contains(homeTeamId)) {
+            throw new RuntimeException("Home team not found with ID: " + homeTeamId);
+        }
+        if (!teamIds.contains(awayTeamId)) {
+            throw new RuntimeException("Away team not found with ID: " + awayTeamId);
+        }
+        if (venueId != null && !venueIds.contains(venueId)) {
+            throw new RuntimeException("Venue not found with ID: " + venueId);
+        }
+
+        String dateText = value(fields, MATCH_DATE);
+        if (dateText == null) {
+            throw new RuntimeException("Match date is required");
+        }
+        LocalDateTime matchDate;
+        try {
+            matchDate = LocalDateTime.parse(dateText.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid match date: " + dateText);
+        }
+
+        if ((homeScore != null && homeScore < 0) || (awayScore != null && awayScore < 0)) {
+            throw new RuntimeException("Invalid score");
+        }
+
+        // Без статуса: матч со счётом считается завершённым
+        String status = value(fields, STATUS);
+        if (status == null) {
+            status = homeScore != null && awayScore != null ? "FINISHED" : "SCHEDULED";
+        }
+        status = status.toUpperCase();
+        if (!IMPORT_STATUSES.contains(status)) {
+            throw new RuntimeException("Unsupported status for import: " + status);
+        }
+        if ("FINISHED".equals(status) && (homeScore == null || awayScore == null)) {
+            throw new RuntimeException("Cannot finish match without score");
+        }
+
+        return new ImportRow(homeTeamId, awayTeamId, venueId, matchDate, homeScore, awayScore, status);
+    }
+
+    private static String value(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            for (Map.Entry<String, String> alias : ALIASES.entrySet()) {
+                if (alias.getValue().equals(name) && fields.get(alias.getKey()) != null) {
+                    value = fields.get(alias.getKey());
+                    break;
+                }
+            }
+        }
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Long parseLong(Map<String, String> fields, String name) {
+        String value = value(fields, name);
+        try {
+            return value != null ? Long.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number in " + name + ": " + value);
+        }
+    }
+
+    private static Integer parseInt(Map<String, String> fields, String name) {
+        String value = value(fields, name);
+        try {
+            return value != null ? Integer.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number in " + name + ": " + value);
+        }
+    }
+
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (char c : name.trim().toCharArray()) {
+            if (c != '_' && c != '-' && c != ' ' && c != '"') {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    // Разбор строки CSV: запятая-разделитель, поля в кавычках ("" - экранированная кавычка).
+    // Переводы строк внутри полей не поддерживаются - одна строка файла = одна запись
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+}
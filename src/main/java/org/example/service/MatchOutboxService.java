@@ -0,0 +1,176 @@
+package org.example.service;
+
+import org.example.config.SequenceIds;
+import org.example.dto.MatchResultRow;
+import org.example.model.MatchOutboxEvent;
+import org.example.repository.MatchOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Исходящая очередь результатов матчей (transactional outbox).
+// Завершение матча только пишет событие в той же транзакции; таблицу, очки команд и позиции
+// обновляет фоновый обработчик (MatchOutboxWorker) порциями.
+@Service
+@Transactional
+public class MatchOutboxService {
+
+    // Итог одной порции: сколько применено, сколько отложено как ошибочные, время самого старого события
+    public record BatchResult(int claimed, int applied, int failed, LocalDateTime oldestCreatedAt) {
+
+        static BatchResult empty() {
+            return new BatchResult(0, 0, 0, null);
+        }
+    }
+
+    @Autowired
+    private MatchOutboxRepository matchOutboxRepository;
+
+    @Autowired
+    private StandingService standingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    // Записать события завершения матчей в текущей транзакции.
+    // У обеих команд должна быть запись в таблице - проверяется сразу, а не в фоне
+    @Transactional
+    public void enqueue(List<MatchResultRow> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+
+        Set<Long> teamIds = new HashSet<>();
+        results.forEach(r -> {
+            teamIds.add(r.homeTeamId());
+            teamIds.add(r.awayTeamId());
+        });
+        Set<Long> withStanding = standingService.findTeamsWithStanding(teamIds);
+        for (Long teamId : teamIds) {
+            if (!withStanding.contains(teamId)) {
+                throw new RuntimeException("Standing not found for team ID: " + teamId);
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        long[] ids = sequenceIds.next("match_outbox_seq", results.size());
+        List<Object[]> rows = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            MatchResultRow r = results.get(i);
+            rows.add(new Object[]{ids[i], r.id(), r.homeTeamId(), r.awayTeamId(), r.homeScore(), r.awayScore(), now});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO match_outbox (id, match_id, home_team_id, away_team_id, home_score, away_score, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)""", rows);
+    }
+
+    // Обработать порцию событий в одной транзакции.
+    // Порядок блокировок как у остальных изменений таблицы: сначала строки standings (по team_id), затем события.
+    // Событие забирается удалением - если его уже забрал другой экземпляр, оно пропускается.
+    // Дельты по командам сворачиваются и применяются одним applyResults, позиции пересчитываются один раз после коммита
+    @Transactional
+    public BatchResult processBatch(int batchSize) {
+        List<MatchOutboxEvent> events = matchOutboxRepository.findByFailedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return BatchResult.empty();
+        }
+
+        Set<Long> teamIds = new HashSet<>();
+        events.forEach(e -> {
+            teamIds.add(e.getHomeTeamId());
+            teamIds.add(e.getAwayTeamId());
+        });
+        Set<Long> withStanding = standingService.lockTeamStandings(teamIds);
+
+        // Команда удалена после завершения матча - событие откладывается с ошибкой, остальные применяются
+        List<MatchOutboxEvent> applicable = new ArrayList<>();
+        List<Object[]> failures = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (MatchOutboxEvent event : events) {
+            Long missing = !withStanding.contains(event.getHomeTeamId()) ? event.getHomeTeamId()
+                    : !withStanding.contains(event.getAwayTeamId()) ? event.getAwayTeamId() : null;
+            if (missing != null) {
+                failures.add(new Object[]{now, "Standing not found for team ID: " + missing, event.getId()});
+            } else {
+                applicable.add(event);
+            }
+        }
+
+        int[] failedCounts = jdbcTemplate.batchUpdate(
+                "UPDATE match_outbox SET failed_at = ?, last_error = ? WHERE id = ? AND failed_at IS NULL", failures);
+        int[] claimedCounts = jdbcTemplate.batchUpdate("DELETE FROM match_outbox WHERE id = ?",
+                applicable.stream().map(e -> new Object[]{e.getId()}).toList());
+
+        List<MatchResultRow> claimed = new ArrayList<>();
+        LocalDateTime oldest = null;
+        for (int i = 0; i < applicable.size(); i++) {
+            if (claimedCounts[i] == 0) {
+                continue;
+            }
+            MatchOutboxEvent event = applicable.get(i);
+            claimed.add(new MatchResultRow(event.getMatchId(), event.getHomeTeamId(), event.getAwayTeamId(),
+                    event.getHomeScore(), event.getAwayScore()));
+            if (oldest == null || event.getCreatedAt().isBefore(oldest)) {
+                oldest = event.getCreatedAt();
+            }
+        }
+
+        standingService.applyResults(claimed);
+
+        int failed = 0;
+        for (int count : failedCounts) {
+            failed += count;
+        }
+        return new BatchResult(events.size(), claimed.size(), failed, oldest);
+    }
+
+    // Сколько событий по этим матчам ещё не обработано
+    @Transactional(readOnly = true)
+    public long countPending(Collection<Long> matchIds) {
+        return matchIds.isEmpty() ? 0 : matchOutboxRepository.countByMatchIdInAndFailedAtIsNull(matchIds);
+    }
+
+    // Сколько событий по этим матчам отложено с ошибкой (результат в таблицу не попал)
+    @Transactional(readOnly = true)
+    public long countFailed(Collection<Long> matchIds) {
+        return matchIds.isEmpty() ? 0 : matchOutboxRepository.countByMatchIdInAndFailedAtIsNotNull(matchIds);
+    }
+
+    // Вернуть отложенные события в очередь: все (matchIds = null) или только этих матчей.
+    // Обработчик возьмёт их следующей порцией; если причина не устранена, они снова будут отложены
+    @Transactional
+    public int requeueFailed(Collection<Long> matchIds) {
+        if (matchIds == null) {
+            return matchOutboxRepository.requeueFailed();
+        }
+        return matchIds.isEmpty() ? 0 : matchOutboxRepository.requeueFailedByMatchIdIn(matchIds);
+    }
+
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return matchOutboxRepository.countByFailedAtIsNull();
+    }
+
+    @Transactional(readOnly = true)
+    public long countFailed() {
+        return matchOutboxRepository.countByFailedAtIsNotNull();
+    }
+
+    @Transactional(readOnly = true)
+    public LocalDateTime findOldestPendingCreatedAt() {
+        return matchOutboxRepository.findOldestPendingCreatedAt();
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Фоновый обработчик очереди результатов: разбирает match_outbox порциями (app.outbox.*).
+// Цикл - одна порция в одной транзакции; если порция заполнена целиком, следующая берётся сразу.
+// Ведёт метрики отставания и будит тех, кто ждёт применения своих результатов.
+@Component
+public class MatchOutboxWorker {
+
+    private final MatchOutboxService matchOutboxService;
+    private final StandingsSnapshotHolder snapshotHolder;
+    private final int batchSize;
+    private final long awaitTimeoutMs;
+
+    private final Object cycleMonitor = new Object();
+    private final LongAdder cycles = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong lastCycleEvents = new AtomicLong();
+    private final AtomicLong lastCycleMs = new AtomicLong();
+    private final AtomicLong lastLagMs = new AtomicLong();
+    private final LongAccumulator maxLagMs = new LongAccumulator(Math::max, 0);
+    private volatile String lastError;
+
+    public MatchOutboxWorker(MatchOutboxService matchOutboxService,
+                             StandingsSnapshotHolder snapshotHolder,
+                             @Value("${app.outbox.batch-size:5000}") int batchSize,
+                             @Value("${app.outbox.await-timeout-ms:5000}") long awaitTimeoutMs) {
+        if (batchSize <= 0) {
+            throw new IllegalStateException("app.outbox.batch-size must be positive, got " + batchSize);
+        }
+        this.matchOutboxService = matchOutboxService;
+        this.snapshotHolder = snapshotHolder;
+        this.batchSize = batchSize;
+        this.awaitTimeoutMs = awaitTimeoutMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:100}")
+    public void drain() {
+        MatchOutboxService.BatchResult result;
+        do {
+            long startedAt = System.currentTimeMillis();
+            try {
+                result = matchOutboxService.processBatch(batchSize);
+            } catch (RuntimeException e) {
+                // Например, таймаут блокировки - порция останется в очереди до следующего запуска
+                errors.increment();
+                lastError = e.getMessage();
+                return;
+            } finally {
+                signalCycle();
+            }
+            if (result.claimed() == 0) {
+                return;
+            }
+
+            cycles.increment();
+            applied.add(result.applied());
+            failed.add(result.failed());
+            lastCycleEvents.set(result.applied());
+            lastCycleMs.set(System.currentTimeMillis() - startedAt);
+            if (result.oldestCreatedAt() != null) {
+                long lag = Duration.between(result.oldestCreatedAt(), LocalDateTime.now()).toMillis();
+                lastLagMs.set(lag);
+                maxLagMs.accumulate(lag);
+            }
+        } while (result.claimed() == batchSize);
+    }
+
+    // Дождаться, пока результаты матчей попадут в таблицу и в опубликованный снимок (read-your-writes).
+    // Вызывается после коммита; false - не дождались за app.outbox.await-timeout-ms
+    // или событие хотя бы одного матча отложено с ошибкой (результат в таблицу не попал)
+    public boolean awaitApplied(Collection<Long> matchIds) {
+        long deadline = System.currentTimeMillis() + awaitTimeoutMs;
+        try {
+            while (matchOutboxService.countPending(matchIds) > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                synchronized (cycleMonitor) {
+                    cycleMonitor.wait(Math.min(remaining, 50));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (matchOutboxService.countFailed(matchIds) > 0) {
+            return false;
+        }
+        return snapshotHolder.awaitRefresh(Math.max(0, deadline - System.currentTimeMillis()));
+    }
+
+    // Вернуть отложенные события в очередь и сразу разобрать её; возвращает число возвращённых событий
+    public int requeueFailed(Collection<Long> matchIds) {
+        int requeued = matchOutboxService.requeueFailed(matchIds);
+        if (requeued > 0) {
+            drain();
+        }
+        return requeued;
+    }
+
+    public Map<String, Object> getStats() {
+        LocalDateTime oldestPending = matchOutboxService.findOldestPendingCreatedAt();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", matchOutboxService.countPending());
+        stats.put("failed", matchOutboxService.countFailed());
+        stats.put("oldestPendingAgeMs", oldestPending != null
+                ? Duration.between(oldestPending, LocalDateTime.now()).toMillis() : 0);
+        stats.put("cycles", cycles.sum());
+        stats.put("applied", applied.sum());
+        stats.put("failedTotal", failed.sum());
+        stats.put("lastCycleEvents", lastCycleEvents.get());
+        stats.put("lastCycleMs", lastCycleMs.get());
+        stats.put("lastLagMs", lastLagMs.get());
+        stats.put("maxLagMs", maxLagMs.get());
+        stats.put("errors", errors.sum());
+        stats.put("lastError", lastError);
+        stats.put("batchSize", batchSize);
+        return stats;
+    }
+
+    private void signalCycle() {
+        synchronized (cycleMonitor) {
+            cycleMonitor.notifyAll();
+        }
+    }
+}
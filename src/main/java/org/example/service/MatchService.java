@@ -1,17 +1,37 @@
 package org.example.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.config.PaginationSettings;
+import org.example.dto.DatedMatchResult;
+import org.example.dto.KeysetPage;
+import org.example.dto.LiveMatchEvent;
+import org.example.dto.MatchResultOutcome;
+import org.example.dto.MatchResultRequest;
+import org.example.dto.MatchResultRow;
 import org.example.model.Match;
 import org.example.repository.MatchRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -20,6 +40,12 @@ public class MatchService {
     @Autowired
     private MatchRepository matchRepository;
 
+    @Autowired
+    private PaginationSettings paginationSettings;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private TeamService teamService;
 
@@ -29,10 +55,57 @@ public class MatchService {
     @Autowired
     private VenueService venueService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private VenueCalendar venueCalendar;
+
+    @Autowired
+    private LiveEventHub liveEventHub;
+
+    @Autowired
+    private TeamStatisticsService teamStatisticsService;
+
+    @Autowired
+    private MatchOutboxService matchOutboxService;
+
+    @Autowired
+    private StandingHistoryService standingHistoryService;
+
+    @Autowired
+    private FormTable formTable;
+
+    @Autowired
+    private MatchOutboxWorker matchOutboxWorker;
+
     public List<Match> getAllMatches() {
         return matchRepository.findAll();
     }
 
+    // Keyset-пагинация по ID: одна лишняя строка показывает, есть ли следующая страница
+    @Transactional(readOnly = true)
+    public KeysetPage<Match> getMatchesPage(Long afterId, Integer limit) {
+        int pageSize = paginationSettings.resolvePageSize(limit);
+        List<Match> rows = matchRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId != null ? afterId : 0L, PageRequest.of(0, pageSize + 1));
+        return KeysetPage.of(rows, pageSize, Match::getId);
+    }
+
+    // Выгрузка всех матчей курсором; прочитанные сущности отсоединяются, поэтому память не растёт
+    @Transactional(readOnly = true)
+    public void streamAllMatches(Consumer<Match> consumer) {
+        try (Stream<Match> matches = matchRepository.streamAllByOrderByIdAsc()) {
+            matches.forEach(match -> {
+                consumer.accept(match);
+                entityManager.detach(match);
+            });
+        }
+    }
+
     public Optional<Match> getMatchById(Long id) {
         return matchRepository.findById(id);
     }
@@ -77,19 +150,6 @@ public class MatchService {
             throw new RuntimeException("Venue not found with ID: " + match.getVenueId());
         }
 
-        // Проверка конфликта расписания
-        LocalDateTime matchStart = match.getMatchDate();
-        LocalDateTime matchEnd = matchStart.plusHours(2);
-
-        List<Match> conflicts = matchRepository.findConflictingMatches(
-                match.getHomeTeamId(), matchStart, matchEnd);
-        conflicts.addAll(matchRepository.findConflictingMatches(
-                match.getAwayTeamId(), matchStart, matchEnd));
-
-        if (!conflicts.isEmpty()) {
-            throw new RuntimeException("Team has scheduling conflict");
-        }
-
         // Установка статуса по умолчанию
         if (match.getStatus() == null) {
             match.setStatus("SCHEDULED");
@@ -99,7 +159,10 @@ public class MatchService {
         match.setHomeTeamScore(null);
         match.setAwayTeamScore(null);
 
-        return matchRepository.save(match);
+        // Проверка конфликта расписания команд и арены с бронью слота до коммита (ID выдан при сохранении)
+        Match saved = saveAndIndex(match);
+        scheduleIndex.reserve(saved);
+        return saved;
     }
 
     @Transactional
@@ -109,6 +172,10 @@ public class MatchService {
 
         // Сохраняем старый статус для проверки перехода
         String oldStatus = match.getStatus();
+        Integer oldHomeScore = match.getHomeTeamScore();
+        Integer oldAwayScore = match.getAwayTeamScore();
+        MatchResultRow oldResult = finishedResult(match);
+        LocalDateTime oldMatchDate = match.getMatchDate();
 
         // ОБНОВЛЕНИЕ СЧЁТА
         if (matchDetails.getHomeTeamScore() != null) {
@@ -126,12 +193,8 @@ public class MatchService {
             // Если матч переходит в статус FINISHED и есть счет, обновляем турнирную таблицу
             if ("FINISHED".equals(newStatus) && !"FINISHED".equals(oldStatus)) {
                 if (match.getHomeTeamScore() != null && match.getAwayTeamScore() != null) {
-                    standingService.updateStandingsAfterMatch(
-                            match.getHomeTeamId(),
-                            match.getAwayTeamId(),
-                            match.getHomeTeamScore(),
-                            match.getAwayTeamScore()
-                    );
+                    claimFinish(match, oldStatus);
+                    recordFinished(List.of(finishedResult(match)));
                 } else {
                     throw new RuntimeException("Cannot finish match without score");
                 }
@@ -161,7 +224,47 @@ public class MatchService {
             match.setMatchDate(matchDetails.getMatchDate());
         }
 
-        return matchRepository.save(match);
+        // При переносе или смене участников/арены - повторная проверка расписания
+        boolean rescheduled = matchDetails.getHomeTeamId() != null || matchDetails.getAwayTeamId() != null
+                || matchDetails.getVenueId() != null || matchDetails.getMatchDate() != null;
+        if (rescheduled) {
+            scheduleIndex.reserve(match);
+        }
+
+        // Исправление уже завершённого матча (счёт, участники, статус) - переносим его вклад в статистику команд
+        MatchResultRow newResult = finishedResult(match);
+        if (oldResult != null && !oldResult.equals(newResult)) {
+            teamStatisticsService.revertResults(List.of(oldResult));
+            if (newResult != null) {
+                teamStatisticsService.recordResults(List.of(newResult));
+            }
+        }
+
+        // Результат или дата завершённого матча изменились - таблицы на даты после него устарели
+        if (!Objects.equals(oldResult, newResult)
+                || (newResult != null && !Objects.equals(oldMatchDate, match.getMatchDate()))) {
+            standingHistoryService.invalidateFrom(oldMatchDate.isBefore(match.getMatchDate())
+                    ? oldMatchDate : match.getMatchDate());
+
+            // Таблица формы: новый результат добавляется, исправленный - буферы команд перечитываются
+            if (oldResult == null) {
+                DatedMatchResult dated = datedResult(match);
+                TransactionCallbacks.afterCommit(() -> formTable.addResults(List.of(dated)));
+            } else {
+                Set<Long> teamIds = new HashSet<>(List.of(oldResult.homeTeamId(), oldResult.awayTeamId(),
+                        match.getHomeTeamId(), match.getAwayTeamId()));
+                TransactionCallbacks.afterCommit(() -> formTable.reloadTeams(teamIds));
+            }
+        }
+
+        if (!Objects.equals(oldStatus, match.getStatus())) {
+            publishAfterCommit(LiveEventHub.MATCH_STATUS, match);
+        } else if (!Objects.equals(oldHomeScore, match.getHomeTeamScore())
+                || !Objects.equals(oldAwayScore, match.getAwayTeamScore())) {
+            publishAfterCommit(LiveEventHub.MATCH_SCORE, match);
+        }
+
+        return saveAndIndex(match);
     }
 
     @Transactional
@@ -173,7 +276,19 @@ public class MatchService {
             throw new RuntimeException("Cannot delete match in progress");
         }
 
+        MatchResultRow result = finishedResult(match);
+        if (result != null) {
+            teamStatisticsService.revertResults(List.of(result));
+            standingHistoryService.invalidateFrom(match.getMatchDate());
+            TransactionCallbacks.afterCommit(() ->
+                    formTable.reloadTeams(List.of(result.homeTeamId(), result.awayTeamId())));
+        }
+
         matchRepository.deleteById(id);
+        TransactionCallbacks.afterCommit(() -> {
+            scheduleIndex.remove(id);
+            venueCalendar.remove(id);
+        });
     }
 
     // Бизнес-операция: Начать матч
@@ -191,7 +306,8 @@ public class MatchService {
         }
 
         match.setStatus("IN_PROGRESS");
-        return matchRepository.save(match);
+        publishAfterCommit(LiveEventHub.MATCH_STATUS, match);
+        return saveAndIndex(match);
     }
 
     // Бизнес-операция: Завершить матч
@@ -211,16 +327,117 @@ public class MatchService {
         match.setHomeTeamScore(homeScore);
         match.setAwayTeamScore(awayScore);
         match.setStatus("FINISHED");
+        claimFinish(match, "IN_PROGRESS");
 
-        // Обновляем турнирную таблицу
-        standingService.updateStandingsAfterMatch(
-                match.getHomeTeamId(),
-                match.getAwayTeamId(),
-                homeScore,
-                awayScore
-        );
+        // Статистика команд - сразу, турнирная таблица - через очередь результатов
+        recordFinished(List.of(finishedResult(match)));
+        standingHistoryService.invalidateFrom(match.getMatchDate());
+        DatedMatchResult dated = datedResult(match);
+        TransactionCallbacks.afterCommit(() -> formTable.addResults(List.of(dated)));
 
-        return matchRepository.save(match);
+        publishAfterCommit(LiveEventHub.MATCH_STATUS, match);
+        return saveAndIndex(match);
+    }
+
+    // Бизнес-операция: Завершить пачку матчей (данные фида после финального свистка).
+    // Все элементы проверяются вместе, матчи и таблица пишутся пакетами JDBC,
+    // позиции пересчитываются один раз на пачку; по каждому элементу возвращается свой результат.
+    @Transactional
+    public List<MatchResultOutcome> completeMatches(List<MatchResultRequest> results) {
+        MatchResultOutcome[] outcomes = new MatchResultOutcome[results.size()];
+
+        List<Long> matchIds = results.stream()
+                .map(MatchResultRequest::getMatchId)
+                .filter(id -> id != null)
+                .toList();
+        Map<Long, Match> matches = matchRepository.findAllById(matchIds).stream()
+                .collect(Collectors.toMap(Match::getId, Function.identity()));
+
+        // 1. Проверка каждого элемента
+        Set<Long> seen = new HashSet<>();
+        Set<Long> teamIds = new HashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            MatchResultRequest result = results.get(i);
+            Long matchId = result.getMatchId();
+            Match match = matchId != null ? matches.get(matchId) : null;
+
+            if (matchId == null) {
+                outcomes[i] = MatchResultOutcome.rejected(null, "Match ID is required");
+            } else if (!seen.add(matchId)) {
+                outcomes[i] = MatchResultOutcome.rejected(matchId, "Duplicate match in batch");
+            } else if (result.getHomeScore() == null || result.getAwayScore() == null
+                    || result.getHomeScore() < 0 || result.getAwayScore() < 0) {
+                outcomes[i] = MatchResultOutcome.rejected(matchId, "Invalid score");
+            } else if (match == null) {
+                outcomes[i] = MatchResultOutcome.rejected(matchId, "Match not found with ID: " + matchId);
+            } else if (!"IN_PROGRESS".equals(match.getStatus())) {
+                outcomes[i] = MatchResultOutcome.rejected(matchId,
+                        "Match is not in progress. Current status: " + match.getStatus());
+            } else {
+                teamIds.add(match.getHomeTeamId());
+                teamIds.add(match.getAwayTeamId());
+            }
+        }
+
+        // 2. У обеих команд должна быть запись в таблице
+        Set<Long> teamsWithStanding = standingService.findTeamsWithStanding(teamIds);
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (outcomes[i] != null) {
+                continue;
+            }
+            Match match = matches.get(results.get(i).getMatchId());
+            if (!teamsWithStanding.contains(match.getHomeTeamId())) {
+                outcomes[i] = MatchResultOutcome.rejected(match.getId(),
+                        "Standing not found for home team ID: " + match.getHomeTeamId());
+            } else if (!teamsWithStanding.contains(match.getAwayTeamId())) {
+                outcomes[i] = MatchResultOutcome.rejected(match.getId(),
+                        "Standing not found for away team ID: " + match.getAwayTeamId());
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        // 3. Пакетная запись матчей; условие по статусу отсекает матчи, завершённые параллельно
+        int[] updateCounts = jdbcTemplate.batchUpdate(
+                "UPDATE matches SET home_team_score = ?, away_team_score = ?, status = 'FINISHED' " +
+                        "WHERE id = ? AND status = 'IN_PROGRESS'",
+                accepted.stream()
+                        .map(i -> new Object[]{
+                                results.get(i).getHomeScore(), results.get(i).getAwayScore(), results.get(i).getMatchId()})
+                        .toList());
+
+        // 4. Результаты реально обновлённых матчей - в статистику команд и в очередь таблицы одним пакетом
+        List<MatchResultRow> applied = new ArrayList<>();
+        List<DatedMatchResult> appliedDated = new ArrayList<>();
+        LocalDateTime earliestApplied = null;
+        for (int k = 0; k < accepted.size(); k++) {
+            int i = accepted.get(k);
+            MatchResultRequest result = results.get(i);
+            if (updateCounts[k] == 0) {
+                outcomes[i] = MatchResultOutcome.rejected(result.getMatchId(), "Match was completed concurrently");
+                continue;
+            }
+            Match match = matches.get(result.getMatchId());
+            applied.add(new MatchResultRow(match.getId(), match.getHomeTeamId(), match.getAwayTeamId(),
+                    result.getHomeScore(), result.getAwayScore()));
+            appliedDated.add(new DatedMatchResult(match.getId(), match.getMatchDate(), match.getHomeTeamId(),
+                    match.getAwayTeamId(), result.getHomeScore(), result.getAwayScore()));
+            if (earliestApplied == null || match.getMatchDate().isBefore(earliestApplied)) {
+                earliestApplied = match.getMatchDate();
+            }
+            LiveMatchEvent event = new LiveMatchEvent(match.getId(), match.getHomeTeamId(), match.getAwayTeamId(),
+                    result.getHomeScore(), result.getAwayScore(), "FINISHED");
+            TransactionCallbacks.afterCommit(() -> liveEventHub.publish(LiveEventHub.MATCH_STATUS, event.matchId(), event));
+            outcomes[i] = MatchResultOutcome.applied(match.getId());
+        }
+
+        recordFinished(applied);
+        standingHistoryService.invalidateFrom(earliestApplied);
+        TransactionCallbacks.afterCommit(() -> formTable.addResults(appliedDated));
+        TransactionCallbacks.afterCommit(() -> applied.forEach(row -> scheduleIndex.remove(row.id())));
+
+        return Arrays.asList(outcomes);
     }
 
     // Бизнес-операция: Отменить матч
@@ -234,55 +451,83 @@ public class MatchService {
         }
 
         match.setStatus("CANCELLED");
-        return matchRepository.save(match);
+        publishAfterCommit(LiveEventHub.MATCH_STATUS, match);
+        return saveAndIndex(match);
     }
 
-    // Бизнес-операция: Получить статистику матчей команды
-    public Map<String, Object> getTeamMatchStatistics(Long teamId) {
-        List<Match> allMatches = getMatchesByTeam(teamId);
-        List<Match> finishedMatches = allMatches.stream()
-                .filter(m -> "FINISHED".equals(m.getStatus()))
-                .collect(Collectors.toList());
-
-        int totalMatches = finishedMatches.size();
-        int homeMatches = 0;
-        int awayMatches = 0;
-        int wins = 0;
-        int draws = 0;
-        int losses = 0;
-        int goalsFor = 0;
-        int goalsAgainst = 0;
-
-        for (Match match : finishedMatches) {
-            boolean isHome = match.getHomeTeamId().equals(teamId);
-            int teamGoals = isHome ? match.getHomeTeamScore() : match.getAwayTeamScore();
-            int opponentGoals = isHome ? match.getAwayTeamScore() : match.getHomeTeamScore();
-
-            goalsFor += teamGoals;
-            goalsAgainst += opponentGoals;
-
-            if (isHome) homeMatches++;
-            else awayMatches++;
-
-            if (teamGoals > opponentGoals) wins++;
-            else if (teamGoals < opponentGoals) losses++;
-            else draws++;
+    // Переход в FINISHED условным UPDATE по прежнему статусу (как в пакетном завершении):
+    // из параллельных завершений одного матча строку обновит только первое, остальные получат 0 строк
+    // (UPDATE ждёт блокировку строки и перепроверяет условие) и откатятся до записи статистики и события
+    private void claimFinish(Match match, String expectedStatus) {
+        int updated = jdbcTemplate.update(
+                "UPDATE matches SET home_team_score = ?, away_team_score = ?, status = 'FINISHED' " +
+                        "WHERE id = ? AND status = ?",
+                match.getHomeTeamScore(), match.getAwayTeamScore(), match.getId(), expectedStatus);
+        if (updated == 0) {
+            throw new RuntimeException("Match was completed concurrently: " + match.getId());
         }
+    }
+
+    // Событие фиксируется сейчас, а рассылается только после коммита
+    private void publishAfterCommit(String eventName, Match match) {
+        LiveMatchEvent event = LiveMatchEvent.of(match);
+        TransactionCallbacks.afterCommit(() -> liveEventHub.publish(eventName, event.matchId(), event));
+    }
+
+    // Сохранение матча; индекс расписания и календарь арен обновляются только после коммита
+    private Match saveAndIndex(Match match) {
+        Match saved = matchRepository.save(match);
+        TransactionCallbacks.afterCommit(() -> {
+            scheduleIndex.put(saved);
+            venueCalendar.put(saved);
+        });
+        return saved;
+    }
 
-        Map<String, Object> result = new HashMap<>();
-        result.put("totalMatches", totalMatches);
-        result.put("homeMatches", homeMatches);
-        result.put("awayMatches", awayMatches);
-        result.put("wins", wins);
-        result.put("draws", draws);
-        result.put("losses", losses);
-        result.put("goalsFor", goalsFor);
-        result.put("goalsAgainst", goalsAgainst);
-        result.put("goalDifference", goalsFor - goalsAgainst);
-        result.put("winRate", totalMatches > 0 ? (double) wins / totalMatches * 100 : 0);
-        result.put("drawRate", totalMatches > 0 ? (double) draws / totalMatches * 100 : 0);
-        result.put("lossRate", totalMatches > 0 ? (double) losses / totalMatches * 100 : 0);
-
-        return result;
+    // Завершённые матчи: статистика команд обновляется в этой транзакции,
+    // таблица, очки команд и позиции - фоновым обработчиком очереди (MatchOutboxWorker)
+    private void recordFinished(List<MatchResultRow> results) {
+        teamStatisticsService.recordResults(results);
+        matchOutboxService.enqueue(results);
+    }
+
+    // Дождаться применения результатов к таблице (для клиентов, которым нужно read-your-writes).
+    // Вне транзакции: обработчик должен видеть закоммиченные события, соединение не удерживается
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean awaitStandings(Collection<Long> matchIds) {
+        return matchOutboxWorker.awaitApplied(matchIds);
+    }
+
+    // Повторить применение отложенных с ошибкой результатов (matchIds = null - всех)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int requeueFailedResults(Collection<Long> matchIds) {
+        return matchOutboxWorker.requeueFailed(matchIds);
+    }
+
+    // Метрики очереди результатов (отставание обработчика)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> getOutboxStats() {
+        return matchOutboxWorker.getStats();
+    }
+
+    // Результат матча для статистики; null - матч не завершён или без счёта
+    private static MatchResultRow finishedResult(Match match) {
+        if (!"FINISHED".equals(match.getStatus())
+                || match.getHomeTeamScore() == null || match.getAwayTeamScore() == null) {
+            return null;
+        }
+        return new MatchResultRow(match.getId(), match.getHomeTeamId(), match.getAwayTeamId(),
+                match.getHomeTeamScore(), match.getAwayTeamScore());
+    }
+
+    private static DatedMatchResult datedResult(Match match) {
+        return new DatedMatchResult(match.getId(), match.getMatchDate(), match.getHomeTeamId(), match.getAwayTeamId(),
+                match.getHomeTeamScore(), match.getAwayTeamScore());
+    }
+
+    // Бизнес-операция: Получить статистику матчей команды (одна строка накопленной статистики)
+    @Transactional(readOnly = true)
+    public Map<String, Object> getTeamMatchStatistics(Long teamId) {
+        return TeamStatisticsService.toSummary(teamStatisticsService.getByTeamId(teamId));
     }
-}
\ No newline at end of file
+}
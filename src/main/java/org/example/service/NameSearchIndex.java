@@ -0,0 +1,486 @@
+package org.example.service;
+
+import org.example.dto.NameMatch;
+import org.example.dto.TypeaheadResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Триграммный индекс названий команд, арен и имён игроков в памяти (нечёткий поиск и typeahead).
+// Имя приводится к нижнему регистру и режется на слова по пробелам; каждое слово дополняется как в pg_trgm
+// (два пробела в начале, один в конце), триграммы - сочетания трёх соседних символов.
+// Для каждой триграммы хранится список слотов имён, содержащих её. Поиск проходит списки триграмм запроса
+// от редких к частым и считает совпавшие триграммы; оценка - доля триграмм запроса, найденных в имени,
+// при равенстве выше имя, ближе к запросу по коэффициенту Жаккара (то есть короче).
+// Индекс заполняется при старте и обновляется после коммита изменений в сервисах
+@Component
+public class NameSearchIndex {
+
+    public enum Kind {
+        TEAM("team", "teams"),
+        VENUE("venue", "venues"),
+        PLAYER("player", "players");
+
+        private final String type;
+        private final String table;
+
+        Kind(String type, String table) {
+            this.type = type;
+            this.table = table;
+        }
+
+        public String type() {
+            return type;
+        }
+
+        public static Kind fromType(String type) {
+            for (Kind kind : values()) {
+                if (kind.type.equalsIgnoreCase(type.trim())) {
+                    return kind;
+                }
+            }
+            throw new RuntimeException("Unknown search type: " + type);
+        }
+    }
+
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    // Кандидат поиска: слот имени и его оценки
+    private record Candidate(Kind kind, KindIndex index, int slot, double score, double jaccard) {
+    }
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingDouble(Candidate::score).reversed()
+            .thenComparing(Comparator.comparingDouble(Candidate::jaccard).reversed())
+            .thenComparing(c -> c.index().names[c.slot()])
+            .thenComparingLong(c -> c.index().ids[c.slot()]);
+
+    // Слоты с триграммой (растущий массив; удалённые слоты пропускаются при поиске)
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    // Число совпавших триграмм по слотам кандидатов (открытая адресация, линейное пробирование).
+    // Размер растёт с числом кандидатов, а не с размером индекса: поиск не выделяет и не обнуляет массив на все слоты
+    private static final class SlotCounts {
+        // Слот + 1; 0 - пустая ячейка
+        int[] keys = new int[64];
+        int[] counts = new int[64];
+        int size;
+
+        // Ячейка слота или пустая ячейка, куда его можно вставить
+        int find(int slot) {
+            int mask = keys.length - 1;
+            int hash = slot * 0x9E3779B9;
+            int cell = (hash ^ hash >>> 16) & mask;
+            while (keys[cell] != 0 && keys[cell] != slot + 1) {
+                cell = (cell + 1) & mask;
+            }
+            return cell;
+        }
+
+        void insert(int cell, int slot) {
+            keys[cell] = slot + 1;
+            counts[cell] = 1;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int cell = find(oldKeys[i] - 1);
+                    keys[cell] = oldKeys[i];
+                    counts[cell] = oldCounts[i];
+                }
+            }
+        }
+    }
+
+    // Индекс одного типа сущностей. Слоты не переиспользуются: удалённое имя помечается null,
+    // а когда удалённых больше половины, индекс перестраивается из живых слотов
+    private static final class KindIndex {
+        long[] ids = new long[1024];
+        String[] names = new String[1024];
+        int[] trigramCounts = new int[1024];
+        int size;
+        int dead;
+        final Map<Long, Integer> slotById = new HashMap<>();
+        final Map<Long, Postings> postings = new HashMap<>();
+
+        void put(long id, String name) {
+            remove(id);
+            if (name == null) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+                trigramCounts = Arrays.copyOf(trigramCounts, size * 2);
+            }
+            int slot = size++;
+            long[] trigrams = trigrams(name, true);
+            ids[slot] = id;
+            names[slot] = name;
+            trigramCounts[slot] = trigrams.length;
+            slotById.put(id, slot);
+            for (long trigram : trigrams) {
+                postings.computeIfAbsent(trigram, t -> new Postings()).add(slot);
+            }
+        }
+
+        void remove(long id) {
+            Integer slot = slotById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            names[slot] = null;
+            dead++;
+            if (dead > 1024 && dead > size / 2) {
+                compact();
+            }
+        }
+
+        private void compact() {
+            long[] oldIds = ids;
+            String[] oldNames = names;
+            int oldSize = size;
+            ids = new long[Math.max(1024, oldSize - dead)];
+            names = new String[ids.length];
+            trigramCounts = new int[ids.length];
+            size = 0;
+            dead = 0;
+            slotById.clear();
+            postings.clear();
+            for (int slot = 0; slot < oldSize; slot++) {
+                if (oldNames[slot] != null) {
+                    put(oldIds[slot], oldNames[slot]);
+                }
+            }
+        }
+
+        int live() {
+            return size - dead;
+        }
+    }
+
+    // Отложенное изменение индекса одного типа (повторяется после перезагрузки, если пришло во время неё)
+    private record Change(Kind kind, Consumer<KindIndex> action) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final long budgetNanos;
+    private final double minScore;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Kind, KindIndex> indexes = emptyIndexes();
+    private boolean loading;
+    private final List<Change> changesDuringLoad = new ArrayList<>();
+
+    public NameSearchIndex(JdbcTemplate jdbcTemplate,
+                           @Value("${app.search.default-limit:10}") int defaultLimit,
+                           @Value("${app.search.max-limit:100}") int maxLimit,
+                           @Value("${app.search.budget-micros:1000}") long budgetMicros,
+                           @Value("${app.search.min-score:0.5}") double minScore) {
+        if (defaultLimit <= 0 || maxLimit < defaultLimit || budgetMicros <= 0 || minScore <= 0 || minScore > 1) {
+            throw new IllegalStateException("Invalid app.search settings");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.budgetNanos = budgetMicros * 1000;
+        this.minScore = minScore;
+    }
+
+    // Заполнение из БД порциями по ID. Изменения, пришедшие во время загрузки, применяются повторно
+    // к новому индексу (put и remove идемпотентны)
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changesDuringLoad.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Kind, KindIndex> loaded = emptyIndexes();
+        try {
+            for (Kind kind : Kind.values()) {
+                KindIndex index = loaded.get(kind);
+                long lastId = 0;
+                while (true) {
+                    List<Object[]> chunk = jdbcTemplate.query(
+                            "SELECT id, name FROM " + kind.table + " WHERE id > ? ORDER BY id LIMIT ?",
+                            (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)}, lastId, LOAD_CHUNK_SIZE);
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+                    chunk.forEach(row -> index.put((Long) row[0], (String) row[1]));
+                    lastId = (Long) chunk.get(chunk.size() - 1)[0];
+                }
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changesDuringLoad.forEach(change -> change.action().accept(loaded.get(change.kind())));
+                indexes = loaded;
+                loading = false;
+                changesDuringLoad.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Добавить или переименовать (вызывается после коммита)
+    public void put(Kind kind, Long id, String name) {
+        apply(new Change(kind, index -> index.put(id, name)));
+    }
+
+    public void remove(Kind kind, Long id) {
+        apply(new Change(kind, index -> index.remove(id)));
+    }
+
+    // Лучшие limit совпадений по типам types (null - все типы).
+    // Поиск укладывается в app.search.budget-micros: при превышении возвращается лучшее из найденного (partial)
+    public TypeaheadResult search(String query, Collection<Kind> kinds, Integer limit) {
+        long startedAt = System.nanoTime();
+        int size = limit != null ? limit : defaultLimit;
+        if (size <= 0 || size > maxLimit) {
+            throw new RuntimeException("limit must be between 1 and " + maxLimit);
+        }
+        long[] queryTrigrams = query != null ? trigrams(query, false) : new long[0];
+        if (queryTrigrams.length == 0) {
+            return new TypeaheadResult(List.of(), false, 0);
+        }
+
+        Collection<Kind> searched = kinds == null || kinds.isEmpty() ? List.of(Kind.values()) : kinds;
+        long deadline = startedAt + budgetNanos;
+        PriorityQueue<Candidate> top = new PriorityQueue<>(RANKING.reversed());
+        boolean partial = false;
+
+        lock.readLock().lock();
+        try {
+            for (Kind kind : searched) {
+                partial |= collect(kind, indexes.get(kind), queryTrigrams, size, deadline, top);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Candidate> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        List<NameMatch> matches = new ArrayList<>(ranked.size());
+        for (Candidate c : ranked) {
+            matches.add(new NameMatch(c.kind().type(), c.index().ids[c.slot()], c.index().names[c.slot()],
+                    Math.round(c.score() * 1000) / 1000.0));
+        }
+        return new TypeaheadResult(matches, partial, (System.nanoTime() - startedAt) / 1000);
+    }
+
+    // ID сущностей, чьё имя содержит text (без учёта регистра) - как LOWER(name) LIKE '%text%'.
+    // Кандидаты - имена со всеми триграммами внутри слов text, затем точная проверка подстроки.
+    // null - в text нет слова из трёх символов, индекс не сужает поиск
+    public List<Long> findContaining(Kind kind, String text) {
+        String needle = text.toLowerCase(Locale.ROOT);
+        long[] required = innerTrigrams(needle);
+        if (required.length == 0) {
+            return null;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            KindIndex index = indexes.get(kind);
+            Postings[] lists = new Postings[required.length];
+            for (int i = 0; i < required.length; i++) {
+                lists[i] = index.postings.get(required[i]);
+                if (lists[i] == null) {
+                    return ids;
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+            Postings rarest = lists[0];
+            for (int i = 0; i < rarest.size; i++) {
+                int slot = rarest.slots[i];
+                String name = index.names[slot];
+                if (name != null && name.toLowerCase(Locale.ROOT).contains(needle)) {
+                    ids.add(index.ids[slot]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        ids.sort(Long::compare);
+        return ids;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            indexes.forEach((kind, index) -> {
+                Map<String, Object> kindStats = new HashMap<>();
+                kindStats.put("names", index.live());
+                kindStats.put("trigrams", index.postings.size());
+                kindStats.put("deletedSlots", index.dead);
+                stats.put(kind.type(), kindStats);
+            });
+            stats.put("loading", loading);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    // Возвращает true, если поиск прерван по бюджету времени
+    private boolean collect(Kind kind, KindIndex index, long[] queryTrigrams, int limit, long deadline,
+                            PriorityQueue<Candidate> top) {
+        int queryLength = queryTrigrams.length;
+        int required = Math.max(1, (int) Math.ceil(minScore * queryLength));
+
+        // Списки от редких к частым; отсутствующая триграмма - пустой список
+        Postings[] lists = new Postings[queryLength];
+        for (int i = 0; i < queryLength; i++) {
+            Postings postings = index.postings.get(queryTrigrams[i]);
+            lists[i] = postings != null ? postings : new Postings();
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+        // Имя, не встретившееся в первых queryLength - required + 1 списках, не наберёт required совпадений,
+        // поэтому новые кандидаты берутся только из них, а частые списки лишь добавляют совпадения
+        int introducing = queryLength - required + 1;
+        SlotCounts matched = new SlotCounts();
+        int processed = 0;
+        boolean partial = false;
+
+        outer:
+        for (int i = 0; i < queryLength; i++) {
+            Postings list = lists[i];
+            boolean mayIntroduce = i < introducing;
+            for (int p = 0; p < list.size; p++) {
+                if (++processed % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                    partial = true;
+                    break outer;
+                }
+                int slot = list.slots[p];
+                int cell = matched.find(slot);
+                if (matched.keys[cell] != 0) {
+                    matched.counts[cell]++;
+                } else if (mayIntroduce && index.names[slot] != null) {
+                    matched.insert(cell, slot);
+                }
+            }
+        }
+
+        for (int cell = 0; cell < matched.keys.length; cell++) {
+            if (matched.keys[cell] == 0) {
+                continue;
+            }
+            int slot = matched.keys[cell] - 1;
+            int shared = matched.counts[cell];
+            double score = (double) shared / queryLength;
+            if (shared < required) {
+                continue;
+            }
+            double jaccard = (double) shared / (queryLength + index.trigramCounts[slot] - shared);
+            Candidate candidate = new Candidate(kind, index, slot, score, jaccard);
+            if (top.size() < limit) {
+                top.add(candidate);
+            } else if (RANKING.compare(candidate, top.peek()) < 0) {
+                top.poll();
+                top.add(candidate);
+            }
+        }
+        return partial;
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.action().accept(indexes.get(change.kind()));
+            if (loading) {
+                changesDuringLoad.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Map<Kind, KindIndex> emptyIndexes() {
+        Map<Kind, KindIndex> indexes = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            indexes.put(kind, new KindIndex());
+        }
+        return indexes;
+    }
+
+    // Различные триграммы текста; closeLast = false - последнее слово запроса может быть недописано,
+    // поэтому его конец не дополняется пробелом
+    static long[] trigrams(String text, boolean closeLast) {
+        String[] words = text.toLowerCase(Locale.ROOT).trim().split("\\s+");
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int w = 0; w < words.length; w++) {
+            if (words[w].isEmpty()) {
+                continue;
+            }
+            boolean close = closeLast || w < words.length - 1;
+            String padded = "  " + words[w] + (close ? " " : "");
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(encode(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)));
+            }
+        }
+        return trigrams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Триграммы, целиком лежащие внутри слов текста (без дополнения)
+    private static long[] innerTrigrams(String text) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (String word : text.trim().split("\\s+")) {
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                trigrams.add(encode(word.charAt(i), word.charAt(i + 1), word.charAt(i + 2)));
+            }
+        }
+        return trigrams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long encode(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
@@ -1,16 +1,29 @@
 package org.example.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.config.PaginationSettings;
+import org.example.dto.CountByKey;
+import org.example.dto.KeysetPage;
+import org.example.dto.PlayerAggregate;
+import org.example.dto.PlayerSummary;
+import org.example.dto.TeamPlayerStatistics;
 import org.example.model.Player;
 import org.example.repository.PlayerRepository;
-import org.example.repository.TeamRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -20,28 +33,67 @@ public class PlayerService {
     private PlayerRepository playerRepository;
 
     @Autowired
-    private TeamRepository teamRepository;
+    private PaginationSettings paginationSettings;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private GoalCounter goalCounter;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private NameSearchIndex nameSearchIndex;
 
     public List<Player> getAllPlayers() {
-        return playerRepository.findAll();
+        return goalCounter.read(() -> withPendingGoals(playerRepository.findAll()));
+    }
+
+    // Keyset-пагинация по ID: одна лишняя строка показывает, есть ли следующая страница
+    @Transactional(readOnly = true)
+    public KeysetPage<Player> getPlayersPage(Long afterId, Integer limit) {
+        int pageSize = paginationSettings.resolvePageSize(limit);
+        List<Player> rows = goalCounter.read(() -> withPendingGoals(playerRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId != null ? afterId : 0L, PageRequest.of(0, pageSize + 1))));
+        return KeysetPage.of(rows, pageSize, Player::getId);
+    }
+
+    // Выгрузка всех игроков курсором; прочитанные сущности отсоединяются, поэтому память не растёт.
+    // Выгрузка не держит блокировку чтения счётчиков: у игрока из порции, записанной во время выгрузки,
+    // голы этой порции могут быть учтены дважды или не учтены
+    @Transactional(readOnly = true)
+    public void streamAllPlayers(Consumer<Player> consumer) {
+        try (Stream<Player> players = playerRepository.streamAllByOrderByIdAsc()) {
+            players.forEach(player -> {
+                entityManager.detach(player);
+                consumer.accept(withPendingGoals(player));
+            });
+        }
     }
 
     public Optional<Player> getPlayerById(Long id) {
-        return playerRepository.findById(id);
+        return goalCounter.read(() -> playerRepository.findById(id).map(this::withPendingGoals));
     }
 
     public List<Player> getPlayersByTeam(Long teamId) {
-        return playerRepository.findByTeamId(teamId);
+        return goalCounter.read(() -> withPendingGoals(playerRepository.findByTeamId(teamId)));
     }
 
     public List<Player> getPlayersByPosition(String position) {
-        return playerRepository.findByPosition(position);
+        return goalCounter.read(() -> withPendingGoals(playerRepository.findByPosition(position)));
     }
 
-    public List<Player> getTopScorers(Integer limit) {
-        List<Player> allPlayers = playerRepository.findAllByOrderByGoalsScoredDesc();
-        return limit != null && limit < allPlayers.size() ?
-                allPlayers.subList(0, limit) : allPlayers;
+    // LIMIT выполняется в БД, возвращаются проекции без гидрации сущностей.
+    // Порядок - по записанным в БД голам, значения - с учётом ещё не записанных
+    public List<PlayerSummary> getTopScorers(Integer limit) {
+        if (limit != null && limit <= 0) {
+            return List.of();
+        }
+        return goalCounter.read(() ->
+                playerRepository.findTopScorers(limit != null ? PageRequest.of(0, limit) : Pageable.unpaged())
+                        .stream().map(this::withPendingGoals).toList());
     }
 
     public boolean existsByTeamIdAndJerseyNumber(Long teamId, Integer jerseyNumber) {
@@ -51,7 +103,7 @@ public class PlayerService {
     @Transactional
     public Player createPlayer(Player player) {
         // Проверка существования команды
-        if (!teamRepository.existsById(player.getTeamId())) {
+        if (!referenceDataCache.teamExists(player.getTeamId())) {
             throw new RuntimeException("Team not found with ID: " + player.getTeamId());
         }
 
@@ -67,7 +119,10 @@ public class PlayerService {
             player.setGoalsScored(0);
         }
 
-        return playerRepository.save(player);
+        Player savedPlayer = playerRepository.save(player);
+        TransactionCallbacks.afterCommit(() ->
+                nameSearchIndex.put(NameSearchIndex.Kind.PLAYER, savedPlayer.getId(), savedPlayer.getName()));
+        return savedPlayer;
     }
 
     @Transactional
@@ -78,7 +133,7 @@ public class PlayerService {
         // Проверка команды (если меняется)
         if (playerDetails.getTeamId() != null &&
                 !playerDetails.getTeamId().equals(player.getTeamId())) {
-            if (!teamRepository.existsById(playerDetails.getTeamId())) {
+            if (!referenceDataCache.teamExists(playerDetails.getTeamId())) {
                 throw new RuntimeException("Team not found with ID: " + playerDetails.getTeamId());
             }
             player.setTeamId(playerDetails.getTeamId());
@@ -104,11 +159,18 @@ public class PlayerService {
         if (playerDetails.getAge() != null) {
             player.setAge(playerDetails.getAge());
         }
+        String name = player.getName();
+        TransactionCallbacks.afterCommit(() -> nameSearchIndex.put(NameSearchIndex.Kind.PLAYER, id, name));
+        Player saved = playerRepository.save(player);
+
         if (playerDetails.getGoalsScored() != null) {
-            player.setGoalsScored(playerDetails.getGoalsScored());
+            // Явно заданное значение заменяет и ещё не записанные голы. Записывается после коммита под блокировкой
+            // записи счётчика: при откате накопленные голы остаются, порция не ложится поверх нового значения
+            int goals = playerDetails.getGoalsScored();
+            TransactionCallbacks.afterCommit(() -> goalCounter.replace(id, goals));
+            saved.setGoalsScored(goals);
         }
-
-        return playerRepository.save(player);
+        return saved;
     }
 
     @Transactional
@@ -118,16 +180,53 @@ public class PlayerService {
         }
 
         playerRepository.deleteById(id);
+        TransactionCallbacks.afterCommit(() -> goalCounter.discard(id));
+        TransactionCallbacks.afterCommit(() -> nameSearchIndex.remove(NameSearchIndex.Kind.PLAYER, id));
     }
 
     // Бизнес-операция: Забить гол
     @Transactional
     public Player scoreGoal(Long playerId) {
-        Player player = playerRepository.findById(playerId)
+        if (!goalCounter.isWriteBehind()) {
+            return recordGoal(findPlayer(playerId));
+        }
+        // Игрок и ещё не записанные голы читаются согласованно (в write-behind здесь нет записи в БД)
+        return goalCounter.read(() -> recordGoal(findPlayer(playerId)));
+    }
+
+    private Player findPlayer(Long playerId) {
+        return playerRepository.findById(playerId)
                 .orElseThrow(() -> new RuntimeException("Player not found with ID: " + playerId));
+    }
 
-        player.setGoalsScored(player.getGoalsScored() + 1);
-        return playerRepository.save(player);
+    // Гол уже загруженному игроку: write-behind - в счётчик в памяти, write-through - атомарным UPDATE.
+    // Сущность отсоединяется, чтобы итоговое значение не записалось обратно поверх параллельных голов.
+    // В счётчик гол попадает только после коммита (откат не оставляет гол в памяти), поэтому в ответ он добавляется здесь
+    @Transactional
+    public Player recordGoal(Player player) {
+        if (goalCounter.isWriteBehind()) {
+            Long playerId = player.getId();
+            Player scored = withPendingGoals(player);
+            entityManager.detach(scored);
+            scored.setGoalsScored(goalsOf(scored) + 1);
+            TransactionCallbacks.afterCommit(() -> goalCounter.add(playerId, 1));
+            return scored;
+        }
+
+        playerRepository.incrementGoals(player.getId(), 1);
+        entityManager.detach(player);
+        player.setGoalsScored(goalsOf(player) + 1);
+        return player;
+    }
+
+    // Управление счётчиками голов: записать накопленное сейчас
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int flushGoals() {
+        return goalCounter.flush();
+    }
+
+    public Map<String, Object> getGoalCounterStats() {
+        return goalCounter.getStats();
     }
 
     // Бизнес-операция: Перевести игрока в другую команду
@@ -136,7 +235,7 @@ public class PlayerService {
         Player player = playerRepository.findById(playerId)
                 .orElseThrow(() -> new RuntimeException("Player not found with ID: " + playerId));
 
-        if (!teamRepository.existsById(newTeamId)) {
+        if (!referenceDataCache.teamExists(newTeamId)) {
             throw new RuntimeException("New team not found with ID: " + newTeamId);
         }
 
@@ -156,51 +255,80 @@ public class PlayerService {
     }
 
     // Бизнес-операция: Получить статистику команды по игрокам
-    public Map<String, Object> getTeamPlayerStatistics(Long teamId) {
-        List<Player> players = getPlayersByTeam(teamId);
+    // Агрегаты считаются в БД (COUNT/AVG/SUM и GROUP BY по позициям), игроки в память не загружаются
+    @Transactional(readOnly = true)
+    public TeamPlayerStatistics getTeamPlayerStatistics(Long teamId) {
+        // Агрегаты из БД и ещё не записанные голы - согласованно (см. GoalCounter.read)
+        return goalCounter.read(() -> teamPlayerStatistics(teamId));
+    }
 
-        if (players.isEmpty()) {
-            return Map.of(
-                    "totalPlayers", 0,
-                    "averageAge", 0.0,
-                    "totalGoals", 0,
-                    "topScorer", "No players"
-            );
+    private TeamPlayerStatistics teamPlayerStatistics(Long teamId) {
+        PlayerAggregate aggregate = playerRepository.aggregateByTeamId(teamId);
+        if (aggregate.players() == 0) {
+            return new TeamPlayerStatistics(0, 0.0, 0, "No players", Map.of());
         }
 
-        double averageAge = players.stream()
-                .mapToInt(Player::getAge)
-                .average()
-                .orElse(0.0);
+        // Ещё не записанные голы игроков этой команды
+        long totalGoals = aggregate.goals() != null ? aggregate.goals() : 0;
+        List<PlayerSummary> candidates = new ArrayList<>(
+                playerRepository.findTopScorersByTeamId(teamId, PageRequest.of(0, 1)));
+        Map<Long, Long> pendingGoals = goalCounter.pendingSnapshot();
+        if (!pendingGoals.isEmpty()) {
+            for (PlayerSummary player : playerRepository.findSummariesByTeamIdAndIdIn(teamId, pendingGoals.keySet())) {
+                totalGoals += pendingGoals.get(player.id());
+                candidates.add(player);
+            }
+        }
+
+        PlayerSummary topScorer = candidates.stream()
+                .map(this::withPendingGoals)
+                .min(Comparator.comparing((PlayerSummary p) -> p.goalsScored() != null ? p.goalsScored() : 0,
+                        Comparator.reverseOrder()).thenComparing(PlayerSummary::id))
+                .orElseThrow();
+
+        double averageAge = aggregate.averageAge() != null ? aggregate.averageAge() : 0.0;
+        return new TeamPlayerStatistics(
+                aggregate.players(),
+                Math.round(averageAge * 100.0) / 100.0,
+                totalGoals,
+                topScorer.name() + " (" + topScorer.goalsScored() + " goals)",
+                CountByKey.toMap(playerRepository.countByPositionForTeam(teamId)));
+    }
 
-        int totalGoals = players.stream()
-                .mapToInt(Player::getGoalsScored)
-                .sum();
+    // Значение с учётом ещё не записанных голов; изменённая сущность отсоединяется
+    private Player withPendingGoals(Player player) {
+        long pendingGoals = goalCounter.pendingFor(player.getId());
+        if (pendingGoals != 0) {
+            entityManager.detach(player);
+            player.setGoalsScored(goalsOf(player) + (int) pendingGoals);
+        }
+        return player;
+    }
 
-        Optional<Player> topScorer = players.stream()
-                .max((p1, p2) -> Integer.compare(p1.getGoalsScored(), p2.getGoalsScored()));
+    private List<Player> withPendingGoals(List<Player> players) {
+        players.forEach(this::withPendingGoals);
+        return players;
+    }
 
-        // Распределение по позициям
-        Map<String, Long> positionDistribution = players.stream()
-                .filter(p -> p.getPosition() != null)
-                .collect(Collectors.groupingBy(Player::getPosition, Collectors.counting()));
+    private PlayerSummary withPendingGoals(PlayerSummary summary) {
+        long pendingGoals = goalCounter.pendingFor(summary.id());
+        if (pendingGoals == 0) {
+            return summary;
+        }
+        int goals = (summary.goalsScored() != null ? summary.goalsScored() : 0) + (int) pendingGoals;
+        return new PlayerSummary(summary.id(), summary.name(), summary.teamId(), summary.position(),
+                summary.jerseyNumber(), goals);
+    }
 
-        return Map.of(
-                "totalPlayers", players.size(),
-                "averageAge", Math.round(averageAge * 100.0) / 100.0,
-                "totalGoals", totalGoals,
-                "topScorer", topScorer.map(p -> p.getName() + " (" + p.getGoalsScored() + " goals)").orElse("No scorer"),
-                "positionDistribution", positionDistribution
-        );
+    private static int goalsOf(Player player) {
+        return player.getGoalsScored() != null ? player.getGoalsScored() : 0;
     }
 
-    // Бизнес-операция: Обновить возраст всех игроков (имитация нового сезона)
+    // Бизнес-операция: Обновить возраст всех игроков (имитация нового сезона) - одним UPDATE
     @Transactional
-    public void incrementAllPlayersAge() {
-        List<Player> allPlayers = getAllPlayers();
-        allPlayers.forEach(player -> {
-            player.setAge(player.getAge() + 1);
-            playerRepository.save(player);
-        });
+    public Map<String, Object> incrementAllPlayersAge() {
+        BulkOperationReport report = new BulkOperationReport();
+        report.step("playersUpdated", playerRepository::incrementAllAges);
+        return report.toMap();
     }
 }
\ No newline at end of file
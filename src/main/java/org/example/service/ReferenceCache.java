@@ -0,0 +1,107 @@
+package org.example.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// Ограниченный кэш справочных данных: не больше maxSize записей (вытесняется давно не читанная), каждая живёт ttl.
+// Отсутствие значения тоже кэшируется. Хранится и отдаётся копия, поэтому изменение полученного объекта кэш не портит.
+// Значение, загруженное параллельно с инвалидацией, не сохраняется (сравнение поколений до и после загрузки),
+// поэтому после коммита изменения устаревшая запись в кэше не появится
+final class ReferenceCache<K, V> {
+
+    private record Entry<V>(Optional<V> value, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final UnaryOperator<V> copier;
+
+    // Порядок доступа - для вытеснения давно не читанных записей
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    ReferenceCache(int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.copier = copier;
+    }
+
+    Optional<V> get(K key, Function<K, Optional<V>> loader) {
+        long loadedGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() - System.nanoTime() > 0) {
+                    hits.increment();
+                    return entry.value().map(copier);
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+            loadedGeneration = generation;
+        }
+
+        misses.increment();
+        Optional<V> value = loader.apply(key);
+        Optional<V> stored = value.map(copier);
+        synchronized (this) {
+            if (generation == loadedGeneration) {
+                entries.put(key, new Entry<>(stored, System.nanoTime() + ttlNanos));
+                evictOverflow();
+            }
+        }
+        return value;
+    }
+
+    synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+        invalidations.increment();
+    }
+
+    synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        invalidations.increment();
+    }
+
+    Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMs", ttlNanos / 1_000_000);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests > 0 ? (double) hitCount / requests : 0.0);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private void evictOverflow() {
+        Iterator<K> eldest = entries.keySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.service;
+
+import org.example.model.Team;
+import org.example.model.Venue;
+import org.example.repository.TeamRepository;
+import org.example.repository.VenueRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Кэш команд и арен для поиска по ID и названию (проверки существования при записи матчей, игроков, таблицы).
+// Размер и время жизни - app.reference-cache.*; записи сбрасываются после коммита изменений команд и арен,
+// в том числе очков команд, которые пишет таблица. Названия меняются редко - при любом изменении
+// кэш названий сбрасывается целиком
+@Component
+public class ReferenceDataCache {
+
+    private final TeamRepository teamRepository;
+    private final VenueRepository venueRepository;
+
+    private final ReferenceCache<Long, Team> teamsById;
+    private final ReferenceCache<String, Long> teamIdsByName;
+    private final ReferenceCache<Long, Venue> venuesById;
+    private final ReferenceCache<String, Long> venueIdsByName;
+
+    public ReferenceDataCache(TeamRepository teamRepository,
+                              VenueRepository venueRepository,
+                              @Value("${app.reference-cache.max-size:10000}") int maxSize,
+                              @Value("${app.reference-cache.ttl-ms:300000}") long ttlMs) {
+        if (maxSize <= 0 || ttlMs <= 0) {
+            throw new IllegalStateException("app.reference-cache.max-size and ttl-ms must be positive");
+        }
+        this.teamRepository = teamRepository;
+        this.venueRepository = venueRepository;
+        this.teamsById = new ReferenceCache<>(maxSize, ttlMs, ReferenceDataCache::copyOf);
+        this.teamIdsByName = new ReferenceCache<>(maxSize, ttlMs, id -> id);
+        this.venuesById = new ReferenceCache<>(maxSize, ttlMs, ReferenceDataCache::copyOf);
+        this.venueIdsByName = new ReferenceCache<>(maxSize, ttlMs, id -> id);
+    }
+
+    public Optional<Team> findTeam(Long id) {
+        return teamsById.get(id, teamRepository::findById);
+    }
+
+    public Optional<Team> findTeamByName(String name) {
+        return teamIdsByName.get(name, n -> teamRepository.findByName(n).map(Team::getId))
+                .flatMap(this::findTeam);
+    }
+
+    public boolean teamExists(Long id) {
+        return findTeam(id).isPresent();
+    }
+
+    public Optional<Venue> findVenue(Long id) {
+        return venuesById.get(id, venueRepository::findById);
+    }
+
+    public Optional<Venue> findVenueByName(String name) {
+        return venueIdsByName.get(name, n -> venueRepository.findByName(n).map(Venue::getId))
+                .flatMap(this::findVenue);
+    }
+
+    public boolean venueExists(Long id) {
+        return findVenue(id).isPresent();
+    }
+
+    // Сбросить записи после коммита текущей транзакции (при откате кэш не трогается)
+    public void invalidateTeam(Long id) {
+        TransactionCallbacks.afterCommit(() -> {
+            teamsById.invalidate(id);
+            teamIdsByName.invalidateAll();
+        });
+    }
+
+    // Изменились только очки - названия не трогаем
+    public void invalidateTeamPoints(Collection<Long> ids) {
+        TransactionCallbacks.afterCommit(() -> ids.forEach(teamsById::invalidate));
+    }
+
+    public void invalidateAllTeams() {
+        TransactionCallbacks.afterCommit(() -> {
+            teamsById.invalidateAll();
+            teamIdsByName.invalidateAll();
+        });
+    }
+
+    public void invalidateVenue(Long id) {
+        TransactionCallbacks.afterCommit(() -> {
+            venuesById.invalidate(id);
+            venueIdsByName.invalidateAll();
+        });
+    }
+
+    public Map<String, Object> getTeamStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", teamsById.getStats());
+        stats.put("byName", teamIdsByName.getStats());
+        return stats;
+    }
+
+    public Map<String, Object> getVenueStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byId", venuesById.getStats());
+        stats.put("byName", venueIdsByName.getStats());
+        return stats;
+    }
+
+    private static Team copyOf(Team team) {
+        Team copy = new Team();
+        copy.setId(team.getId());
+        copy.setName(team.getName());
+        copy.setCity(team.getCity());
+        copy.setCoachName(team.getCoachName());
+        copy.setFoundationYear(team.getFoundationYear());
+        copy.setPoints(team.getPoints());
+        return copy;
+    }
+
+    private static Venue copyOf(Venue venue) {
+        Venue copy = new Venue();
+        copy.setId(venue.getId());
+        copy.setName(venue.getName());
+        copy.setCity(venue.getCity());
+        copy.setCapacity(venue.getCapacity());
+        copy.setFieldType(venue.getFieldType());
+        return copy;
+    }
+}
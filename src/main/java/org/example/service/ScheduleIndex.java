@@ -0,0 +1,307 @@
+package org.example.service;
+
+import org.example.model.Match;
+import org.example.repository.MatchRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Индекс расписания в памяти: для каждой команды и арены - упорядоченное по времени начала множество матчей.
+// Все матчи длятся MATCH_DURATION, поэтому пересечение интервалов сводится к поиску начала
+// в окне (start - duration, start + duration) - O(log n) на проверку.
+// Создание и перенос матчей бронируют слот через reserve(): проверка и бронь выполняются под одной блокировкой
+// и видны другим транзакциям сразу, до коммита; при откате бронь снимается. Индекс один на процесс -
+// защита рассчитана на один экземпляр приложения.
+@Component
+public class ScheduleIndex {
+
+    public static final Duration MATCH_DURATION = Duration.ofHours(2);
+
+    // Завершённые и отменённые матчи не занимают расписание
+    public static final Set<String> INACTIVE_STATUSES = Set.of("FINISHED", "CANCELLED");
+
+    private record Slot(LocalDateTime start, long matchId) {
+    }
+
+    private record Booking(long matchId, Long homeTeamId, Long awayTeamId, Long venueId, LocalDateTime start) {
+    }
+
+    public record Conflict(String resource, Long resourceId, Long matchId) {
+    }
+
+    private static final Comparator<Slot> ORDER =
+            Comparator.comparing(Slot::start).thenComparingLong(Slot::matchId);
+
+    private final MatchRepository matchRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, NavigableSet<Slot>> byTeam = new HashMap<>();
+    private final Map<Long, NavigableSet<Slot>> byVenue = new HashMap<>();
+    private final Map<Long, Booking> bookings = new HashMap<>();
+    // Брони незавершённых транзакций: переживают перезагрузку индекса
+    private final Map<Long, Booking> pending = new HashMap<>();
+    // Изменения, пришедшие во время загрузки из БД, применяются повторно к загруженному индексу
+    private final List<Consumer<ScheduleIndex>> changesDuringLoad = new ArrayList<>();
+    private boolean loading;
+
+    public ScheduleIndex(MatchRepository matchRepository) {
+        this.matchRepository = matchRepository;
+    }
+
+    // Заполнение из БД: только матчи, которые ещё занимают расписание
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changesDuringLoad.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<Match> matches = null;
+        try {
+            matches = matchRepository.findByStatusNotIn(INACTIVE_STATUSES);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // Если загрузка не удалась, индекс остаётся прежним: изменения уже применены к нему
+                if (matches != null) {
+                    byTeam.clear();
+                    byVenue.clear();
+                    bookings.clear();
+                    matches.forEach(this::putLocked);
+                    changesDuringLoad.forEach(change -> change.accept(this));
+                    pending.values().forEach(this::replaceLocked);
+                }
+                loading = false;
+                changesDuringLoad.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Добавить/обновить матч; неактивные матчи удаляются из индекса
+    public void put(Match match) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(match.getId());
+            putLocked(match);
+            if (loading) {
+                changesDuringLoad.add(index -> {
+                    index.removeLocked(match.getId());
+                    index.putLocked(match);
+                });
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long matchId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(matchId);
+            if (loading) {
+                changesDuringLoad.add(index -> index.removeLocked(matchId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Проверить и забронировать слоты матчей (у матчей уже есть ID; сам матч в проверке не участвует).
+    // Проверка учитывает и брони других незавершённых транзакций, и матчи, забронированные ранее в этой же.
+    // При конфликте брони этого вызова снимаются и бросается исключение; при откате транзакции
+    // прежние записи матчей восстанавливаются. Неактивные матчи слотов не занимают
+    public void reserve(List<Match> matches) {
+        List<Booking> reserved = new ArrayList<>();
+        List<Booking> previous = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (Match match : matches) {
+                if (match.getMatchDate() == null || INACTIVE_STATUSES.contains(match.getStatus())) {
+                    continue;
+                }
+                Optional<Conflict> conflict = findConflictLocked(match.getHomeTeamId(), match.getAwayTeamId(),
+                        match.getVenueId(), match.getMatchDate(), match.getId());
+                if (conflict.isPresent()) {
+                    for (int i = reserved.size() - 1; i >= 0; i--) {
+                        release(reserved.get(i), previous.get(i));
+                    }
+                    Conflict found = conflict.get();
+                    throw new RuntimeException(("venue".equals(found.resource()) ? "Venue" : "Team")
+                            + " has scheduling conflict with match ID: " + found.matchId());
+                }
+                Booking booking = toBooking(match);
+                previous.add(bookings.get(booking.matchId()));
+                replaceLocked(booking);
+                pending.put(booking.matchId(), booking);
+                reserved.add(booking);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (reserved.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            completed(reserved, previous, true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                completed(reserved, previous, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    public void reserve(Match match) {
+        reserve(List.of(match));
+    }
+
+    // Первый найденный конфликт для матча (excludeMatchId - сам матч при обновлении, может быть null)
+    public Optional<Conflict> findConflict(Long homeTeamId, Long awayTeamId, Long venueId,
+                                           LocalDateTime start, Long excludeMatchId) {
+        lock.readLock().lock();
+        try {
+            return findConflictLocked(homeTeamId, awayTeamId, venueId, start, excludeMatchId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Optional<Conflict> findConflictLocked(Long homeTeamId, Long awayTeamId, Long venueId,
+                                                  LocalDateTime start, Long excludeMatchId) {
+        long exclude = excludeMatchId != null ? excludeMatchId : Long.MIN_VALUE;
+        Long conflict = overlapping(byTeam.get(homeTeamId), start, exclude);
+        if (conflict != null) {
+            return Optional.of(new Conflict("team", homeTeamId, conflict));
+        }
+        conflict = overlapping(byTeam.get(awayTeamId), start, exclude);
+        if (conflict != null) {
+            return Optional.of(new Conflict("team", awayTeamId, conflict));
+        }
+        if (venueId != null) {
+            conflict = overlapping(byVenue.get(venueId), start, exclude);
+            if (conflict != null) {
+                return Optional.of(new Conflict("venue", venueId, conflict));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Транзакция завершена: после коммита брони остаются в индексе как обычные записи,
+    // после отката снимаются (если запись матча с тех пор не менялась) и прежние записи возвращаются
+    private void completed(List<Booking> reserved, List<Booking> previous, boolean committed) {
+        lock.writeLock().lock();
+        try {
+            for (int i = reserved.size() - 1; i >= 0; i--) {
+                Booking booking = reserved.get(i);
+                pending.remove(booking.matchId(), booking);
+                if (!committed) {
+                    release(booking, previous.get(i));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void release(Booking booking, Booking previous) {
+        pending.remove(booking.matchId(), booking);
+        if (!booking.equals(bookings.get(booking.matchId()))) {
+            return;
+        }
+        removeLocked(booking.matchId());
+        if (previous != null) {
+            replaceLocked(previous);
+        }
+    }
+
+    private static Long overlapping(NavigableSet<Slot> slots, LocalDateTime start, long excludeMatchId) {
+        if (slots == null) {
+            return null;
+        }
+        Slot from = new Slot(start.minus(MATCH_DURATION), Long.MAX_VALUE);
+        Slot to = new Slot(start.plus(MATCH_DURATION), Long.MIN_VALUE);
+        for (Slot slot : slots.subSet(from, false, to, false)) {
+            if (slot.matchId() != excludeMatchId) {
+                return slot.matchId();
+            }
+        }
+        return null;
+    }
+
+    private void putLocked(Match match) {
+        if (match.getId() == null || match.getMatchDate() == null || INACTIVE_STATUSES.contains(match.getStatus())) {
+            return;
+        }
+        addLocked(toBooking(match));
+    }
+
+    private static Booking toBooking(Match match) {
+        return new Booking(match.getId(), match.getHomeTeamId(), match.getAwayTeamId(),
+                match.getVenueId(), match.getMatchDate());
+    }
+
+    private void replaceLocked(Booking booking) {
+        removeLocked(booking.matchId());
+        addLocked(booking);
+    }
+
+    private void addLocked(Booking booking) {
+        bookings.put(booking.matchId(), booking);
+
+        Slot slot = new Slot(booking.start(), booking.matchId());
+        byTeam.computeIfAbsent(booking.homeTeamId(), id -> new TreeSet<>(ORDER)).add(slot);
+        byTeam.computeIfAbsent(booking.awayTeamId(), id -> new TreeSet<>(ORDER)).add(slot);
+        if (booking.venueId() != null) {
+            byVenue.computeIfAbsent(booking.venueId(), id -> new TreeSet<>(ORDER)).add(slot);
+        }
+    }
+
+    private void removeLocked(Long matchId) {
+        Booking booking = bookings.remove(matchId);
+        if (booking == null) {
+            return;
+        }
+
+        Slot slot = new Slot(booking.start(), booking.matchId());
+        removeSlot(byTeam, booking.homeTeamId(), slot);
+        removeSlot(byTeam, booking.awayTeamId(), slot);
+        if (booking.venueId() != null) {
+            removeSlot(byVenue, booking.venueId(), slot);
+        }
+    }
+
+    private static void removeSlot(Map<Long, NavigableSet<Slot>> index, Long key, Slot slot) {
+        NavigableSet<Slot> slots = index.get(key);
+        if (slots != null) {
+            slots.remove(slot);
+            if (slots.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.model.Venue;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Генератор расписания сезона (двойной круг):
+// 1) пары туров - круговой метод Бергера, второй круг зеркален первому со сменой хозяев;
+// 2) хозяева пар первого круга подбираются параллельным локальным поиском - минимум серий "дом-дом"/"выезд-выезд"
+//    (в потоках собственного пула: общий ForkJoinPool на время поиска не занимается);
+// 3) матчи жадно раскладываются по дням, времени и аренам: арена не занята, у команд есть отдых.
+@Component
+public class SeasonScheduleGenerator {
+
+    private static final int SEARCH_ITERATIONS = 200_000;
+    // Температура отжига: в начале допускаются ухудшения, к концу поиск становится жадным
+    private static final double START_TEMPERATURE = 2.0;
+    private static final double END_TEMPERATURE = 0.02;
+    // Штраф за третий и следующие матчи подряд дома или в гостях
+    private static final int LONG_RUN_PENALTY = 3;
+    private static final long SEARCH_SEED = 0x5EA5_0F1CL;
+
+    private static final byte BYE = 0;
+    private static final byte HOME = 1;
+    private static final byte AWAY = 2;
+
+    private final ScheduleIndex scheduleIndex;
+
+    private final int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private final ExecutorService pool;
+
+    public SeasonScheduleGenerator(ScheduleIndex scheduleIndex) {
+        this.scheduleIndex = scheduleIndex;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "season-schedule-search-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public record Settings(LocalDate startDate,
+                           List<LocalTime> kickoffTimes,
+                           int daysBetweenRounds,
+                           int roundSpanDays,
+                           int minRestDays) {
+    }
+
+    public record Fixture(int round, Long homeTeamId, Long awayTeamId, Long venueId, LocalDateTime kickoff) {
+    }
+
+    public record Schedule(List<Fixture> fixtures, int rounds, int initialBreaks, int breaks) {
+    }
+
+    // teamCities - город команды для выбора домашней арены (может отсутствовать)
+    public Schedule generate(List<Long> teamIds, List<Venue> venues, Map<Long, String> teamCities, Settings settings) {
+        Pairings pairings = Pairings.berger(teamIds.size());
+
+        boolean[][] initial = pairings.initialOrientation();
+        boolean[][] orientation = optimizeHomeAway(pairings, initial);
+
+        List<Fixture> fixtures = assignSlots(pairings, orientation, teamIds, venues, teamCities, settings);
+        return new Schedule(fixtures, pairings.rounds * 2,
+                pairings.totalBreaks(initial), pairings.totalBreaks(orientation));
+    }
+
+    // Несколько независимых поисков с разными генераторами; берётся лучший результат
+    private boolean[][] optimizeHomeAway(Pairings pairings, boolean[][] initial) {
+        SplittableRandom root = new SplittableRandom(SEARCH_SEED);
+
+        List<Future<LocalSearch>> tasks = new ArrayList<>();
+        for (int w = 0; w < parallelism; w++) {
+            LocalSearch search = new LocalSearch(pairings, initial, root.split());
+            tasks.add(pool.submit(search, search));
+        }
+
+        LocalSearch best = null;
+        for (Future<LocalSearch> task : tasks) {
+            LocalSearch search = await(task);
+            if (best == null || search.bestCost < best.bestCost) {
+                best = search;
+            }
+        }
+        return best.best;
+    }
+
+    private static LocalSearch await(Future<LocalSearch> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Schedule search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Schedule search failed", e.getCause());
+        }
+    }
+
+    private List<Fixture> assignSlots(Pairings pairings, boolean[][] orientation, List<Long> teamIds,
+                                      List<Venue> venues, Map<Long, String> teamCities, Settings settings) {
+        // Арены в городе хозяина - первыми
+        List<List<Venue>> candidates = new ArrayList<>();
+        for (Long teamId : teamIds) {
+            String city = teamCities.get(teamId);
+            List<Venue> ordered = new ArrayList<>();
+            venues.stream().filter(v -> city != null && city.equals(v.getCity())).forEach(ordered::add);
+            venues.stream().filter(v -> city == null || !city.equals(v.getCity())).forEach(ordered::add);
+            candidates.add(ordered);
+        }
+
+        LocalDate[] lastMatchDay = new LocalDate[teamIds.size()];
+        Map<Long, NavigableSet<LocalDateTime>> venueBookings = new HashMap<>();
+        // Тур может сдвинуться не дальше начала следующего окна
+        int searchDays = settings.roundSpanDays() + settings.daysBetweenRounds();
+
+        List<Fixture> fixtures = new ArrayList<>();
+        for (int round = 0; round < pairings.rounds * 2; round++) {
+            LocalDate roundStart = settings.startDate().plusDays((long) round * settings.daysBetweenRounds());
+
+            for (int k = 0; k < pairings.pairsPerRound; k++) {
+                int home = pairings.homeOf(orientation, round, k);
+                if (home < 0) {
+                    continue; // пара с фиктивной командой - выходной
+                }
+                int away = pairings.awayOf(orientation, round, k);
+
+                Fixture fixture = place(round, teamIds.get(home), teamIds.get(away), candidates.get(home),
+                        lastMatchDay[home], lastMatchDay[away], roundStart, searchDays, venueBookings, settings);
+                if (fixture == null) {
+                    throw new RuntimeException("Cannot schedule round " + (round + 1)
+                            + ": not enough free venue slots or rest days");
+                }
+
+                fixtures.add(fixture);
+                lastMatchDay[home] = fixture.kickoff().toLocalDate();
+                lastMatchDay[away] = fixture.kickoff().toLocalDate();
+            }
+        }
+        return fixtures;
+    }
+
+    // Первый подходящий слот: раньше день, раньше время, предпочтительная арена
+    private Fixture place(int round, Long homeTeamId, Long awayTeamId, List<Venue> candidates,
+                          LocalDate homeLast, LocalDate awayLast, LocalDate roundStart, int searchDays,
+                          Map<Long, NavigableSet<LocalDateTime>> venueBookings, Settings settings) {
+        for (int d = 0; d < searchDays; d++) {
+            LocalDate day = roundStart.plusDays(d);
+            if (!rested(homeLast, day, settings.minRestDays()) || !rested(awayLast, day, settings.minRestDays())) {
+                continue;
+            }
+            for (LocalTime time : settings.kickoffTimes()) {
+                LocalDateTime kickoff = day.atTime(time);
+                for (Venue venue : candidates) {
+                    NavigableSet<LocalDateTime> bookings = venueBookings.computeIfAbsent(venue.getId(), id -> new TreeSet<>());
+                    boolean free = bookings.subSet(kickoff.minus(ScheduleIndex.MATCH_DURATION), false,
+                            kickoff.plus(ScheduleIndex.MATCH_DURATION), false).isEmpty();
+                    // Уже существующие матчи команд и арены
+                    if (free && scheduleIndex.findConflict(homeTeamId, awayTeamId, venue.getId(), kickoff, null).isEmpty()) {
+                        bookings.add(kickoff);
+                        return new Fixture(round + 1, homeTeamId, awayTeamId, venue.getId(), kickoff);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean rested(LocalDate lastMatchDay, LocalDate day, int minRestDays) {
+        return lastMatchDay == null || ChronoUnit.DAYS.between(lastMatchDay, day) - 1 >= minRestDays;
+    }
+
+    // Пары туров первого круга в примитивных массивах. Ориентация пары: true - хозяин first[r][k]
+    private static final class Pairings {
+
+        final int teams;
+        final int rounds;
+        final int pairsPerRound;
+        final int[][] first;
+        final int[][] second;
+        // Номер пары команды в туре первого круга, -1 - выходной
+        final int[][] pairOf;
+
+        private Pairings(int teams, int rounds, int pairsPerRound) {
+            this.teams = teams;
+            this.rounds = rounds;
+            this.pairsPerRound = pairsPerRound;
+            this.first = new int[rounds][pairsPerRound];
+            this.second = new int[rounds][pairsPerRound];
+            this.pairOf = new int[teams][rounds];
+        }
+
+        // Круговой метод: команда 0 на месте, остальные сдвигаются на одну позицию каждый тур.
+        // При нечётном числе команд добавляется фиктивная (её соперник отдыхает)
+        static Pairings berger(int teams) {
+            int slots = teams % 2 == 0 ? teams : teams + 1;
+            Pairings pairings = new Pairings(teams, slots - 1, slots / 2);
+
+            int[] positions = new int[slots];
+            for (int i = 0; i < slots; i++) {
+                positions[i] = i;
+            }
+
+            for (int r = 0; r < pairings.rounds; r++) {
+                for (int t = 0; t < teams; t++) {
+                    pairings.pairOf[t][r] = -1;
+                }
+                for (int k = 0; k < pairings.pairsPerRound; k++) {
+                    int a = positions[k];
+                    int b = positions[slots - 1 - k];
+                    pairings.first[r][k] = a;
+                    pairings.second[r][k] = b;
+                    if (a < teams && b < teams) {
+                        pairings.pairOf[a][r] = k;
+                        pairings.pairOf[b][r] = k;
+                    }
+                }
+
+                int last = positions[slots - 1];
+                System.arraycopy(positions, 1, positions, 2, slots - 2);
+                positions[1] = last;
+            }
+            return pairings;
+        }
+
+        boolean isBye(int r, int k) {
+            return first[r][k] >= teams || second[r][k] >= teams;
+        }
+
+        // Начальная ориентация по таблицам Бергера: пара с неподвижной командой чередует хозяина по турам,
+        // в остальных парах хозяин - верхняя строка при нечётном номере пары (n - 2 серии на круг при чётном n)
+        boolean[][] initialOrientation() {
+            boolean[][] orientation = new boolean[rounds][pairsPerRound];
+            for (int r = 0; r < rounds; r++) {
+                for (int k = 0; k < pairsPerRound; k++) {
+                    orientation[r][k] = k == 0 ? r % 2 == 0 : k % 2 == 1;
+                }
+            }
+            return orientation;
+        }
+
+        // round - номер тура сезона (второй круг: round >= rounds, хозяева меняются)
+        int homeOf(boolean[][] orientation, int round, int k) {
+            int r = round % rounds;
+            if (isBye(r, k)) {
+                return -1;
+            }
+            return orientation[r][k] != (round >= rounds) ? first[r][k] : second[r][k];
+        }
+
+        int awayOf(boolean[][] orientation, int round, int k) {
+            int r = round % rounds;
+            return orientation[r][k] != (round >= rounds) ? second[r][k] : first[r][k];
+        }
+
+        byte venueSide(boolean[][] orientation, int team, int round) {
+            int r = round % rounds;
+            int k = pairOf[team][r];
+            if (k < 0) {
+                return BYE;
+            }
+            boolean firstAtHome = orientation[r][k] != (round >= rounds);
+            return (first[r][k] == team) == firstAtHome ? HOME : AWAY;
+        }
+
+        // Серии команды по всему сезону; withPenalty - добавить штраф за длинные серии
+        int teamCost(boolean[][] orientation, int team, boolean withPenalty) {
+            int cost = 0;
+            int run = 0;
+            byte previous = BYE;
+            for (int round = 0; round < rounds * 2; round++) {
+                byte side = venueSide(orientation, team, round);
+                if (side == BYE) {
+                    continue;
+                }
+                if (side == previous) {
+                    run++;
+                    cost++;
+                    if (withPenalty && run >= 3) {
+                        cost += LONG_RUN_PENALTY;
+                    }
+                } else {
+                    run = 1;
+                }
+                previous = side;
+            }
+            return cost;
+        }
+
+        int totalBreaks(boolean[][] orientation) {
+            int breaks = 0;
+            for (int t = 0; t < teams; t++) {
+                breaks += teamCost(orientation, t, false);
+            }
+            return breaks;
+        }
+    }
+
+    // Локальный поиск (отжиг): смена хозяина в паре первого круга (и зеркально во втором);
+    // улучшающий ход принимается всегда, ухудшающий - с вероятностью exp(-delta / T)
+    private static final class LocalSearch implements Runnable {
+
+        private final Pairings pairings;
+        private final SplittableRandom random;
+        private final boolean[][] current;
+
+        boolean[][] best;
+        int bestCost;
+
+        LocalSearch(Pairings pairings, boolean[][] initial, SplittableRandom random) {
+            this.pairings = pairings;
+            this.random = random;
+            this.current = copy(initial);
+        }
+
+        @Override
+        public void run() {
+            int[] costs = new int[pairings.teams];
+            int total = 0;
+            for (int t = 0; t < pairings.teams; t++) {
+                costs[t] = pairings.teamCost(current, t, true);
+                total += costs[t];
+            }
+            best = copy(current);
+            bestCost = total;
+
+            double cooling = Math.pow(END_TEMPERATURE / START_TEMPERATURE, 1.0 / SEARCH_ITERATIONS);
+            double temperature = START_TEMPERATURE;
+            for (int i = 0; i < SEARCH_ITERATIONS && bestCost > 0; i++, temperature *= cooling) {
+                int r = random.nextInt(pairings.rounds);
+                int k = random.nextInt(pairings.pairsPerRound);
+                if (pairings.isBye(r, k)) {
+                    continue;
+                }
+                int a = pairings.first[r][k];
+                int b = pairings.second[r][k];
+
+                current[r][k] = !current[r][k];
+                int costA = pairings.teamCost(current, a, true);
+                int costB = pairings.teamCost(current, b, true);
+                int delta = costA + costB - costs[a] - costs[b];
+                if (delta > 0 && random.nextDouble() >= Math.exp(-delta / temperature)) {
+                    current[r][k] = !current[r][k];
+                    continue;
+                }
+
+                costs[a] = costA;
+                costs[b] = costB;
+                total += delta;
+                if (total < bestCost) {
+                    bestCost = total;
+                    best = copy(current);
+                }
+            }
+        }
+
+        private static boolean[][] copy(boolean[][] source) {
+            boolean[][] result = new boolean[source.length][];
+            for (int i = 0; i < source.length; i++) {
+                result[i] = source[i].clone();
+            }
+            return result;
+        }
+    }
+}
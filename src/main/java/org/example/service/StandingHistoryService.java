@@ -0,0 +1,486 @@
+package org.example.service;
+
+import org.example.config.SequenceIds;
+import org.example.dto.DatedMatchResult;
+import org.example.model.Standing;
+import org.example.model.StandingsCheckpoint;
+import org.example.repository.MatchRepository;
+import org.example.repository.StandingsCheckpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Турнирная таблица на любую дату.
+// Раз в interval дней (границы от понедельника 2000-01-03) сохраняется контрольная точка - накопленные показатели
+// команд по матчам до границы. Таблица на дату = ближайшая точка + воспроизведение матчей после неё,
+// то есть читается не больше одного интервала матчей вместо всей истории.
+// Изменение завершённого матча удаляет точки после его даты в своей транзакции; фоновое построение досчитывает их заново.
+@Service
+@Transactional
+public class StandingHistoryService {
+
+    private static final LocalDateTime BOUNDARY_ANCHOR = LocalDate.of(2000, 1, 3).atStartOfDay();
+
+    private static final Comparator<int[]> RANKING = Comparator
+            .<int[]>comparingInt(v -> -v[StandingTally.POINTS])
+            .thenComparingInt(v -> -(v[StandingTally.GOALS_FOR] - v[StandingTally.GOALS_AGAINST]))
+            .thenComparingInt(v -> -v[StandingTally.GOALS_FOR]);
+
+    private static final String ROW_INSERT_SQL = """
+            INSERT INTO standings_checkpoint_rows (id, checkpoint_id, team_id, matches_played, wins, draws, losses,
+                goals_for, goals_against, points)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    // Таблица на момент: накопленные показатели, использованная точка и число воспроизведённых матчей
+    private record TallyAt(StandingTally tally, LocalDateTime checkpointAsOf, int replayed) {
+    }
+
+    @Autowired
+    private StandingsCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private MatchRepository matchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.standings-history.checkpoint-interval-days:7}")
+    private int intervalDays;
+
+    @Value("${app.standings-history.max-series-points:1000}")
+    private int maxSeriesPoints;
+
+    // Одновременно строится только один набор точек
+    private final ReentrantLock buildLock = new ReentrantLock();
+    // Инвалидации в ещё не завершённых транзакциях: номер -> дата матча
+    private final Map<Long, LocalDateTime> pendingInvalidations = new ConcurrentHashMap<>();
+    private final AtomicLong invalidationIds = new AtomicLong();
+    // Самая ранняя дата, инвалидированная с начала текущего построения
+    private final AtomicReference<LocalDateTime> invalidatedDuringBuild = new AtomicReference<>();
+
+    // Таблица на конец дня date; since - считать только матчи начиная с этого дня
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStandingsAsOf(LocalDate date, LocalDate since) {
+        if (since != null && since.isAfter(date)) {
+            throw new RuntimeException("since must not be after date");
+        }
+
+        TallyAt at = tallyBefore(date.plusDays(1).atStartOfDay());
+        int replayed = at.replayed();
+        if (since != null) {
+            TallyAt base = tallyBefore(since.atStartOfDay());
+            at.tally().subtract(base.tally());
+            replayed += base.replayed();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("date", date);
+        result.put("since", since);
+        result.put("checkpoint", at.checkpointAsOf());
+        result.put("replayedMatches", replayed);
+        result.put("standings", toStandings(at.tally(), teamsFor(at.tally())));
+        return result;
+    }
+
+    // Позиция команды по датам from, from + stepDays, ... до to. Каждая дата начинается с ближайшей точки
+    // не позже неё, если та новее уже посчитанной даты, иначе досчитываются матчи после предыдущей даты -
+    // так читается не больше интервала точек (или шага) матчей на дату, а не весь период.
+    // Позиция в каждой дате - подсчётом команд выше (O(число команд))
+    @Transactional(readOnly = true)
+    public Map<String, Object> getTeamPositionHistory(Long teamId, LocalDate from, LocalDate to,
+                                                      Integer stepDays, LocalDate since) {
+        if (!referenceDataCache.teamExists(teamId)) {
+            throw new RuntimeException("Team not found with ID: " + teamId);
+        }
+        int step = stepDays != null ? stepDays : intervalDays;
+        LocalDate end = to != null ? to : LocalDate.now();
+        if (step <= 0) {
+            throw new RuntimeException("stepDays must be positive");
+        }
+        if (from.isAfter(end)) {
+            throw new RuntimeException("from must not be after to");
+        }
+        if (since != null && since.isAfter(from)) {
+            throw new RuntimeException("since must not be after from");
+        }
+        long points = ChronoUnit.DAYS.between(from, end) / step + 1;
+        if (points > maxSeriesPoints) {
+            throw new RuntimeException("Too many points in series: " + points + " (max " + maxSeriesPoints
+                    + "), increase stepDays");
+        }
+
+        StandingTally base = null;
+        int replayed = 0;
+        if (since != null) {
+            TallyAt sinceAt = tallyBefore(since.atStartOfDay());
+            base = sinceAt.tally();
+            replayed += sinceAt.replayed();
+        }
+
+        LocalDate lastSample = from.plusDays((points - 1) * step);
+        Set<Long> currentTeams = currentTeamIds();
+        List<Map<String, Object>> series = new ArrayList<>((int) points);
+        StandingTally tally = null;
+        LocalDateTime countedTo = null;
+        LocalDateTime firstCheckpoint = null;
+        int checkpointsUsed = 0;
+        for (LocalDate sample = from; !sample.isAfter(lastSample); sample = sample.plusDays(step)) {
+            LocalDateTime sampleEnd = sample.plusDays(1).atStartOfDay();
+            StandingsCheckpoint checkpoint = checkpointRepository
+                    .findTopByAsOfLessThanEqualOrderByAsOfDesc(sampleEnd).orElse(null);
+            if (tally == null || (checkpoint != null && checkpoint.getAsOf().isAfter(countedTo))) {
+                TallyAt at = tallyFrom(checkpoint, sampleEnd);
+                tally = at.tally();
+                if (base != null) {
+                    tally.subtract(base);
+                }
+                replayed += at.replayed();
+                if (checkpoint != null) {
+                    checkpointsUsed++;
+                }
+                if (series.isEmpty()) {
+                    firstCheckpoint = at.checkpointAsOf();
+                }
+            } else {
+                List<DatedMatchResult> results = matchRepository.findFinishedResultsBetween(countedTo, sampleEnd);
+                for (DatedMatchResult r : results) {
+                    addResult(tally, r);
+                }
+                replayed += results.size();
+            }
+            countedTo = sampleEnd;
+
+            int[] values = tally.get(teamId);
+            Set<Long> teams = new HashSet<>(currentTeams);
+            teams.addAll(tally.teamIds());
+            int position = 1;
+            for (Long other : teams) {
+                if (!other.equals(teamId) && ranksBefore(other, tally.get(other), teamId, values)) {
+                    position++;
+                }
+            }
+
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", sample);
+            point.put("position", position);
+            point.put("teams", teams.size());
+            point.put("matchesPlayed", values[StandingTally.PLAYED]);
+            point.put("points", values[StandingTally.POINTS]);
+            point.put("goalDifference", values[StandingTally.GOALS_FOR] - values[StandingTally.GOALS_AGAINST]);
+            series.add(point);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("teamId", teamId);
+        result.put("from", from);
+        result.put("to", lastSample);
+        result.put("stepDays", step);
+        result.put("since", since);
+        result.put("checkpoint", firstCheckpoint);
+        result.put("checkpointsUsed", checkpointsUsed);
+        result.put("replayedMatches", replayed);
+        result.put("series", series);
+        return result;
+    }
+
+    // Точки после date устарели: изменился завершённый матч этой даты (вызывается в транзакции изменения).
+    // Удаляются в той же транзакции; пока она не завершена, дата видна построению - оно не оставит точку,
+    // посчитанную по данным до изменения. Дата регистрируется до DELETE: иначе точка, закоммиченная построением
+    // между DELETE и регистрацией, осталась бы
+    public void invalidateFrom(LocalDateTime date) {
+        if (date == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markInvalidated(date);
+            deleteCheckpointsAfter(date);
+            return;
+        }
+
+        long invalidationId = invalidationIds.incrementAndGet();
+        pendingInvalidations.put(invalidationId, date);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    markInvalidated(date);
+                }
+                pendingInvalidations.remove(invalidationId);
+            }
+        });
+        deleteCheckpointsAfter(date);
+    }
+
+    // Фоновое досчитывание недостающих точек до текущей даты
+    @Scheduled(fixedDelayString = "${app.standings-history.build-interval-ms:600000}",
+            initialDelayString = "${app.standings-history.build-initial-delay-ms:10000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void buildScheduled() {
+        if (!buildLock.tryLock()) {
+            return;
+        }
+        try {
+            buildCheckpoints();
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // Бизнес-операция: удалить все точки и построить заново
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> rebuildCheckpoints() {
+        long startedAt = System.currentTimeMillis();
+        buildLock.lock();
+        try {
+            Integer deleted = inNewTransaction(() -> deleteCheckpointsAfter(null));
+            int created = buildCheckpoints();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("deleted", deleted);
+            report.put("created", created);
+            report.put("intervalDays", intervalDays);
+            report.put("durationMs", System.currentTimeMillis() - startedAt);
+            return report;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    // От последней точки (или от первого матча) до последней прошедшей границы, по одной границе за шаг.
+    // Интервалы без матчей пропускаются - точка для них совпала бы с предыдущей
+    private int buildCheckpoints() {
+        invalidatedDuringBuild.set(null);
+        LocalDateTime limit = boundaryAtOrBefore(LocalDateTime.now());
+
+        StandingTally tally;
+        LocalDateTime from;
+        StandingsCheckpoint latest = checkpointRepository.findTopByOrderByAsOfDesc().orElse(null);
+        if (latest != null) {
+            tally = loadCheckpoint(latest.getId());
+            from = latest.getAsOf();
+        } else {
+            LocalDateTime earliest = matchRepository.findEarliestFinishedMatchDate();
+            if (earliest == null) {
+                return 0;
+            }
+            tally = new StandingTally();
+            from = boundaryAtOrBefore(earliest);
+        }
+        long matchCount = latest != null ? latest.getMatchCount() : 0;
+
+        List<LocalDateTime> created = new ArrayList<>();
+        while (from.isBefore(limit)) {
+            LocalDateTime to = from.plusDays(intervalDays);
+            List<DatedMatchResult> results = matchRepository.findFinishedResultsBetween(from, to);
+            if (results.isEmpty()) {
+                LocalDateTime nextMatch = matchRepository.findEarliestFinishedMatchDateFrom(to);
+                if (nextMatch == null) {
+                    break;
+                }
+                from = boundaryAtOrBefore(nextMatch);
+                continue;
+            }
+
+            results.forEach(r -> addResult(tally, r));
+            matchCount += results.size();
+            long count = matchCount;
+            LocalDateTime asOf = to;
+            inNewTransaction(() -> saveCheckpoint(asOf, count, tally));
+            created.add(asOf);
+
+            LocalDateTime stale = earliestInvalidation();
+            if (stale != null && stale.isBefore(asOf)) {
+                // Пока считали, изменились матчи до этой точки - точки после их даты могли прочитать старые данные
+                inNewTransaction(() -> deleteCheckpointsAfter(stale));
+                return (int) created.stream().filter(a -> !a.isAfter(stale)).count();
+            }
+            from = to;
+        }
+        return created.size();
+    }
+
+    // Накопленные показатели по матчам до end: ближайшая точка не позже end + матчи [точка, end)
+    private TallyAt tallyBefore(LocalDateTime end) {
+        return tallyFrom(checkpointRepository.findTopByAsOfLessThanEqualOrderByAsOfDesc(end).orElse(null), end);
+    }
+
+    // checkpoint == null - точек до end нет, матчи воспроизводятся с первого
+    private TallyAt tallyFrom(StandingsCheckpoint checkpoint, LocalDateTime end) {
+        StandingTally tally = checkpoint != null ? loadCheckpoint(checkpoint.getId()) : new StandingTally();
+        LocalDateTime from = checkpoint != null ? checkpoint.getAsOf() : null;
+        if (from == null) {
+            LocalDateTime earliest = matchRepository.findEarliestFinishedMatchDate();
+            if (earliest == null || !earliest.isBefore(end)) {
+                return new TallyAt(tally, null, 0);
+            }
+            from = earliest;
+        }
+
+        List<DatedMatchResult> results = matchRepository.findFinishedResultsBetween(from, end);
+        results.forEach(r -> addResult(tally, r));
+        return new TallyAt(tally, checkpoint != null ? checkpoint.getAsOf() : null, results.size());
+    }
+
+    private StandingTally loadCheckpoint(Long checkpointId) {
+        StandingTally tally = new StandingTally();
+        jdbcTemplate.query("""
+                SELECT team_id, matches_played, wins, draws, losses, goals_for, goals_against, points
+                FROM standings_checkpoint_rows WHERE checkpoint_id = ?""", rs -> {
+            int[] values = new int[StandingTally.FIELDS];
+            values[StandingTally.PLAYED] = rs.getInt(2);
+            values[StandingTally.WINS] = rs.getInt(3);
+            values[StandingTally.DRAWS] = rs.getInt(4);
+            values[StandingTally.LOSSES] = rs.getInt(5);
+            values[StandingTally.GOALS_FOR] = rs.getInt(6);
+            values[StandingTally.GOALS_AGAINST] = rs.getInt(7);
+            values[StandingTally.POINTS] = rs.getInt(8);
+            tally.put(rs.getLong(1), values);
+        }, checkpointId);
+        return tally;
+    }
+
+    private Long saveCheckpoint(LocalDateTime asOf, long matchCount, StandingTally tally) {
+        StandingsCheckpoint checkpoint = new StandingsCheckpoint();
+        checkpoint.setAsOf(asOf);
+        checkpoint.setMatchCount(matchCount);
+        checkpoint.setCreatedAt(LocalDateTime.now());
+        Long checkpointId = checkpointRepository.saveAndFlush(checkpoint).getId();
+
+        List<Long> teamIds = new ArrayList<>(tally.teamIds());
+        long[] ids = sequenceIds.next("standings_checkpoint_rows_seq", teamIds.size());
+        List<Object[]> rows = new ArrayList<>(teamIds.size());
+        for (int i = 0; i < teamIds.size(); i++) {
+            Long teamId = teamIds.get(i);
+            int[] v = tally.get(teamId);
+            rows.add(new Object[]{ids[i], checkpointId, teamId, v[StandingTally.PLAYED], v[StandingTally.WINS],
+                    v[StandingTally.DRAWS], v[StandingTally.LOSSES], v[StandingTally.GOALS_FOR],
+                    v[StandingTally.GOALS_AGAINST], v[StandingTally.POINTS]});
+        }
+        jdbcTemplate.batchUpdate(ROW_INSERT_SQL, rows);
+        return checkpointId;
+    }
+
+    // after == null - удалить все точки
+    private int deleteCheckpointsAfter(LocalDateTime after) {
+        if (after == null) {
+            jdbcTemplate.update("DELETE FROM standings_checkpoint_rows");
+            return jdbcTemplate.update("DELETE FROM standings_checkpoints");
+        }
+        Timestamp bound = Timestamp.valueOf(after);
+        jdbcTemplate.update("""
+                DELETE FROM standings_checkpoint_rows WHERE checkpoint_id IN
+                    (SELECT id FROM standings_checkpoints WHERE as_of > ?)""", bound);
+        return jdbcTemplate.update("DELETE FROM standings_checkpoints WHERE as_of > ?", bound);
+    }
+
+    private void markInvalidated(LocalDateTime date) {
+        invalidatedDuringBuild.accumulateAndGet(date, (current, added) ->
+                current == null || added.isBefore(current) ? added : current);
+    }
+
+    // Самая ранняя дата среди незавершённых инвалидаций и закоммиченных с начала построения
+    private LocalDateTime earliestInvalidation() {
+        LocalDateTime earliest = invalidatedDuringBuild.get();
+        for (LocalDateTime date : pendingInvalidations.values()) {
+            if (earliest == null || date.isBefore(earliest)) {
+                earliest = date;
+            }
+        }
+        return earliest;
+    }
+
+    private <T> T inNewTransaction(Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template.execute(status -> action.get());
+    }
+
+    // Ближайшая граница не позже момента
+    private LocalDateTime boundaryAtOrBefore(LocalDateTime moment) {
+        long days = ChronoUnit.DAYS.between(BOUNDARY_ANCHOR.toLocalDate(), moment.toLocalDate());
+        return BOUNDARY_ANCHOR.plusDays(Math.floorDiv(days, intervalDays) * intervalDays);
+    }
+
+    private Set<Long> currentTeamIds() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM teams", Long.class));
+    }
+
+    // Команды таблицы: существующие сейчас и игравшие в периоде (в том числе удалённые позже)
+    private Set<Long> teamsFor(StandingTally tally) {
+        Set<Long> teams = currentTeamIds();
+        teams.addAll(tally.teamIds());
+        return teams;
+    }
+
+    private static List<Standing> toStandings(StandingTally tally, Set<Long> teamIds) {
+        Map<Long, int[]> values = new HashMap<>();
+        teamIds.forEach(teamId -> values.put(teamId, tally.get(teamId)));
+        List<Long> ordered = new ArrayList<>(teamIds);
+        // Тот же порядок, что у ranksBefore: очки, разница, забитые, затем ID команды (как в rerankPositions)
+        ordered.sort(Comparator.comparing((Long teamId) -> values.get(teamId), RANKING)
+                .thenComparing(Comparator.naturalOrder()));
+
+        List<Standing> standings = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            int[] v = values.get(ordered.get(i));
+            Standing standing = new Standing();
+            standing.setTeamId(ordered.get(i));
+            standing.setPosition(i + 1);
+            standing.setMatchesPlayed(v[StandingTally.PLAYED]);
+            standing.setWins(v[StandingTally.WINS]);
+            standing.setDraws(v[StandingTally.DRAWS]);
+            standing.setLosses(v[StandingTally.LOSSES]);
+            standing.setGoalsFor(v[StandingTally.GOALS_FOR]);
+            standing.setGoalsAgainst(v[StandingTally.GOALS_AGAINST]);
+            standing.setGoalDifference(v[StandingTally.GOALS_FOR] - v[StandingTally.GOALS_AGAINST]);
+            standing.setPoints(v[StandingTally.POINTS]);
+            standings.add(standing);
+        }
+        return standings;
+    }
+
+    // Порядок как в таблице: очки, разница, забитые, при равенстве - ID команды
+    private static boolean ranksBefore(Long teamId, int[] values, Long otherId, int[] otherValues) {
+        int compared = RANKING.compare(values, otherValues);
+        return compared != 0 ? compared < 0 : teamId < otherId;
+    }
+
+    private static void addResult(StandingTally tally, DatedMatchResult r) {
+        tally.addResult(r.homeTeamId(), r.awayTeamId(), r.homeScore(), r.awayScore());
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.service;
+
+import org.example.config.DatabaseDialect;
+import org.example.repository.StandingRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// Пересчёт позиций одним запросом.
+// Перед UPDATE все строки блокируются в порядке team_id - в том же порядке,
+// что и при применении результатов матчей, поэтому взаимных блокировок нет.
+@Component
+public class StandingPositionRanker {
+
+    private final StandingRepository standingRepository;
+    private final DatabaseDialect databaseDialect;
+
+    public StandingPositionRanker(StandingRepository standingRepository, DatabaseDialect databaseDialect) {
+        this.standingRepository = standingRepository;
+        this.databaseDialect = databaseDialect;
+    }
+
+    // Возвращает число строк, у которых изменилась позиция
+    @Transactional
+    public int rerank() {
+        standingRepository.lockAllOrderByTeamId();
+        return databaseDialect.isPostgres()
+                ? standingRepository.rerankPositions()
+                : standingRepository.rerankPositionsMerge();
+    }
+}
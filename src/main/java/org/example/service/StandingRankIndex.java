@@ -0,0 +1,273 @@
+package org.example.service;
+
+import org.example.model.Standing;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Индекс позиций в памяти: декартово дерево (treap) с размерами поддеревьев.
+// Порядок: очки, разница, забитые (по убыванию), при равенстве - ID команды.
+// Позиция команды и команда на позиции считаются за O(log n).
+@Component
+public class StandingRankIndex {
+
+    private static final class Node {
+        final long teamId;
+        final int points;
+        final int goalDifference;
+        final int goalsFor;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(long teamId, int points, int goalDifference, int goalsFor) {
+            this.teamId = teamId;
+            this.points = points;
+            this.goalDifference = goalDifference;
+            this.goalsFor = goalsFor;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Node> nodesByTeam = new HashMap<>();
+    private Node root;
+
+    // Полная перестройка (при старте, после массовых изменений и для сверки)
+    public void rebuild(List<Standing> standings) {
+        lock.writeLock().lock();
+        try {
+            root = null;
+            nodesByTeam.clear();
+            for (Standing standing : standings) {
+                insertLocked(standing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Добавить или обновить запись команды
+    public void put(Standing standing) {
+        lock.writeLock().lock();
+        try {
+            Node existing = nodesByTeam.remove(standing.getTeamId());
+            if (existing != null) {
+                root = erase(root, existing);
+            }
+            insertLocked(standing);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long teamId) {
+        lock.writeLock().lock();
+        try {
+            Node existing = nodesByTeam.remove(teamId);
+            if (existing != null) {
+                root = erase(root, existing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Позиция команды (1-based, команды с равными показателями делят место); null, если команды нет
+    public Integer positionOf(Long teamId) {
+        lock.readLock().lock();
+        try {
+            Node node = nodesByTeam.get(teamId);
+            if (node == null) {
+                return null;
+            }
+
+            int better = 0;
+            Node current = root;
+            while (current != null) {
+                if (compareStats(current, node) < 0) {
+                    better += size(current.left) + 1;
+                    current = current.right;
+                } else {
+                    current = current.left;
+                }
+            }
+            return better + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ID команды на позиции (1-based); null, если позиция вне таблицы
+    public Long teamAt(int position) {
+        lock.readLock().lock();
+        try {
+            if (position < 1 || position > size(root)) {
+                return null;
+            }
+
+            int k = position - 1;
+            Node current = root;
+            while (current != null) {
+                int leftSize = size(current.left);
+                if (k < leftSize) {
+                    current = current.left;
+                } else if (k == leftSize) {
+                    return current.teamId;
+                } else {
+                    k -= leftSize + 1;
+                    current = current.right;
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ID команд в порядке таблицы - O(n)
+    public List<Long> teamIdsInOrder() {
+        lock.readLock().lock();
+        try {
+            List<Long> result = new ArrayList<>(size(root));
+            Deque<Node> stack = new ArrayDeque<>();
+            Node current = root;
+            while (current != null || !stack.isEmpty()) {
+                while (current != null) {
+                    stack.push(current);
+                    current = current.left;
+                }
+                current = stack.pop();
+                result.add(current.teamId);
+                current = current.right;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Сверка с индексом, построенным заново; пустой результат - расхождений нет
+    public Map<String, Object> verify(List<Standing> standings) {
+        StandingRankIndex recomputed = new StandingRankIndex();
+        recomputed.rebuild(standings);
+        List<Long> expected = recomputed.teamIdsInOrder();
+        List<Long> actual = teamIdsInOrder();
+
+        Map<String, Object> mismatches = new LinkedHashMap<>();
+        if (actual.size() != expected.size()) {
+            mismatches.put("rankIndexSize", Map.of("incremental", actual.size(), "recomputed", expected.size()));
+        }
+        for (int i = 0; i < Math.min(actual.size(), expected.size()); i++) {
+            if (!actual.get(i).equals(expected.get(i))) {
+                mismatches.put("rankIndexOrder", Map.of("position", i + 1,
+                        "incremental", actual.get(i), "recomputed", expected.get(i)));
+                break;
+            }
+        }
+        return mismatches;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insertLocked(Standing standing) {
+        Node node = new Node(standing.getTeamId(),
+                valueOrZero(standing.getPoints()),
+                valueOrZero(standing.getGoalDifference()),
+                valueOrZero(standing.getGoalsFor()));
+        nodesByTeam.put(node.teamId, node);
+
+        Node[] parts = split(root, node);
+        root = merge(merge(parts[0], node), parts[1]);
+    }
+
+    // Делит дерево на узлы "выше" key и остальные
+    private Node[] split(Node node, Node key) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compare(node, key) < 0) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            update(node);
+            return new Node[]{node, parts[1]};
+        } else {
+            Node[] parts = split(node.left, key);
+            node.left = parts[1];
+            update(node);
+            return new Node[]{parts[0], node};
+        }
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            update(right);
+            return right;
+        }
+    }
+
+    private Node erase(Node node, Node key) {
+        if (node == null) {
+            return null;
+        }
+        if (node == key) {
+            return merge(node.left, node.right);
+        }
+        if (compare(key, node) < 0) {
+            node.left = erase(node.left, key);
+        } else {
+            node.right = erase(node.right, key);
+        }
+        update(node);
+        return node;
+    }
+
+    // Отрицательное значение - a стоит в таблице выше b
+    private static int compare(Node a, Node b) {
+        int result = compareStats(a, b);
+        return result != 0 ? result : Long.compare(a.teamId, b.teamId);
+    }
+
+    private static int compareStats(Node a, Node b) {
+        if (a.points != b.points) return Integer.compare(b.points, a.points);
+        if (a.goalDifference != b.goalDifference) return Integer.compare(b.goalDifference, a.goalDifference);
+        return Integer.compare(b.goalsFor, a.goalsFor);
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.service;
+
+import org.example.dto.MatchResultRow;
+import org.example.model.Standing;
+import org.example.repository.MatchRepository;
+import org.example.repository.StandingRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Бизнес-операция: пересчитать турнирную таблицу по истории завершённых матчей.
+// Матчи читаются порциями (память ограничена размером порции и числом команд),
+// каждая порция сворачивается параллельно (fork/join), результат пишется пакетно в одной транзакции.
+@Service
+public class StandingRebuildService {
+
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int FOLD_THRESHOLD = 2_048;
+
+    @Autowired
+    private MatchRepository matchRepository;
+
+    @Autowired
+    private StandingRepository standingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private StandingPositionRanker positionRanker;
+
+    @Autowired
+    private StandingsSnapshotHolder snapshotHolder;
+
+    // dryRun = true - только отчёт о расхождениях, без записи
+    @Transactional
+    public Map<String, Object> rebuildFromMatches(boolean dryRun) {
+        long startedAt = System.currentTimeMillis();
+
+        // Блокируем таблицу (в порядке team_id) до конца пересчёта, чтобы не потерять матчи, завершённые во время чтения.
+        // Матчи с необработанными событиями очереди не учитываются - их применит обработчик после пересчёта
+        standingRepository.lockAllOrderByTeamId();
+
+        StandingTally tally = new StandingTally();
+        long matchesProcessed = 0;
+        long lastId = 0;
+        while (true) {
+            List<MatchResultRow> chunk = matchRepository.findAppliedResultsAfter(lastId, PageRequest.of(0, CHUNK_SIZE));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            tally.merge(ForkJoinPool.commonPool().invoke(new FoldTask(chunk, 0, chunk.size())));
+            matchesProcessed += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).id();
+        }
+
+        // Сравниваем с текущими строками
+        List<Standing> standings = standingRepository.findAll();
+        List<Object[]> standingUpdates = new ArrayList<>();
+        List<Object[]> teamUpdates = new ArrayList<>();
+        List<Long> changedTeams = new ArrayList<>();
+        List<Map<String, Object>> diffs = new ArrayList<>();
+
+        for (Standing standing : standings) {
+            int[] expected = tally.get(standing.getTeamId());
+            if (StandingTally.matches(standing, expected)) {
+                continue;
+            }
+
+            diffs.add(diff(standing, expected));
+            standingUpdates.add(new Object[]{
+                    expected[StandingTally.PLAYED], expected[StandingTally.WINS],
+                    expected[StandingTally.DRAWS], expected[StandingTally.LOSSES],
+                    expected[StandingTally.GOALS_FOR], expected[StandingTally.GOALS_AGAINST],
+                    expected[StandingTally.GOALS_FOR] - expected[StandingTally.GOALS_AGAINST],
+                    expected[StandingTally.POINTS], standing.getId()
+            });
+            teamUpdates.add(new Object[]{expected[StandingTally.POINTS], standing.getTeamId()});
+            changedTeams.add(standing.getTeamId());
+        }
+
+        // Команды с результатами, но без строки в таблице
+        List<Long> teamsWithoutStanding = new ArrayList<>(tally.teamIds());
+        standings.forEach(s -> teamsWithoutStanding.remove(s.getTeamId()));
+
+        if (!dryRun && !standingUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                    UPDATE standings SET matches_played = ?, wins = ?, draws = ?, losses = ?,
+                        goals_for = ?, goals_against = ?, goal_difference = ?, points = ?
+                    WHERE id = ?""", standingUpdates);
+            jdbcTemplate.batchUpdate("UPDATE teams SET points = ? WHERE id = ?", teamUpdates);
+            referenceDataCache.invalidateAllTeams();
+
+            // Позиции - в той же транзакции, снимок таблицы - после коммита по изменённым строкам
+            positionRanker.rerank();
+            TransactionCallbacks.afterCommit(() -> snapshotHolder.teamsChanged(changedTeams));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("dryRun", dryRun);
+        report.put("matchesProcessed", matchesProcessed);
+        report.put("teams", standings.size());
+        report.put("changedRows", standingUpdates.size());
+        report.put("teamsWithoutStanding", teamsWithoutStanding);
+        report.put("diffs", diffs);
+        report.put("durationMs", System.currentTimeMillis() - startedAt);
+        return report;
+    }
+
+    private static Map<String, Object> diff(Standing standing, int[] expected) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        putIfDifferent(fields, "matchesPlayed", standing.getMatchesPlayed(), expected[StandingTally.PLAYED]);
+        putIfDifferent(fields, "wins", standing.getWins(), expected[StandingTally.WINS]);
+        putIfDifferent(fields, "draws", standing.getDraws(), expected[StandingTally.DRAWS]);
+        putIfDifferent(fields, "losses", standing.getLosses(), expected[StandingTally.LOSSES]);
+        putIfDifferent(fields, "goalsFor", standing.getGoalsFor(), expected[StandingTally.GOALS_FOR]);
+        putIfDifferent(fields, "goalsAgainst", standing.getGoalsAgainst(), expected[StandingTally.GOALS_AGAINST]);
+        putIfDifferent(fields, "goalDifference", standing.getGoalDifference(),
+                expected[StandingTally.GOALS_FOR] - expected[StandingTally.GOALS_AGAINST]);
+        putIfDifferent(fields, "points", standing.getPoints(), expected[StandingTally.POINTS]);
+
+        Map<String, Object> diff = new HashMap<>();
+        diff.put("teamId", standing.getTeamId());
+        diff.put("fields", fields);
+        return diff;
+    }
+
+    private static void putIfDifferent(Map<String, Object> fields, String name, Integer current, int expected) {
+        int actual = current != null ? current : 0;
+        if (actual != expected) {
+            fields.put(name, Map.of("current", actual, "expected", expected));
+        }
+    }
+
+    // Параллельная свёртка порции: делим диапазон пополам до порога, затем сливаем накопители
+    private static final class FoldTask extends RecursiveTask<StandingTally> {
+
+        private final List<MatchResultRow> rows;
+        private final int from;
+        private final int to;
+
+        FoldTask(List<MatchResultRow> rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected StandingTally compute() {
+            if (to - from <= FOLD_THRESHOLD) {
+                StandingTally tally = new StandingTally();
+                for (int i = from; i < to; i++) {
+                    MatchResultRow row = rows.get(i);
+                    tally.addResult(row.homeTeamId(), row.awayTeamId(), row.homeScore(), row.awayScore());
+                }
+                return tally;
+            }
+
+            int middle = (from + to) >>> 1;
+            FoldTask left = new FoldTask(rows, from, middle);
+            left.fork();
+            StandingTally right = new FoldTask(rows, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
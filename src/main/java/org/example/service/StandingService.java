@@ -1,36 +1,88 @@
 package org.example.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.dto.FormRow;
+import org.example.dto.MatchResultRow;
 import org.example.model.Standing;
+import org.example.repository.MatchOutboxRepository;
+import org.example.repository.MatchRepository;
 import org.example.repository.StandingRepository;
 import org.example.repository.TeamRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 @Transactional
 public class StandingService {
 
+    private static final int DEFAULT_SIMULATIONS = 20_000;
+    private static final int MAX_SIMULATIONS = 200_000;
+    private static final long DEFAULT_SIMULATION_BUDGET_MS = 500;
+    private static final long MAX_SIMULATION_BUDGET_MS = 2_000;
+
     @Autowired
     private StandingRepository standingRepository;
 
     @Autowired
     private TeamRepository teamRepository;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private MatchRepository matchRepository;
+
+    @Autowired
+    private ChampionshipSimulator championshipSimulator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StandingPositionRanker positionRanker;
+
+    @Autowired
+    private StandingRankIndex rankIndex;
+
+    @Autowired
+    private LeagueAggregates leagueAggregates;
+
+    @Autowired
+    private StandingsSnapshotHolder snapshotHolder;
+
+    @Autowired
+    private MatchOutboxRepository matchOutboxRepository;
+
+    @Autowired
+    private FormTable formTable;
+
+    // Снимок таблицы в памяти: без обращения к БД, обновляется после каждого изменения
+    public StandingsSnapshot getStandingsSnapshot() {
+        return snapshotHolder.current();
+    }
+
     public List<Standing> getAllStandings() {
-        return standingRepository.findAllByOrderByPointsDescGoalDifferenceDescGoalsForDesc();
+        return snapshotHolder.current().toStandings(null);
     }
 
     public List<Standing> getTopStandings(Integer limit) {
-        List<Standing> allStandings = getAllStandings();
-        return limit != null && limit < allStandings.size() ?
-                allStandings.subList(0, limit) : allStandings;
+        return snapshotHolder.current().toStandings(limit);
     }
 
     public Optional<Standing> getStandingById(Long id) {
@@ -42,11 +94,21 @@ public class StandingService {
     }
 
     public Integer getPositionByTeamId(Long teamId) {
-        return standingRepository.getPositionByTeamId(teamId);
+        Integer position = rankIndex.positionOf(teamId);
+        if (position == null) {
+            throw new RuntimeException("Standing not found for team ID: " + teamId);
+        }
+        return position;
+    }
+
+    public Optional<Long> getTeamIdAtPosition(Integer position) {
+        return Optional.ofNullable(rankIndex.teamAt(position));
     }
 
     @Transactional
     public Standing createStanding(Standing standing) {
+        lockTable();
+
         // Проверка существования команды
         if (!teamRepository.existsById(standing.getTeamId())) {
             throw new RuntimeException("Team not found with ID: " + standing.getTeamId());
@@ -66,17 +128,17 @@ public class StandingService {
         if (standing.getGoalsAgainst() == null) standing.setGoalsAgainst(0);
         if (standing.getGoalDifference() == null) standing.setGoalDifference(0);
         if (standing.getPoints() == null) standing.setPoints(0);
+        if (standing.getPosition() == null) standing.setPosition(0);
 
         Standing savedStanding = standingRepository.save(standing);
-
-        // Обновляем позицию
-        updatePositions();
+        standingsChanged(List.of(savedStanding.getTeamId()));
 
         return savedStanding;
     }
 
     @Transactional
     public void createStandingForTeam(Long teamId) {
+        lockTable();
         if (standingRepository.findByTeamId(teamId).isPresent()) {
             return; // Уже существует
         }
@@ -94,11 +156,13 @@ public class StandingService {
         standing.setPoints(0);
 
         standingRepository.save(standing);
+        standingsChanged(List.of(teamId));
     }
 
     @Transactional
     public Standing updateStanding(Long id, Standing standingDetails) {
-        Standing standing = standingRepository.findById(id)
+        lockTable();
+        Standing standing = standingRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Standing not found with ID: " + id));
 
         // Обновляем только разрешенные поля
@@ -127,9 +191,7 @@ public class StandingService {
         }
 
         Standing updated = standingRepository.save(standing);
-
-        // Обновляем позиции
-        updatePositions();
+        standingsChanged(List.of(updated.getTeamId()));
 
         return updated;
     }
@@ -137,113 +199,153 @@ public class StandingService {
     @Transactional
     public void updateStandingsAfterMatch(Long homeTeamId, Long awayTeamId,
                                           Integer homeScore, Integer awayScore) {
-        Standing homeStanding = standingRepository.findByTeamId(homeTeamId)
-                .orElseThrow(() -> new RuntimeException("Standing not found for home team ID: " + homeTeamId));
-
-        Standing awayStanding = standingRepository.findByTeamId(awayTeamId)
-                .orElseThrow(() -> new RuntimeException("Standing not found for away team ID: " + awayTeamId));
-
-        // Обновляем матчи
-        homeStanding.setMatchesPlayed(homeStanding.getMatchesPlayed() + 1);
-        awayStanding.setMatchesPlayed(awayStanding.getMatchesPlayed() + 1);
-
-        // Обновляем голы
-        homeStanding.setGoalsFor(homeStanding.getGoalsFor() + homeScore);
-        homeStanding.setGoalsAgainst(homeStanding.getGoalsAgainst() + awayScore);
-        homeStanding.setGoalDifference(homeStanding.getGoalsFor() - homeStanding.getGoalsAgainst());
-
-        awayStanding.setGoalsFor(awayStanding.getGoalsFor() + awayScore);
-        awayStanding.setGoalsAgainst(awayStanding.getGoalsAgainst() + homeScore);
-        awayStanding.setGoalDifference(awayStanding.getGoalsFor() - awayStanding.getGoalsAgainst());
-
-        // Определяем результат
-        if (homeScore > awayScore) {
-            // Победа хозяев
-            homeStanding.setWins(homeStanding.getWins() + 1);
-            homeStanding.setPoints(homeStanding.getPoints() + 3);
-            awayStanding.setLosses(awayStanding.getLosses() + 1);
-        } else if (homeScore < awayScore) {
-            // Победа гостей
-            awayStanding.setWins(awayStanding.getWins() + 1);
-            awayStanding.setPoints(awayStanding.getPoints() + 3);
-            homeStanding.setLosses(homeStanding.getLosses() + 1);
-        } else {
-            // Ничья
-            homeStanding.setDraws(homeStanding.getDraws() + 1);
-            homeStanding.setPoints(homeStanding.getPoints() + 1);
-            awayStanding.setDraws(awayStanding.getDraws() + 1);
-            awayStanding.setPoints(awayStanding.getPoints() + 1);
+        applyResults(List.of(new MatchResultRow(null, homeTeamId, awayTeamId, homeScore, awayScore)));
+    }
+
+    // Применить пачку результатов: дельты считаются в памяти, строки команд блокируются
+    // один раз в порядке ID команды (без потерянных обновлений и взаимоблокировок),
+    // standings и teams пишутся пакетами JDBC, позиции пересчитываются один раз в конце транзакции
+    @Transactional
+    public void applyResults(List<MatchResultRow> results) {
+        if (results.isEmpty()) {
+            return;
         }
 
-        standingRepository.save(homeStanding);
-        standingRepository.save(awayStanding);
+        StandingTally deltas = new StandingTally();
+        results.forEach(r -> deltas.addResult(r.homeTeamId(), r.awayTeamId(), r.homeScore(), r.awayScore()));
 
-        // Обновляем позиции
-        updatePositions();
+        lockTable();
+        List<Standing> locked = standingRepository.findByTeamIdInForUpdate(deltas.teamIds());
+        if (locked.size() != deltas.teamIds().size()) {
+            List<Long> missing = new ArrayList<>(deltas.teamIds());
+            locked.forEach(s -> missing.remove(s.getTeamId()));
+            throw new RuntimeException("Standing not found for team ID: " + missing.get(0));
+        }
 
-        // Обновляем очки в таблице Team
-        teamRepository.findById(homeTeamId).ifPresent(team -> {
-            team.setPoints(homeStanding.getPoints());
-            teamRepository.save(team);
-        });
+        // Дальше строки пишутся через JDBC - отвязываем сущности от контекста
+        List<Object[]> standingUpdates = new ArrayList<>();
+        List<Object[]> teamUpdates = new ArrayList<>();
+        for (Standing standing : locked) {
+            entityManager.detach(standing);
+
+            int[] delta = deltas.get(standing.getTeamId());
+            standing.setMatchesPlayed(standing.getMatchesPlayed() + delta[StandingTally.PLAYED]);
+            standing.setWins(standing.getWins() + delta[StandingTally.WINS]);
+            standing.setDraws(standing.getDraws() + delta[StandingTally.DRAWS]);
+            standing.setLosses(standing.getLosses() + delta[StandingTally.LOSSES]);
+            standing.setGoalsFor(standing.getGoalsFor() + delta[StandingTally.GOALS_FOR]);
+            standing.setGoalsAgainst(standing.getGoalsAgainst() + delta[StandingTally.GOALS_AGAINST]);
+            standing.setGoalDifference(standing.getGoalsFor() - standing.getGoalsAgainst());
+            standing.setPoints(standing.getPoints() + delta[StandingTally.POINTS]);
+
+            standingUpdates.add(new Object[]{
+                    standing.getMatchesPlayed(), standing.getWins(), standing.getDraws(), standing.getLosses(),
+                    standing.getGoalsFor(), standing.getGoalsAgainst(), standing.getGoalDifference(),
+                    standing.getPoints(), standing.getId()
+            });
+            teamUpdates.add(new Object[]{standing.getPoints(), standing.getTeamId()});
+        }
 
-        teamRepository.findById(awayTeamId).ifPresent(team -> {
-            team.setPoints(awayStanding.getPoints());
-            teamRepository.save(team);
-        });
+        jdbcTemplate.batchUpdate("""
+                UPDATE standings SET matches_played = ?, wins = ?, draws = ?, losses = ?,
+                    goals_for = ?, goals_against = ?, goal_difference = ?, points = ?
+                WHERE id = ?""", standingUpdates);
+
+        // Очки в таблице Team (в том же порядке ID)
+        jdbcTemplate.batchUpdate("UPDATE teams SET points = ? WHERE id = ?", teamUpdates);
+        referenceDataCache.invalidateTeamPoints(deltas.teamIds());
+
+        // Позиции в БД - одним запросом, индексы затронутых команд - инкрементально после коммита
+        standingsChanged(List.copyOf(deltas.teamIds()));
+    }
+
+    // Заблокировать строки команд (в порядке team_id) до конца транзакции; возвращает команды, у которых есть запись
+    @Transactional
+    public Set<Long> lockTeamStandings(Collection<Long> teamIds) {
+        lockTable();
+        Set<Long> locked = new HashSet<>();
+        standingRepository.findByTeamIdInForUpdate(teamIds).forEach(s -> locked.add(s.getTeamId()));
+        return locked;
+    }
+
+    // Команды из списка, у которых есть запись в таблице
+    public Set<Long> findTeamsWithStanding(Collection<Long> teamIds) {
+        return new HashSet<>(standingRepository.findTeamIdsIn(teamIds));
     }
 
     @Transactional
     public void deleteStanding(Long id) {
-        if (!standingRepository.existsById(id)) {
-            throw new RuntimeException("Standing not found with ID: " + id);
-        }
+        lockTable();
+        Standing standing = standingRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Standing not found with ID: " + id));
 
-        standingRepository.deleteById(id);
+        standingRepository.delete(standing);
+        standingsChanged(List.of(standing.getTeamId()));
     }
 
     @Transactional
     public void deleteByTeamId(Long teamId) {
+        lockTable();
         standingRepository.findByTeamId(teamId).ifPresent(standing -> {
             standingRepository.delete(standing);
+            standingsChanged(List.of(teamId));
         });
     }
 
+    // Пересчитать позиции и перестроить индекс после массовых изменений таблицы (индекс - после коммита)
+    @Transactional
+    public void refreshRankIndex() {
+        positionRanker.rerank();
+        TransactionCallbacks.afterCommit(snapshotHolder::tableChanged);
+    }
+
     // Бизнес-операция: Обновить все позиции
+    // Один UPDATE с ROW_NUMBER() вместо save() на каждую строку; возвращает число изменённых строк
     @Transactional
-    public void updatePositions() {
-        List<Standing> standings = standingRepository.findAllByOrderByPointsDescGoalDifferenceDescGoalsForDesc();
+    public int updatePositions() {
+        TransactionCallbacks.afterCommit(snapshotHolder::requestRefresh);
+        return positionRanker.rerank();
+    }
 
-        for (int i = 0; i < standings.size(); i++) {
-            Standing standing = standings.get(i);
-            standing.setPosition(i + 1);
-            standingRepository.save(standing);
-        }
+    // Все строки таблицы блокируются до первой изменённой и в порядке team_id, как в StandingPositionRanker:
+    // пересчёт позиций в конце транзакции не ждёт строк, которые раньше заблокировала другая транзакция
+    private void lockTable() {
+        standingRepository.lockAllOrderByTeamId();
+    }
+
+    // Позиции в БД пересчитываются в той же транзакции;
+    // после коммита снимок перечитает строки этих команд и обновит индексы в памяти
+    private void standingsChanged(Collection<Long> teamIds) {
+        positionRanker.rerank();
+        TransactionCallbacks.afterCommit(() -> snapshotHolder.teamsChanged(teamIds));
     }
 
-    // Бизнес-операция: Сбросить все статистики
+    // Бизнес-операция: Сбросить все статистики (одним UPDATE, отчёт по шагам)
     @Transactional
-    public void resetAllStandings() {
-        List<Standing> allStandings = standingRepository.findAll();
-        allStandings.forEach(standing -> {
-            standing.setMatchesPlayed(0);
-            standing.setWins(0);
-            standing.setDraws(0);
-            standing.setLosses(0);
-            standing.setGoalsFor(0);
-            standing.setGoalsAgainst(0);
-            standing.setGoalDifference(0);
-            standing.setPoints(0);
-            standing.setPosition(0);
-            standingRepository.save(standing);
-        });
+    public Map<String, Object> resetAllStandings() {
+        BulkOperationReport report = new BulkOperationReport();
+
+        // Необработанные результаты относятся к сброшенной таблице - отбрасываем их (блокировки в порядке обработчика очереди)
+        standingRepository.lockAllOrderByTeamId();
+        report.step("outboxDiscarded", matchOutboxRepository::deletePending);
+        report.step("standingsReset", standingRepository::resetAll);
+
+        refreshRankIndex();
+        return report.toMap();
+    }
+
+    // Бизнес-операция: Таблица формы по последним last матчам команд (из буферов в памяти)
+    @Transactional(readOnly = true)
+    public List<FormRow> getFormTable(Integer last) {
+        return formTable.getTable(last);
     }
 
     // Бизнес-операция: Получить статистику лиги
+    // Суммы и лучшие атака/защита поддерживаются инкрементально, зоны берутся из индекса позиций - O(k)
     public Map<String, Object> getLeagueStats() {
-        List<Standing> allStandings = getAllStandings();
+        LeagueAggregates.Totals totals = leagueAggregates.totals();
 
-        if (allStandings.isEmpty()) {
+        if (totals.teams() == 0) {
             return Map.of(
                     "totalTeams", 0,
                     "totalMatches", 0,
@@ -252,69 +354,81 @@ public class StandingService {
             );
         }
 
-        int totalMatches = allStandings.stream()
-                .mapToInt(Standing::getMatchesPlayed)
-                .sum() / 2; // Каждый матч учтен дважды
-
-        int totalGoals = allStandings.stream()
-                .mapToInt(Standing::getGoalsFor)
-                .sum();
-
-        double averageGoalsPerMatch = totalMatches > 0 ?
-                (double) totalGoals / totalMatches : 0;
-
-        // Команда с лучшей атакой и защитой
-        Optional<Standing> bestAttack = allStandings.stream()
-                .max((s1, s2) -> Integer.compare(s1.getGoalsFor(), s2.getGoalsFor()));
-
-        Optional<Standing> bestDefense = allStandings.stream()
-                .min((s1, s2) -> Integer.compare(s1.getGoalsAgainst(), s2.getGoalsAgainst()));
+        double averageGoalsPerMatch = totals.totalMatches() > 0 ?
+                (double) totals.totalGoals() / totals.totalMatches() : 0;
 
         // Команды в зонах еврокубков и вылета
-        List<String> championsLeagueTeams = allStandings.stream()
-                .filter(s -> s.getPosition() <= 4)
-                .map(s -> s.getPosition() + ". Team ID: " + s.getTeamId())
-                .collect(Collectors.toList());
-
-        List<String> relegationZoneTeams = allStandings.stream()
-                .filter(s -> s.getPosition() > allStandings.size() - 3)
-                .map(s -> s.getPosition() + ". Team ID: " + s.getTeamId())
-                .collect(Collectors.toList());
+        int teams = rankIndex.size();
+        List<String> championsLeagueTeams = zoneTeams(1, Math.min(ChampionshipSimulator.TOP_ZONE, teams));
+        List<String> relegationZoneTeams = zoneTeams(Math.max(1, teams - ChampionshipSimulator.RELEGATION_ZONE + 1), teams);
 
         return Map.of(
-                "totalTeams", allStandings.size(),
-                "totalMatches", totalMatches,
-                "totalGoals", totalGoals,
+                "totalTeams", totals.teams(),
+                "totalMatches", totals.totalMatches(),
+                "totalGoals", totals.totalGoals(),
                 "averageGoalsPerMatch", Math.round(averageGoalsPerMatch * 100.0) / 100.0,
-                "bestAttack", bestAttack.map(s -> "Team ID: " + s.getTeamId() + " (" + s.getGoalsFor() + " goals)").orElse("None"),
-                "bestDefense", bestDefense.map(s -> "Team ID: " + s.getTeamId() + " (" + s.getGoalsAgainst() + " goals conceded)").orElse("None"),
+                "bestAttack", totals.bestAttackTeamId() != null ?
+                        "Team ID: " + totals.bestAttackTeamId() + " (" + totals.bestAttackGoals() + " goals)" : "None",
+                "bestDefense", totals.bestDefenseTeamId() != null ?
+                        "Team ID: " + totals.bestDefenseTeamId() + " (" + totals.bestDefenseGoalsConceded() + " goals conceded)" : "None",
                 "championsLeagueZone", championsLeagueTeams,
                 "relegationZone", relegationZoneTeams
         );
     }
 
-    // Бизнес-операция: Прогноз чемпиона
-    public Map<String, Object> predictChampion() {
-        List<Standing> standings = getTopStandings(3);
+    private List<String> zoneTeams(int fromPosition, int toPosition) {
+        List<String> result = new ArrayList<>();
+        for (int position = fromPosition; position <= toPosition; position++) {
+            Long teamId = rankIndex.teamAt(position);
+            if (teamId != null) {
+                result.add(position + ". Team ID: " + teamId);
+            }
+        }
+        return result;
+    }
+
+    // Сверка инкрементальных агрегатов и индекса позиций с полным пересчётом по БД
+    @Transactional(readOnly = true)
+    public Map<String, Object> verifyLeagueStats() {
+        List<Standing> standings = standingRepository.findAll();
+        Map<String, Object> mismatches = new LinkedHashMap<>(leagueAggregates.verify(standings));
+        mismatches.putAll(rankIndex.verify(standings));
+        return Map.of("consistent", mismatches.isEmpty(), "mismatches", mismatches);
+    }
+
+    // Бизнес-операция: Прогноз чемпиона (симуляция оставшихся матчей методом Монте-Карло).
+    // Без транзакции: таблица берётся из снимка в памяти, матчи - одним запросом в собственной короткой
+    // транзакции репозитория, симуляция на весь бюджет не держит соединение с БД
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> predictChampion(Integer iterations, Long budgetMs) {
+        StandingsSnapshot snapshot = snapshotHolder.current();
 
-        if (standings.isEmpty()) {
+        if (snapshot.size() == 0) {
             return Map.of("prediction", "Not enough data");
         }
 
-        Standing leader = standings.get(0);
-        double winProbability = 75.0; // Простой пример
+        int runs = iterations != null ? Math.max(1, Math.min(iterations, MAX_SIMULATIONS)) : DEFAULT_SIMULATIONS;
+        long budget = budgetMs != null ? Math.max(1, Math.min(budgetMs, MAX_SIMULATION_BUDGET_MS)) : DEFAULT_SIMULATION_BUDGET_MS;
 
-        Map<String, Double> probabilities = new HashMap<>();
-        for (Standing standing : standings) {
-            probabilities.put("Team " + standing.getTeamId(),
-                    standing.equals(leader) ? winProbability : (25.0 / (standings.size() - 1)));
+        Map<String, Object> simulation = championshipSimulator.simulate(
+                snapshot, matchRepository.findScheduledFixtures(), runs, budget);
+
+        @SuppressWarnings("unchecked")
+        Map<Long, Double> titleProbabilities = (Map<Long, Double>) simulation.get("probabilities");
+
+        Long leaderId = snapshot.getTeamId(0);
+        Map<String, Double> top3Probabilities = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(3, snapshot.size()); i++) {
+            Long teamId = snapshot.getTeamId(i);
+            top3Probabilities.put("Team " + teamId, titleProbabilities.get(teamId));
         }
 
-        return Map.of(
-                "currentLeader", "Team ID: " + leader.getTeamId(),
-                "points", leader.getPoints(),
-                "winProbability", winProbability,
-                "top3Probabilities", probabilities
-        );
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("currentLeader", "Team ID: " + leaderId);
+        result.put("points", snapshot.toStandings(1).get(0).getPoints());
+        result.put("winProbability", titleProbabilities.get(leaderId));
+        result.put("top3Probabilities", top3Probabilities);
+        result.put("simulation", simulation);
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package org.example.service;
+
+import org.example.model.Standing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Накопитель показателей по командам: по массиву int[] на команду.
+// Не потокобезопасен - каждый поток считает свой, затем накопители сливаются через merge().
+public final class StandingTally {
+
+    public static final int PLAYED = 0;
+    public static final int WINS = 1;
+    public static final int DRAWS = 2;
+    public static final int LOSSES = 3;
+    public static final int GOALS_FOR = 4;
+    public static final int GOALS_AGAINST = 5;
+    public static final int POINTS = 6;
+    public static final int FIELDS = 7;
+
+    private final Map<Long, int[]> byTeam = new HashMap<>();
+
+    public void addResult(long homeTeamId, long awayTeamId, int homeScore, int awayScore) {
+        int[] home = row(homeTeamId);
+        int[] away = row(awayTeamId);
+
+        home[PLAYED]++;
+        away[PLAYED]++;
+        home[GOALS_FOR] += homeScore;
+        home[GOALS_AGAINST] += awayScore;
+        away[GOALS_FOR] += awayScore;
+        away[GOALS_AGAINST] += homeScore;
+
+        if (homeScore > awayScore) {
+            home[WINS]++;
+            home[POINTS] += 3;
+            away[LOSSES]++;
+        } else if (homeScore < awayScore) {
+            away[WINS]++;
+            away[POINTS] += 3;
+            home[LOSSES]++;
+        } else {
+            home[DRAWS]++;
+            home[POINTS]++;
+            away[DRAWS]++;
+            away[POINTS]++;
+        }
+    }
+
+    public StandingTally merge(StandingTally other) {
+        other.byTeam.forEach((teamId, values) -> {
+            int[] target = row(teamId);
+            for (int i = 0; i < FIELDS; i++) {
+                target[i] += values[i];
+            }
+        });
+        return this;
+    }
+
+    // Вычесть другой накопитель (показатели за период = накопленное к концу минус накопленное к началу)
+    public StandingTally subtract(StandingTally other) {
+        other.byTeam.forEach((teamId, values) -> {
+            int[] target = row(teamId);
+            for (int i = 0; i < FIELDS; i++) {
+                target[i] -= values[i];
+            }
+        });
+        return this;
+    }
+
+    // Задать показатели команды целиком (восстановление из контрольной точки)
+    public void put(long teamId, int[] values) {
+        byTeam.put(teamId, Arrays.copyOf(values, FIELDS));
+    }
+
+    public Set<Long> teamIds() {
+        return byTeam.keySet();
+    }
+
+    // Показатели команды; для команды без матчей - нули
+    public int[] get(Long teamId) {
+        int[] values = byTeam.get(teamId);
+        return values != null ? values.clone() : new int[FIELDS];
+    }
+
+    public static boolean matches(Standing standing, int[] values) {
+        return valueOrZero(standing.getMatchesPlayed()) == values[PLAYED]
+                && valueOrZero(standing.getWins()) == values[WINS]
+                && valueOrZero(standing.getDraws()) == values[DRAWS]
+                && valueOrZero(standing.getLosses()) == values[LOSSES]
+                && valueOrZero(standing.getGoalsFor()) == values[GOALS_FOR]
+                && valueOrZero(standing.getGoalsAgainst()) == values[GOALS_AGAINST]
+                && valueOrZero(standing.getGoalDifference()) == values[GOALS_FOR] - values[GOALS_AGAINST]
+                && valueOrZero(standing.getPoints()) == values[POINTS];
+    }
+
+    private int[] row(long teamId) {
+        return byTeam.computeIfAbsent(teamId, id -> new int[FIELDS]);
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
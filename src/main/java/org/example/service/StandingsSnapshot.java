@@ -0,0 +1,164 @@
+package org.example.service;
+
+import org.example.dto.PositionChange;
+import org.example.model.Standing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Неизменяемый снимок отсортированной турнирной таблицы.
+// Данные лежат в примитивных массивах: по строке на команду, FIELDS значений в строке.
+public final class StandingsSnapshot {
+
+    private static final int POSITION = 0;
+    private static final int MATCHES_PLAYED = 1;
+    private static final int WINS = 2;
+    private static final int DRAWS = 3;
+    private static final int LOSSES = 4;
+    private static final int GOALS_FOR = 5;
+    private static final int GOALS_AGAINST = 6;
+    private static final int GOAL_DIFFERENCE = 7;
+    private static final int POINTS = 8;
+    private static final int FIELDS = 9;
+
+    private final long version;
+    private final String etag;
+    private final long[] ids;
+    private final long[] teamIds;
+    private final int[] stats;
+
+    private StandingsSnapshot(long version, String etag, long[] ids, long[] teamIds, int[] stats) {
+        this.version = version;
+        this.etag = etag;
+        this.ids = ids;
+        this.teamIds = teamIds;
+        this.stats = stats;
+    }
+
+    public static StandingsSnapshot empty(String epoch) {
+        return new StandingsSnapshot(0, etag(epoch, 0), new long[0], new long[0], new int[0]);
+    }
+
+    // sortedStandings - таблица уже в порядке позиций
+    public static StandingsSnapshot of(String epoch, long version, List<Standing> sortedStandings) {
+        int size = sortedStandings.size();
+        long[] ids = new long[size];
+        long[] teamIds = new long[size];
+        int[] stats = new int[size * FIELDS];
+
+        for (int i = 0; i < size; i++) {
+            Standing standing = sortedStandings.get(i);
+            int base = i * FIELDS;
+            ids[i] = standing.getId();
+            teamIds[i] = standing.getTeamId();
+            stats[base + POSITION] = valueOrZero(standing.getPosition());
+            stats[base + MATCHES_PLAYED] = valueOrZero(standing.getMatchesPlayed());
+            stats[base + WINS] = valueOrZero(standing.getWins());
+            stats[base + DRAWS] = valueOrZero(standing.getDraws());
+            stats[base + LOSSES] = valueOrZero(standing.getLosses());
+            stats[base + GOALS_FOR] = valueOrZero(standing.getGoalsFor());
+            stats[base + GOALS_AGAINST] = valueOrZero(standing.getGoalsAgainst());
+            stats[base + GOAL_DIFFERENCE] = valueOrZero(standing.getGoalDifference());
+            stats[base + POINTS] = valueOrZero(standing.getPoints());
+        }
+
+        return new StandingsSnapshot(version, etag(epoch, version), ids, teamIds, stats);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getTeamId(int index) {
+        return teamIds[index];
+    }
+
+    public int getPosition(int index) {
+        return stats[index * FIELDS + POSITION];
+    }
+
+    // Команды, чья позиция отличается от позиции в предыдущем снимке
+    public List<PositionChange> positionChangesSince(StandingsSnapshot previous) {
+        Map<Long, Integer> previousPositions = new HashMap<>();
+        for (int i = 0; i < previous.size(); i++) {
+            previousPositions.put(previous.getTeamId(i), previous.getPosition(i));
+        }
+
+        List<PositionChange> changes = new ArrayList<>();
+        for (int i = 0; i < size(); i++) {
+            Integer from = previousPositions.get(teamIds[i]);
+            int to = getPosition(i);
+            if (from == null || from != to) {
+                changes.add(new PositionChange(teamIds[i], from, to));
+            }
+        }
+        return changes;
+    }
+
+    // Совпадают ли строки снимка (порядок, позиции и показатели) с таблицей в порядке позиций
+    public boolean hasRows(List<Standing> sortedStandings) {
+        if (sortedStandings.size() != size()) {
+            return false;
+        }
+        for (int i = 0; i < size(); i++) {
+            Standing standing = sortedStandings.get(i);
+            int base = i * FIELDS;
+            if (ids[i] != standing.getId() || teamIds[i] != standing.getTeamId()
+                    || stats[base + POSITION] != valueOrZero(standing.getPosition())
+                    || stats[base + MATCHES_PLAYED] != valueOrZero(standing.getMatchesPlayed())
+                    || stats[base + WINS] != valueOrZero(standing.getWins())
+                    || stats[base + DRAWS] != valueOrZero(standing.getDraws())
+                    || stats[base + LOSSES] != valueOrZero(standing.getLosses())
+                    || stats[base + GOALS_FOR] != valueOrZero(standing.getGoalsFor())
+                    || stats[base + GOALS_AGAINST] != valueOrZero(standing.getGoalsAgainst())
+                    || stats[base + GOAL_DIFFERENCE] != valueOrZero(standing.getGoalDifference())
+                    || stats[base + POINTS] != valueOrZero(standing.getPoints())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Отдельные объекты Standing для сериализации (не связаны с JPA)
+    public List<Standing> toStandings(Integer limit) {
+        int count = limit != null && limit >= 0 && limit < size() ? limit : size();
+        List<Standing> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int base = i * FIELDS;
+            Standing standing = new Standing();
+            standing.setId(ids[i]);
+            standing.setTeamId(teamIds[i]);
+            standing.setPosition(stats[base + POSITION]);
+            standing.setMatchesPlayed(stats[base + MATCHES_PLAYED]);
+            standing.setWins(stats[base + WINS]);
+            standing.setDraws(stats[base + DRAWS]);
+            standing.setLosses(stats[base + LOSSES]);
+            standing.setGoalsFor(stats[base + GOALS_FOR]);
+            standing.setGoalsAgainst(stats[base + GOALS_AGAINST]);
+            standing.setGoalDifference(stats[base + GOAL_DIFFERENCE]);
+            standing.setPoints(stats[base + POINTS]);
+            result.add(standing);
+        }
+
+        return result;
+    }
+
+    private static String etag(String epoch, long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
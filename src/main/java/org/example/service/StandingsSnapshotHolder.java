@@ -0,0 +1,217 @@
+package org.example.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.dto.PositionChange;
+import org.example.model.Standing;
+import org.example.repository.StandingRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Хранит последний опубликованный снимок таблицы.
+// Читатели берут его без блокировок; пересборка идёт в одном фоновом потоке после коммита изменений
+// (позиции в БД к этому моменту пересчитаны транзакцией, изменившей таблицу):
+// из БД перечитываются только строки изменившихся команд, их значения применяются к индексу позиций
+// и агрегатам лиги; новый снимок с новой версией публикуется, только если строки отличаются от текущих.
+// Полная загрузка таблицы - только при старте и после массовых изменений (tableChanged).
+@Component
+public class StandingsSnapshotHolder {
+
+    private static final int MAX_REFRESH_ATTEMPTS = 3;
+
+    private final StandingRepository standingRepository;
+    private final StandingRankIndex rankIndex;
+    private final LeagueAggregates leagueAggregates;
+    private final LiveEventHub liveEventHub;
+    private final TransactionTemplate transactionTemplate;
+
+    // Эпоха процесса в ETag, чтобы версии не совпадали после перезапуска
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    // Команды, чьи строки изменились после последней пересборки
+    private final Set<Long> changedTeams = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reloadPending = new AtomicBoolean(true);
+    // Текущие строки таблицы по ID команды (только под монитором refresh)
+    private final Map<Long, Standing> rows = new HashMap<>();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "standings-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile StandingsSnapshot current = StandingsSnapshot.empty(epoch);
+
+    public StandingsSnapshotHolder(StandingRepository standingRepository,
+                                   StandingRankIndex rankIndex,
+                                   LeagueAggregates leagueAggregates,
+                                   LiveEventHub liveEventHub,
+                                   PlatformTransactionManager transactionManager) {
+        this.standingRepository = standingRepository;
+        this.rankIndex = rankIndex;
+        this.leagueAggregates = leagueAggregates;
+        this.liveEventHub = liveEventHub;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public StandingsSnapshot current() {
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        refresh();
+    }
+
+    // Строки команд изменены (вызывать после коммита)
+    public void teamsChanged(Collection<Long> teamIds) {
+        changedTeams.addAll(teamIds);
+        requestRefresh();
+    }
+
+    // Таблица изменена целиком (сброс, пересчёт из матчей, новый сезон) - следующая пересборка загрузит её полностью
+    public void tableChanged() {
+        reloadPending.set(true);
+        requestRefresh();
+    }
+
+    // Запросить пересборку; несколько запросов подряд сливаются в одну
+    public void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                refreshPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    // Запросить пересборку и дождаться публикации снимка, собранного после вызова (read-your-writes).
+    // Пул из одного потока выполняет задачи по порядку: пустая задача завершится после запрошенной пересборки
+    public boolean awaitRefresh(long timeoutMs) {
+        requestRefresh();
+        try {
+            refresher.submit(() -> { }).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException | RejectedExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private synchronized void refresh() {
+        for (int attempt = 1; ; attempt++) {
+            // Изменения забираются до чтения из БД, поэтому прочитанные строки не старше них
+            boolean reload = reloadPending.getAndSet(false);
+            Set<Long> changed = new HashSet<>(changedTeams);
+            changedTeams.removeAll(changed);
+            try {
+                List<Standing> loaded = transactionTemplate.execute(status -> {
+                    if (reload) {
+                        return standingRepository.findAll();
+                    }
+                    return changed.isEmpty() ? List.<Standing>of() : standingRepository.findByTeamIdIn(changed);
+                });
+                if (reload) {
+                    reloadLocked(loaded);
+                } else {
+                    applyChangesLocked(changed, loaded);
+                }
+                List<Standing> sorted = sortedLocked();
+                StandingsSnapshot previous = current;
+                // Те же строки - версия и ETag не меняются, кэши клиентов остаются действительными
+                if (previous.getVersion() > 0 && previous.hasRows(sorted)) {
+                    return;
+                }
+                current = StandingsSnapshot.of(epoch, versions.incrementAndGet(), sorted);
+                publishPositionChanges(previous, current);
+                return;
+            } catch (RuntimeException e) {
+                // Например, таймаут блокировки - изменения возвращаются, повторяем ограниченное число раз
+                if (reload) {
+                    reloadPending.set(true);
+                }
+                changedTeams.addAll(changed);
+                if (attempt >= MAX_REFRESH_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void reloadLocked(List<Standing> standings) {
+        rows.clear();
+        standings.forEach(standing -> rows.put(standing.getTeamId(), standing));
+        rankIndex.rebuild(standings);
+        leagueAggregates.rebuild(standings);
+    }
+
+    // Команда без строки в БД удалена из таблицы
+    private void applyChangesLocked(Set<Long> changed, List<Standing> loaded) {
+        Map<Long, Standing> byTeam = new HashMap<>();
+        loaded.forEach(standing -> byTeam.put(standing.getTeamId(), standing));
+        for (Long teamId : changed) {
+            Standing standing = byTeam.get(teamId);
+            if (standing != null) {
+                rows.put(teamId, standing);
+                rankIndex.put(standing);
+                leagueAggregates.put(standing);
+            } else {
+                rows.remove(teamId);
+                rankIndex.remove(teamId);
+                leagueAggregates.remove(teamId);
+            }
+        }
+    }
+
+    // Строки в порядке индекса; позиция - номер строки, как у ROW_NUMBER() в StandingPositionRanker
+    private List<Standing> sortedLocked() {
+        List<Long> order = rankIndex.teamIdsInOrder();
+        List<Standing> sorted = new ArrayList<>(order.size());
+        for (int i = 0; i < order.size(); i++) {
+            Standing standing = rows.get(order.get(i));
+            standing.setPosition(i + 1);
+            sorted.add(standing);
+        }
+        return sorted;
+    }
+
+    private void publishPositionChanges(StandingsSnapshot previous, StandingsSnapshot next) {
+        if (previous.getVersion() == 0) {
+            return; // первая сборка после старта
+        }
+        List<PositionChange> changes = next.positionChangesSince(previous);
+        if (!changes.isEmpty()) {
+            liveEventHub.publish(LiveEventHub.STANDINGS, null, Map.of(
+                    "version", next.getVersion(),
+                    "etag", next.getEtag(),
+                    "changes", changes
+            ));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -1,16 +1,26 @@
 package org.example.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.config.PaginationSettings;
+import org.example.dto.CountAndSum;
+import org.example.dto.KeysetPage;
+import org.example.dto.LeagueStatistics;
+import org.example.dto.TeamSummary;
 import org.example.model.Team;
+import org.example.repository.PlayerRepository;
 import org.example.repository.TeamRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -19,37 +29,85 @@ public class TeamService {
     @Autowired
     private TeamRepository teamRepository;
 
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private PaginationSettings paginationSettings;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private StandingService standingService;
 
+    @Autowired
+    private TeamStatisticsService teamStatisticsService;
+
+    @Autowired
+    private FormTable formTable;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private NameSearchIndex nameSearchIndex;
+
     public List<Team> getAllTeams() {
         return teamRepository.findAll();
     }
 
+    // Keyset-пагинация по ID: одна лишняя строка показывает, есть ли следующая страница
+    @Transactional(readOnly = true)
+    public KeysetPage<Team> getTeamsPage(Long afterId, Integer limit) {
+        int pageSize = paginationSettings.resolvePageSize(limit);
+        List<Team> rows = teamRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId != null ? afterId : 0L, PageRequest.of(0, pageSize + 1));
+        return KeysetPage.of(rows, pageSize, Team::getId);
+    }
+
+    // Выгрузка всех команд курсором; прочитанные сущности отсоединяются, поэтому память не растёт
+    @Transactional(readOnly = true)
+    public void streamAllTeams(Consumer<Team> consumer) {
+        try (Stream<Team> teams = teamRepository.streamAllByOrderByIdAsc()) {
+            teams.forEach(team -> {
+                consumer.accept(team);
+                entityManager.detach(team);
+            });
+        }
+    }
+
+    // Поиск по ID и названию и проверки существования - через кэш справочных данных
     public Optional<Team> getTeamById(Long id) {
-        return teamRepository.findById(id);
+        return referenceDataCache.findTeam(id);
     }
 
     public Optional<Team> getTeamByName(String name) {
-        return teamRepository.findByName(name);
+        return referenceDataCache.findTeamByName(name);
     }
 
     public boolean existsById(Long id) {
-        return teamRepository.existsById(id);
+        return referenceDataCache.teamExists(id);
     }
 
     public boolean existsByName(String name) {
-        return teamRepository.existsByName(name);
+        return referenceDataCache.findTeamByName(name).isPresent();
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return referenceDataCache.getTeamStats();
     }
 
     public List<Team> getTeamsByCity(String city) {
         return teamRepository.findByCity(city);
     }
 
-    public List<Team> getTopTeams(Integer limit) {
-        List<Team> allTeams = teamRepository.findAllByOrderByPointsDesc();
-        return limit != null && limit < allTeams.size() ?
-                allTeams.subList(0, limit) : allTeams;
+    // LIMIT выполняется в БД, возвращаются проекции без гидрации сущностей
+    public List<TeamSummary> getTopTeams(Integer limit) {
+        if (limit != null && limit <= 0) {
+            return List.of();
+        }
+        return teamRepository.findTopTeams(limit != null ? PageRequest.of(0, limit) : Pageable.unpaged());
     }
 
     @Transactional
@@ -68,7 +126,11 @@ public class TeamService {
 
         // Создаем запись в турнирной таблице
         standingService.createStandingForTeam(savedTeam.getId());
+        teamStatisticsService.createForTeam(savedTeam.getId());
 
+        referenceDataCache.invalidateTeam(savedTeam.getId());
+        TransactionCallbacks.afterCommit(() ->
+                nameSearchIndex.put(NameSearchIndex.Kind.TEAM, savedTeam.getId(), savedTeam.getName()));
         return savedTeam;
     }
 
@@ -100,6 +162,9 @@ public class TeamService {
             team.setPoints(teamDetails.getPoints());
         }
 
+        referenceDataCache.invalidateTeam(id);
+        String name = team.getName();
+        TransactionCallbacks.afterCommit(() -> nameSearchIndex.put(NameSearchIndex.Kind.TEAM, id, name));
         return teamRepository.save(team);
     }
 
@@ -111,8 +176,14 @@ public class TeamService {
 
         // Удаляем связанные данные
         standingService.deleteByTeamId(id);
+        teamStatisticsService.deleteByTeamId(id);
 
         teamRepository.deleteById(id);
+        referenceDataCache.invalidateTeam(id);
+        TransactionCallbacks.afterCommit(() -> {
+            formTable.removeTeam(id);
+            nameSearchIndex.remove(NameSearchIndex.Kind.TEAM, id);
+        });
     }
 
     // Бизнес-операция: Добавить очки команде
@@ -126,6 +197,7 @@ public class TeamService {
         }
 
         team.setPoints(team.getPoints() + pointsToAdd);
+        referenceDataCache.invalidateTeam(teamId);
         return teamRepository.save(team);
     }
 
@@ -140,48 +212,39 @@ public class TeamService {
         }
 
         team.setCity(newCity);
+        referenceDataCache.invalidateTeam(teamId);
         return teamRepository.save(team);
     }
 
     // Бизнес-операция: Получить средний возраст команды
+    // Средний возраст считается в БД (AVG по игрокам команды); команда без игроков - 0
+    @Transactional(readOnly = true)
     public Double getTeamAverageAge(Long teamId) {
-        // Это потребует PlayerService, который мы создадим
-        // Пока заглушка
-        return 25.5;
+        if (!referenceDataCache.teamExists(teamId)) {
+            throw new RuntimeException("Team not found with ID: " + teamId);
+        }
+        Double averageAge = playerRepository.getAverageAgeByTeamId(teamId);
+        return averageAge != null ? Math.round(averageAge * 100.0) / 100.0 : 0.0;
     }
 
     // Бизнес-операция: Получить общую статистику лиги
-    public Map<String, Object> getLeagueStatistics() {
-        List<Team> allTeams = getAllTeams();
-        int totalTeams = allTeams.size();
-        int totalPoints = allTeams.stream().mapToInt(Team::getPoints).sum();
+    // Агрегаты считаются в БД: COUNT/SUM очков, по одной строке для старейшего и самого молодого клуба,
+    // GROUP BY по городам с LIMIT 1
+    @Transactional(readOnly = true)
+    public LeagueStatistics getLeagueStatistics() {
+        CountAndSum points = teamRepository.aggregatePoints();
+        long totalTeams = points.count();
+        long totalPoints = points.sum() != null ? points.sum() : 0;
         double averagePoints = totalTeams > 0 ? (double) totalPoints / totalTeams : 0;
 
-        // Самый старый и самый молодой клуб
-        Optional<Team> oldestTeam = allTeams.stream()
-                .filter(t -> t.getFoundationYear() != null)
-                .min((t1, t2) -> t1.getFoundationYear().compareTo(t2.getFoundationYear()));
-
-        Optional<Team> newestTeam = allTeams.stream()
-                .filter(t -> t.getFoundationYear() != null)
-                .max((t1, t2) -> t1.getFoundationYear().compareTo(t2.getFoundationYear()));
-
-        // Город с наибольшим количеством команд
-        Map<String, Long> teamsByCity = allTeams.stream()
-                .filter(t -> t.getCity() != null)
-                .collect(Collectors.groupingBy(Team::getCity, Collectors.counting()));
-
-        Optional<Map.Entry<String, Long>> mostTeamsCity = teamsByCity.entrySet().stream()
-                .max(Map.Entry.comparingByValue());
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("totalTeams", totalTeams);
-        result.put("totalPoints", totalPoints);
-        result.put("averagePoints", averagePoints);
-        result.put("oldestTeam", oldestTeam.map(Team::getName).orElse("Unknown"));
-        result.put("newestTeam", newestTeam.map(Team::getName).orElse("Unknown"));
-        result.put("cityWithMostTeams", mostTeamsCity.map(e -> e.getKey() + " (" + e.getValue() + " teams)").orElse("Unknown"));
+        Pageable first = PageRequest.of(0, 1);
+        String oldestTeam = teamRepository.findNamesByFoundationYearAsc(first).stream().findFirst().orElse("Unknown");
+        String newestTeam = teamRepository.findNamesByFoundationYearDesc(first).stream().findFirst().orElse("Unknown");
+        String cityWithMostTeams = teamRepository.countByCityDesc(first).stream()
+                .findFirst()
+                .map(city -> city.key() + " (" + city.count() + " teams)")
+                .orElse("Unknown");
 
-        return result;
+        return new LeagueStatistics(totalTeams, totalPoints, averagePoints, oldestTeam, newestTeam, cityWithMostTeams);
     }
 }
\ No newline at end of file
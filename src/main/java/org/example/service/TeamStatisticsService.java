@@ -0,0 +1,294 @@
+package org.example.service;
+
+import org.example.config.SequenceIds;
+import org.example.dto.MatchResultRow;
+import org.example.model.TeamStatistics;
+import org.example.repository.MatchRepository;
+import org.example.repository.TeamStatisticsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Статистика команд с разбивкой дома/в гостях.
+// Завершение матча добавляет дельты к строкам команд атомарным UPDATE (x = x + ?) в той же транзакции,
+// поэтому чтение статистики - одна строка по team_id вместо пересчёта всех матчей команды.
+@Service
+@Transactional
+public class TeamStatisticsService {
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    // Порядок полей совпадает с порядком колонок в UPDATE/INSERT
+    private static final int HOME = 0;
+    private static final int AWAY = 6;
+    private static final int PLAYED = 0;
+    private static final int WINS = 1;
+    private static final int DRAWS = 2;
+    private static final int LOSSES = 3;
+    private static final int GOALS_FOR = 4;
+    private static final int GOALS_AGAINST = 5;
+    private static final int FIELDS = 12;
+
+    private static final String COLUMNS = """
+            home_played, home_wins, home_draws, home_losses, home_goals_for, home_goals_against,
+            away_played, away_wins, away_draws, away_losses, away_goals_for, away_goals_against""";
+
+    private static final String SEQUENCE = "team_statistics_seq";
+
+    private static final String INSERT_SQL = "INSERT INTO team_statistics (id, team_id, " + COLUMNS
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = """
+            UPDATE team_statistics SET
+                home_played = home_played + ?, home_wins = home_wins + ?, home_draws = home_draws + ?,
+                home_losses = home_losses + ?, home_goals_for = home_goals_for + ?,
+                home_goals_against = home_goals_against + ?,
+                away_played = away_played + ?, away_wins = away_wins + ?, away_draws = away_draws + ?,
+                away_losses = away_losses + ?, away_goals_for = away_goals_for + ?,
+                away_goals_against = away_goals_against + ?
+            WHERE team_id = ?""";
+
+    @Autowired
+    private TeamStatisticsRepository teamStatisticsRepository;
+
+    @Autowired
+    private MatchRepository matchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    // Статистика команды; для команды без завершённых матчей - нули
+    @Transactional(readOnly = true)
+    public TeamStatistics getByTeamId(Long teamId) {
+        return teamStatisticsRepository.findByTeamId(teamId).orElseGet(() -> {
+            TeamStatistics empty = new TeamStatistics();
+            empty.setTeamId(teamId);
+            return empty;
+        });
+    }
+
+    // Учесть завершённые матчи (вызывается в транзакции завершения)
+    @Transactional
+    public void recordResults(List<MatchResultRow> results) {
+        applyDeltas(tally(results, 1), true);
+    }
+
+    // Откатить вклад матчей (счёт завершённого матча исправлен, матч удалён или снят с FINISHED).
+    // Откат никогда не вставляет строку: у команды без строки вклада нет, а вставка дала бы отрицательные
+    // показатели - такие команды пропускаются, их строки создаст backfillFromMatches
+    @Transactional
+    public void revertResults(List<MatchResultRow> results) {
+        applyDeltas(tally(results, -1), false);
+    }
+
+    // Пустая строка для новой команды, чтобы первые результаты шли обычным UPDATE
+    @Transactional
+    public void createForTeam(Long teamId) {
+        if (teamStatisticsRepository.findByTeamId(teamId).isPresent()) {
+            return;
+        }
+        insert(List.<Object[]>of(insertArgs(teamId, new int[FIELDS])));
+    }
+
+    @Transactional
+    public void deleteByTeamId(Long teamId) {
+        jdbcTemplate.update("DELETE FROM team_statistics WHERE team_id = ?", teamId);
+    }
+
+    // Бизнес-операция: заполнить таблицу по истории завершённых матчей (первичное заполнение или сверка).
+    // Матчи читаются порциями по ID, таблица статистики перезаписывается целиком
+    @Transactional
+    public Map<String, Object> backfillFromMatches() {
+        long startedAt = System.currentTimeMillis();
+
+        // Блокируем строки статистики: незавершённые транзакции завершения матчей успевают закоммититься до чтения,
+        // новые ждут пересчёта и затем добавляют свои дельты к уже перезаписанным строкам
+        jdbcTemplate.queryForList("SELECT id FROM team_statistics ORDER BY team_id FOR UPDATE", Long.class);
+
+        Map<Long, int[]> totals = new HashMap<>();
+        long matchesProcessed = 0;
+        long lastId = 0;
+        while (true) {
+            List<MatchResultRow> chunk = matchRepository.findFinishedResultsAfter(lastId, PageRequest.of(0, CHUNK_SIZE));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            chunk.forEach(row -> addResult(totals, row, 1));
+            matchesProcessed += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).id();
+        }
+
+        // Строка на каждую существующую команду (в том числе без матчей), удалённые команды пропускаются
+        List<Long> teamIds = jdbcTemplate.queryForList("SELECT id FROM teams ORDER BY id", Long.class);
+        List<Object[]> rows = new ArrayList<>(teamIds.size());
+        for (Long teamId : teamIds) {
+            rows.add(insertArgs(teamId, totals.getOrDefault(teamId, new int[FIELDS])));
+        }
+
+        int deleted = jdbcTemplate.update("DELETE FROM team_statistics");
+        insert(rows);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("matchesProcessed", matchesProcessed);
+        report.put("teams", rows.size());
+        report.put("replacedRows", deleted);
+        report.put("durationMs", System.currentTimeMillis() - startedAt);
+        return report;
+    }
+
+    // Показатели в формате ответа API: итог, дом, выезд
+    public static Map<String, Object> toSummary(TeamStatistics stats) {
+        int played = stats.getHomePlayed() + stats.getAwayPlayed();
+        int wins = stats.getHomeWins() + stats.getAwayWins();
+        int draws = stats.getHomeDraws() + stats.getAwayDraws();
+        int losses = stats.getHomeLosses() + stats.getAwayLosses();
+        int goalsFor = stats.getHomeGoalsFor() + stats.getAwayGoalsFor();
+        int goalsAgainst = stats.getHomeGoalsAgainst() + stats.getAwayGoalsAgainst();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totalMatches", played);
+        result.put("homeMatches", stats.getHomePlayed());
+        result.put("awayMatches", stats.getAwayPlayed());
+        result.put("wins", wins);
+        result.put("draws", draws);
+        result.put("losses", losses);
+        result.put("goalsFor", goalsFor);
+        result.put("goalsAgainst", goalsAgainst);
+        result.put("goalDifference", goalsFor - goalsAgainst);
+        result.put("winRate", played > 0 ? (double) wins / played * 100 : 0);
+        result.put("drawRate", played > 0 ? (double) draws / played * 100 : 0);
+        result.put("lossRate", played > 0 ? (double) losses / played * 100 : 0);
+        result.put("home", split(stats.getHomePlayed(), stats.getHomeWins(), stats.getHomeDraws(),
+                stats.getHomeLosses(), stats.getHomeGoalsFor(), stats.getHomeGoalsAgainst()));
+        result.put("away", split(stats.getAwayPlayed(), stats.getAwayWins(), stats.getAwayDraws(),
+                stats.getAwayLosses(), stats.getAwayGoalsFor(), stats.getAwayGoalsAgainst()));
+        return result;
+    }
+
+    private static Map<String, Object> split(int played, int wins, int draws, int losses, int goalsFor, int goalsAgainst) {
+        Map<String, Object> split = new LinkedHashMap<>();
+        split.put("matches", played);
+        split.put("wins", wins);
+        split.put("draws", draws);
+        split.put("losses", losses);
+        split.put("goalsFor", goalsFor);
+        split.put("goalsAgainst", goalsAgainst);
+        split.put("winRate", played > 0 ? (double) wins / played * 100 : 0);
+        return split;
+    }
+
+    // Строки пишутся в порядке team_id - параллельные завершения не блокируют друг друга взаимно.
+    // insertMissing = false: команды без строки пропускаются (откат)
+    private void applyDeltas(TreeMap<Long, int[]> deltas, boolean insertMissing) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Long> teamIds = new ArrayList<>(deltas.keySet());
+        List<Object[]> updates = new ArrayList<>(teamIds.size());
+        for (Long teamId : teamIds) {
+            int[] delta = deltas.get(teamId);
+            Object[] args = new Object[FIELDS + 1];
+            for (int i = 0; i < FIELDS; i++) {
+                args[i] = delta[i];
+            }
+            args[FIELDS] = teamId;
+            updates.add(args);
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+        List<Long> missing = new ArrayList<>();
+        List<Object[]> missingUpdates = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                missing.add(teamIds.get(i));
+                missingUpdates.add(updates.get(i));
+            }
+        }
+        if (missing.isEmpty() || !insertMissing) {
+            return;
+        }
+
+        // Строки нет (команда создана до появления таблицы и не заполнена backfill'ом).
+        // Блокируем строки команд и повторяем UPDATE: параллельная транзакция могла успеть вставить строку
+        jdbcTemplate.queryForList("SELECT id FROM teams WHERE id IN (" + placeholders(missing.size()) + ") ORDER BY id FOR UPDATE",
+                Long.class, missing.toArray());
+        int[] retryCounts = jdbcTemplate.batchUpdate(UPDATE_SQL, missingUpdates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < retryCounts.length; i++) {
+            if (retryCounts[i] == 0) {
+                inserts.add(insertArgs(missing.get(i), deltas.get(missing.get(i))));
+            }
+        }
+        if (!inserts.isEmpty()) {
+            insert(inserts);
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static TreeMap<Long, int[]> tally(List<MatchResultRow> results, int sign) {
+        TreeMap<Long, int[]> deltas = new TreeMap<>();
+        results.forEach(row -> addResult(deltas, row, sign));
+        return deltas;
+    }
+
+    private static void addResult(Map<Long, int[]> totals, MatchResultRow row, int sign) {
+        int[] home = totals.computeIfAbsent(row.homeTeamId(), id -> new int[FIELDS]);
+        int[] away = totals.computeIfAbsent(row.awayTeamId(), id -> new int[FIELDS]);
+        addSide(home, HOME, row.homeScore(), row.awayScore(), sign);
+        addSide(away, AWAY, row.awayScore(), row.homeScore(), sign);
+    }
+
+    private static void addSide(int[] values, int side, int scored, int conceded, int sign) {
+        values[side + PLAYED] += sign;
+        values[side + GOALS_FOR] += sign * scored;
+        values[side + GOALS_AGAINST] += sign * conceded;
+        if (scored > conceded) {
+            values[side + WINS] += sign;
+        } else if (scored < conceded) {
+            values[side + LOSSES] += sign;
+        } else {
+            values[side + DRAWS] += sign;
+        }
+    }
+
+    // Вставка строк (team_id и показатели); ID выделяются из последовательности диапазонами
+    private void insert(List<Object[]> rows) {
+        long[] ids = sequenceIds.next(SEQUENCE, rows.size());
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = new Object[FIELDS + 2];
+            row[0] = ids[i];
+            System.arraycopy(rows.get(i), 0, row, 1, FIELDS + 1);
+            args.add(row);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+    }
+
+    private static Object[] insertArgs(Long teamId, int[] values) {
+        Object[] args = new Object[FIELDS + 1];
+        args[0] = teamId;
+        for (int i = 0; i < FIELDS; i++) {
+            args[i + 1] = values[i];
+        }
+        return args;
+    }
+}
@@ -1,15 +1,30 @@
 package org.example.service;
 
+import org.example.config.SequenceIds;
+import org.example.dto.PlayerSummary;
+import org.example.dto.SeasonScheduleRequest;
 import org.example.model.*;
 import org.example.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,90 +46,106 @@ public class TournamentService {
     @Autowired
     private VenueRepository venueRepository;
 
+    @Autowired
+    private MatchOutboxRepository matchOutboxRepository;
+
+    @Autowired
+    private StandingService standingService;
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private VenueCalendar venueCalendar;
+
+    @Autowired
+    private SeasonScheduleGenerator seasonScheduleGenerator;
+
+    @Autowired
+    private TeamStatisticsService teamStatisticsService;
+
+    @Autowired
+    private PlayerService playerService;
+
+    @Autowired
+    private GoalCounter goalCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final int MAX_CALENDAR_RANGE_DAYS = 366;
+    private static final List<LocalTime> DEFAULT_KICKOFF_TIMES =
+            List.of(LocalTime.of(15, 0), LocalTime.of(18, 0), LocalTime.of(21, 0));
+
     // 1. БИЗНЕС-ОПЕРАЦИЯ: Создание нового сезона
+    // Каждый шаг - один SQL-оператор (UPDATE/DELETE/INSERT ... SELECT) в общей транзакции,
+    // сущности в память не загружаются; в ответе - число строк и длительность по шагам
     @Transactional
-    public void initializeNewSeason() {
+    public Map<String, Object> initializeNewSeason() {
+        BulkOperationReport report = new BulkOperationReport();
+
+        // Сначала строки standings (по team_id) - в том же порядке, что обработчик очереди (standings, затем teams),
+        // иначе сброс очков команд и применение результатов заблокируют друг друга
+        standingRepository.lockAllOrderByTeamId();
+
         // Сбрасываем все матчи кроме FINISHED
-        List<Match> matches = matchRepository.findByStatusNot("FINISHED");
-        matchRepository.deleteAll(matches);
+        report.step("matchesDeleted", matchRepository::deleteUnfinished);
 
         // Сбрасываем статистику команд
-        List<Team> teams = teamRepository.findAll();
-        teams.forEach(team -> {
-            team.setPoints(0);
-            teamRepository.save(team);
-        });
+        report.step("teamPointsReset", teamRepository::resetAllPoints);
+        referenceDataCache.invalidateAllTeams();
 
-        // Сбрасываем турнирную таблицу
-        standingRepository.deleteAll();
+        // Сбрасываем турнирную таблицу; необработанные результаты прошлого сезона отбрасываем
+        report.step("outboxDiscarded", matchOutboxRepository::deletePending);
+        report.step("standingsDeleted", standingRepository::deleteWithoutTeam);
+        report.step("standingsReset", standingRepository::resetAll);
 
-        // Создаем новые записи в таблице для каждой команды
-        teams.forEach(team -> {
-            Standing standing = new Standing();
-            standing.setTeamId(team.getId());
-            standing.setPosition(0);
-            standingRepository.save(standing);
+        // Записи в таблице для команд, у которых их нет
+        report.step("standingsCreated", standingRepository::insertMissingForTeams);
+
+        standingService.refreshRankIndex();
+        TransactionCallbacks.afterCommit(() -> {
+            scheduleIndex.reload();
+            venueCalendar.reload();
         });
+        return report.toMap();
     }
 
     // 2. БИЗНЕС-ОПЕРАЦИЯ: Получить статистику команды
+    // Показатели - из накопленной строки team_statistics, лучший бомбардир и размер состава - запросами к БД
+    @Transactional(readOnly = true)
     public Map<String, Object> getTeamStatistics(Long teamId) {
-        if (!teamRepository.existsById(teamId)) {
+        if (!referenceDataCache.teamExists(teamId)) {
             throw new RuntimeException("Team not found");
         }
 
-        // Все матчи команды
-        List<Match> teamMatches = matchRepository.findByHomeTeamIdOrAwayTeamId(teamId, teamId);
+        Map<String, Object> statistics = TeamStatisticsService.toSummary(teamStatisticsService.getByTeamId(teamId));
 
-        // Фильтруем завершенные матчи
-        List<Match> finishedMatches = teamMatches.stream()
-                .filter(m -> "FINISHED".equals(m.getStatus()))
-                .collect(Collectors.toList());
+        statistics.put("topScorer", goalCounter.read(() -> {
+            PlayerSummary topScorer = playerRepository.findTopScorersByTeamId(teamId, PageRequest.of(0, 1))
+                    .stream().findFirst().orElse(null);
+            return topScorer != null ? Map.of(
+                    "name", topScorer.name(),
+                    "goals", (topScorer.goalsScored() != null ? topScorer.goalsScored() : 0)
+                            + goalCounter.pendingFor(topScorer.id())
+            ) : null;
+        }));
+        statistics.put("squadSize", playerRepository.countByTeamId(teamId));
 
-        int wins = 0;
-        int draws = 0;
-        int losses = 0;
-        int goalsFor = 0;
-        int goalsAgainst = 0;
-
-        for (Match match : finishedMatches) {
-            boolean isHome = match.getHomeTeamId().equals(teamId);
-            int teamGoals = isHome ? match.getHomeTeamScore() : match.getAwayTeamScore();
-            int opponentGoals = isHome ? match.getAwayTeamScore() : match.getHomeTeamScore();
-
-            goalsFor += teamGoals;
-            goalsAgainst += opponentGoals;
-
-            if (teamGoals > opponentGoals) {
-                wins++;
-            } else if (teamGoals < opponentGoals) {
-                losses++;
-            } else {
-                draws++;
-            }
-        }
+        return statistics;
+    }
 
-        // Игроки команды
-        List<Player> teamPlayers = playerRepository.findByTeamId(teamId);
-        Player topScorer = teamPlayers.stream()
-                .max((p1, p2) -> Integer.compare(p1.getGoalsScored(), p2.getGoalsScored()))
-                .orElse(null);
-
-        return Map.of(
-                "totalMatches", finishedMatches.size(),
-                "wins", wins,
-                "draws", draws,
-                "losses", losses,
-                "goalsFor", goalsFor,
-                "goalsAgainst", goalsAgainst,
-                "goalDifference", goalsFor - goalsAgainst,
-                "winRate", finishedMatches.isEmpty() ? 0 : (double) wins / finishedMatches.size() * 100,
-                "topScorer", topScorer != null ? Map.of(
-                        "name", topScorer.getName(),
-                        "goals", topScorer.getGoalsScored()
-                ) : null,
-                "squadSize", teamPlayers.size()
-        );
+    // 2a. БИЗНЕС-ОПЕРАЦИЯ: Заполнить статистику команд по истории завершённых матчей
+    @Transactional
+    public Map<String, Object> backfillTeamStatistics() {
+        return teamStatisticsService.backfillFromMatches();
     }
 
     // 3. БИЗНЕС-ОПЕРАЦИЯ: Назначить лучшего игрока матча
@@ -137,30 +168,76 @@ public class TournamentService {
             throw new RuntimeException("Player did not participate in this match");
         }
 
-        // Увеличиваем голы игрока (как пример награды)
-        player.setGoalsScored(player.getGoalsScored() + 1);
-
-        return playerRepository.save(player);
+        // Увеличиваем голы игрока (как пример награды) - через счётчик голов, без перезаписи сущности
+        return playerService.recordGoal(player);
     }
 
     // 4. БИЗНЕС-ОПЕРАЦИЯ: Поиск свободных арен на дату
     public List<Venue> findAvailableVenues(LocalDateTime date) {
-        // Все арены
-        List<Venue> allVenues = venueRepository.findAll();
-
-        // Арены, на которых есть матчи в эту дату
+        // Арены, на которых есть матчи в эту дату - по календарю занятости
         LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
+        BitSet busy = venueCalendar.busyBetween(startOfDay, startOfDay.plusDays(1));
+
+        return venueCalendar.freeVenues(venueRepository.findAll(), busy);
+    }
 
-        List<Match> matchesOnDate = matchRepository.findByMatchDateBetween(startOfDay, endOfDay);
-        List<Long> busyVenueIds = matchesOnDate.stream()
-                .map(Match::getVenueId)
-                .distinct()
+    // 4a. БИЗНЕС-ОПЕРАЦИЯ: Свободные арены на весь интервал [start, end)
+    public List<Venue> findVenuesFreeBetween(LocalDateTime start, LocalDateTime end, Integer minCapacity, String city) {
+        if (!start.isBefore(end)) {
+            throw new RuntimeException("Start must be before end");
+        }
+        BitSet busy = venueCalendar.busyBetween(start, end);
+        return venueCalendar.freeVenues(candidateVenues(minCapacity, city), busy);
+    }
+
+    // 4b. БИЗНЕС-ОПЕРАЦИЯ: Арены, свободные во все подходящие дни диапазона
+    // (например, все субботы марта с 15:00 до 17:00 вместимостью от 20000)
+    public List<Venue> findVenuesFreeOnDays(LocalDate from, LocalDate to, DayOfWeek dayOfWeek,
+                                            LocalTime startTime, LocalTime endTime,
+                                            Integer minCapacity, String city) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_CALENDAR_RANGE_DAYS) {
+            throw new RuntimeException("Date range is limited to " + MAX_CALENDAR_RANGE_DAYS + " days");
+        }
+        LocalTime windowStart = startTime != null ? startTime : LocalTime.MIDNIGHT;
+        if (endTime != null && !windowStart.isBefore(endTime)) {
+            throw new RuntimeException("Start time must be before end time");
+        }
+
+        List<LocalDate> dates = from.datesUntil(to.plusDays(1))
+                .filter(date -> dayOfWeek == null || date.getDayOfWeek() == dayOfWeek)
                 .collect(Collectors.toList());
+        BitSet busy = venueCalendar.busyOnDays(dates, windowStart, endTime);
+        return venueCalendar.freeVenues(candidateVenues(minCapacity, city), busy);
+    }
+
+    private static List<Match> toMatches(List<SeasonScheduleGenerator.Fixture> fixtures, long[] ids) {
+        List<Match> matches = new java.util.ArrayList<>(fixtures.size());
+        for (int i = 0; i < fixtures.size(); i++) {
+            SeasonScheduleGenerator.Fixture fixture = fixtures.get(i);
+            Match match = new Match();
+            match.setId(ids[i]);
+            match.setHomeTeamId(fixture.homeTeamId());
+            match.setAwayTeamId(fixture.awayTeamId());
+            match.setVenueId(fixture.venueId());
+            match.setMatchDate(fixture.kickoff());
+            match.setStatus("SCHEDULED");
+            matches.add(match);
+        }
+        return matches;
+    }
 
-        // Фильтруем свободные арены
-        return allVenues.stream()
-                .filter(venue -> !busyVenueIds.contains(venue.getId()))
+    private List<Venue> candidateVenues(Integer minCapacity, String city) {
+        List<Venue> venues = minCapacity != null
+                ? venueRepository.findByCapacityGreaterThanEqual(minCapacity)
+                : venueRepository.findAll();
+        if (city == null) {
+            return venues;
+        }
+        return venues.stream()
+                .filter(venue -> city.equalsIgnoreCase(venue.getCity()))
                 .collect(Collectors.toList());
     }
 
@@ -185,7 +262,13 @@ public class TournamentService {
 
             try {
                 Match created = matchRepository.save(match);
+                // Бронь видна следующим матчам тура и параллельным транзакциям до коммита
+                scheduleIndex.reserve(created);
                 createdMatches.add(created);
+                TransactionCallbacks.afterCommit(() -> {
+                    scheduleIndex.put(created);
+                    venueCalendar.put(created);
+                });
             } catch (Exception e) {
                 throw new RuntimeException("Failed to create match: " + e.getMessage());
             }
@@ -195,4 +278,110 @@ public class TournamentService {
 
         return createdMatches;
     }
-}
\ No newline at end of file
+
+    // 6. БИЗНЕС-ОПЕРАЦИЯ: Сгенерировать расписание сезона (двойной круг)
+    @Transactional
+    public Map<String, Object> generateSeasonSchedule(SeasonScheduleRequest request) {
+        long startedAt = System.currentTimeMillis();
+
+        List<Team> teams = request.getTeamIds() != null
+                ? teamRepository.findAllById(request.getTeamIds())
+                : teamRepository.findAll();
+        if (request.getTeamIds() != null) {
+            if (new HashSet<>(request.getTeamIds()).size() != request.getTeamIds().size()) {
+                throw new RuntimeException("Duplicate team IDs");
+            }
+            if (teams.size() != request.getTeamIds().size()) {
+                throw new RuntimeException("Some teams not found");
+            }
+        }
+        if (teams.size() < 2) {
+            throw new RuntimeException("At least two teams are required");
+        }
+
+        List<Venue> venues = request.getVenueIds() != null
+                ? venueRepository.findAllById(request.getVenueIds())
+                : venueRepository.findAll();
+        if (request.getVenueIds() != null) {
+            if (new HashSet<>(request.getVenueIds()).size() != request.getVenueIds().size()) {
+                throw new RuntimeException("Duplicate venue IDs");
+            }
+            if (venues.size() != request.getVenueIds().size()) {
+                throw new RuntimeException("Some venues not found");
+            }
+        }
+        if (venues.isEmpty()) {
+            throw new RuntimeException("At least one venue is required");
+        }
+
+        SeasonScheduleGenerator.Settings settings = scheduleSettings(request);
+
+        List<Team> sortedTeams = teams.stream()
+                .sorted((a, b) -> a.getId().compareTo(b.getId()))
+                .collect(Collectors.toList());
+        Map<Long, String> teamCities = new HashMap<>();
+        sortedTeams.stream().filter(t -> t.getCity() != null).forEach(t -> teamCities.put(t.getId(), t.getCity()));
+
+        SeasonScheduleGenerator.Schedule schedule = seasonScheduleGenerator.generate(
+                sortedTeams.stream().map(Team::getId).collect(Collectors.toList()), venues, teamCities, settings);
+        long generatedAt = System.currentTimeMillis();
+
+        boolean dryRun = Boolean.TRUE.equals(request.getDryRun());
+        if (!dryRun) {
+            // Пакетная вставка без гидрации сущностей; ID - диапазонами из последовательности матчей.
+            // Слоты бронируются до вставки: генератор проверял только закоммиченное расписание
+            long[] matchIds = sequenceIds.next("matches_seq", schedule.fixtures().size());
+            scheduleIndex.reserve(toMatches(schedule.fixtures(), matchIds));
+            PrimitiveIterator.OfLong ids = Arrays.stream(matchIds).iterator();
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO matches (id, home_team_id, away_team_id, venue_id, match_date, status) " +
+                            "VALUES (?, ?, ?, ?, ?, 'SCHEDULED')",
+                    schedule.fixtures(), INSERT_BATCH_SIZE, (ps, fixture) -> {
+                        ps.setLong(1, ids.nextLong());
+                        ps.setLong(2, fixture.homeTeamId());
+                        ps.setLong(3, fixture.awayTeamId());
+                        ps.setLong(4, fixture.venueId());
+                        ps.setTimestamp(5, Timestamp.valueOf(fixture.kickoff()));
+                    });
+            TransactionCallbacks.afterCommit(() -> {
+                scheduleIndex.reload();
+                venueCalendar.reload();
+            });
+        }
+
+        List<SeasonScheduleGenerator.Fixture> fixtures = schedule.fixtures();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("dryRun", dryRun);
+        report.put("teams", sortedTeams.size());
+        report.put("venues", venues.size());
+        report.put("rounds", schedule.rounds());
+        report.put("matches", fixtures.size());
+        report.put("seasonStart", fixtures.isEmpty() ? null : fixtures.get(0).kickoff());
+        report.put("seasonEnd", fixtures.isEmpty() ? null : fixtures.get(fixtures.size() - 1).kickoff());
+        report.put("homeAwayBreaksInitial", schedule.initialBreaks());
+        report.put("homeAwayBreaks", schedule.breaks());
+        report.put("generationMs", generatedAt - startedAt);
+        report.put("durationMs", System.currentTimeMillis() - startedAt);
+        if (dryRun) {
+            report.put("fixtures", fixtures);
+        }
+        return report;
+    }
+
+    private static SeasonScheduleGenerator.Settings scheduleSettings(SeasonScheduleRequest request) {
+        List<LocalTime> kickoffTimes = request.getKickoffTimes() != null && !request.getKickoffTimes().isEmpty()
+                ? request.getKickoffTimes().stream().distinct().sorted().collect(Collectors.toList())
+                : DEFAULT_KICKOFF_TIMES;
+        int daysBetweenRounds = request.getDaysBetweenRounds() != null ? request.getDaysBetweenRounds() : 7;
+        int roundSpanDays = request.getRoundSpanDays() != null ? request.getRoundSpanDays() : 2;
+        int minRestDays = request.getMinRestDays() != null ? request.getMinRestDays() : 2;
+
+        if (daysBetweenRounds < 1 || roundSpanDays < 1 || minRestDays < 0) {
+            throw new RuntimeException("Invalid schedule settings");
+        }
+
+        return new SeasonScheduleGenerator.Settings(
+                request.getStartDate() != null ? request.getStartDate() : LocalDate.now().plusDays(1),
+                kickoffTimes, daysBetweenRounds, roundSpanDays, minRestDays);
+    }
+}
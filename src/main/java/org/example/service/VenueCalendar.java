@@ -0,0 +1,297 @@
+package org.example.service;
+
+import org.example.dto.VenueBookingRow;
+import org.example.model.Match;
+import org.example.model.Venue;
+import org.example.repository.MatchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Календарь занятости арен в виде битовых карт.
+// День делится на слоты (app.venue-calendar.slot-minutes); на каждый слот с матчами - BitSet по порядковым номерам арен.
+// Хранятся только дни и слоты, где есть матчи, поэтому карта разрежена.
+// Занятость за интервал - OR битовых карт слотов, свободные арены - кандидаты AND NOT занятые.
+// Календарь покрывает только горизонт от начала сегодняшнего дня (минус app.venue-calendar.history-days):
+// история завершённых матчей в память не загружается, запросы до горизонта отклоняются.
+@Component
+public class VenueCalendar {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+
+    private record Booking(long matchId, int venue, LocalDateTime start, LocalDateTime end) {
+    }
+
+    private final MatchRepository matchRepository;
+    private final int slotMinutes;
+    private final int slotsPerDay;
+    private final int historyDays;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // ID арены -> порядковый номер бита
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final TreeMap<LocalDate, BitSet[]> days = new TreeMap<>();
+    private final Map<Long, Booking> bookings = new HashMap<>();
+    private final Map<Integer, Set<Long>> bookingsByVenue = new HashMap<>();
+    // Начало горизонта последней загрузки: раньше этого момента занятость неизвестна
+    private LocalDateTime trackedFrom;
+    // Изменения, пришедшие во время загрузки из БД, применяются повторно к загруженному календарю
+    private final List<Runnable> changesDuringLoad = new ArrayList<>();
+    private boolean loading;
+
+    public VenueCalendar(MatchRepository matchRepository,
+                         @Value("${app.venue-calendar.slot-minutes:30}") int slotMinutes,
+                         @Value("${app.venue-calendar.history-days:0}") int historyDays) {
+        if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalStateException("app.venue-calendar.slot-minutes must divide 1440, got " + slotMinutes);
+        }
+        if (historyDays < 0) {
+            throw new IllegalStateException("app.venue-calendar.history-days must not be negative, got " + historyDays);
+        }
+        this.matchRepository = matchRepository;
+        this.slotMinutes = slotMinutes;
+        this.slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+        this.historyDays = historyDays;
+        this.trackedFrom = horizon();
+    }
+
+    // Арену занимают все матчи, кроме отменённых; загружаются только матчи горизонта
+    // (начавшиеся не раньше чем за MATCH_DURATION до него - они ещё занимают арену), порциями по ID
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changesDuringLoad.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        LocalDateTime from = horizon();
+        List<VenueBookingRow> rows = null;
+        try {
+            rows = loadBookings(from.minus(ScheduleIndex.MATCH_DURATION));
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // Если загрузка не удалась, календарь остаётся прежним: изменения уже применены к нему
+                if (rows != null) {
+                    days.clear();
+                    bookings.clear();
+                    bookingsByVenue.clear();
+                    trackedFrom = from;
+                    for (VenueBookingRow row : rows) {
+                        putLocked(row.id(), row.venueId(), row.matchDate());
+                    }
+                    changesDuringLoad.forEach(Runnable::run);
+                }
+                loading = false;
+                changesDuringLoad.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private List<VenueBookingRow> loadBookings(LocalDateTime loadFrom) {
+        List<VenueBookingRow> rows = new ArrayList<>();
+        long lastId = 0L;
+        while (true) {
+            List<VenueBookingRow> chunk = matchRepository.findVenueBookingsFrom(
+                    loadFrom, lastId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            rows.addAll(chunk);
+            if (chunk.size() < LOAD_CHUNK_SIZE) {
+                return rows;
+            }
+            lastId = chunk.get(chunk.size() - 1).id();
+        }
+    }
+
+    // Начало отслеживаемого интервала
+    public LocalDateTime trackedFrom() {
+        lock.readLock().lock();
+        try {
+            return trackedFrom;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Match match) {
+        Long matchId = match.getId();
+        Long venueId = match.getVenueId();
+        LocalDateTime matchDate = match.getMatchDate();
+        boolean cancelled = "CANCELLED".equals(match.getStatus());
+        Runnable change = () -> {
+            removeLocked(matchId);
+            if (!cancelled) {
+                putLocked(matchId, venueId, matchDate);
+            }
+        };
+
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (loading) {
+                changesDuringLoad.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long matchId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(matchId);
+            if (loading) {
+                changesDuringLoad.add(() -> removeLocked(matchId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Арены, занятые хотя бы в одном слоте интервала [from, to)
+    public BitSet busyBetween(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            requireTracked(from);
+            BitSet busy = new BitSet();
+            orBusy(busy, from, to);
+            return busy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Арены, занятые в окне [from, to) хотя бы в один из дней (to = null - до конца дня)
+    public BitSet busyOnDays(Collection<LocalDate> dates, LocalTime from, LocalTime to) {
+        lock.readLock().lock();
+        try {
+            BitSet busy = new BitSet();
+            for (LocalDate date : dates) {
+                requireTracked(date.atTime(from));
+                orBusy(busy, date.atTime(from), to != null ? date.atTime(to) : date.plusDays(1).atStartOfDay());
+            }
+            return busy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Кандидаты без занятых арен; арены без единого матча в календаре свободны всегда
+    public List<Venue> freeVenues(List<Venue> candidates, BitSet busy) {
+        List<Venue> free = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Venue venue : candidates) {
+                Integer ordinal = ordinals.get(venue.getId());
+                if (ordinal == null || !busy.get(ordinal)) {
+                    free.add(venue);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return free;
+    }
+
+    private void requireTracked(LocalDateTime from) {
+        if (from.isBefore(trackedFrom)) {
+            throw new RuntimeException("Venue availability is tracked only from " + trackedFrom);
+        }
+    }
+
+    private LocalDateTime horizon() {
+        return LocalDate.now().minusDays(historyDays).atStartOfDay();
+    }
+
+    private void orBusy(BitSet busy, LocalDateTime from, LocalDateTime to) {
+        for (LocalDateTime slot = slotStart(from); slot.isBefore(to); slot = slot.plusMinutes(slotMinutes)) {
+            BitSet[] day = days.get(slot.toLocalDate());
+            if (day == null) {
+                slot = slot.toLocalDate().plusDays(1).atStartOfDay().minusMinutes(slotMinutes); // пустой день целиком
+                continue;
+            }
+            BitSet venues = day[slotIndex(slot)];
+            if (venues != null) {
+                busy.or(venues);
+            }
+        }
+    }
+
+    private void putLocked(Long matchId, Long venueId, LocalDateTime matchDate) {
+        if (matchId == null || venueId == null || matchDate == null) {
+            return;
+        }
+
+        int venue = ordinals.computeIfAbsent(venueId, id -> ordinals.size());
+        Booking booking = new Booking(matchId, venue, matchDate, matchDate.plus(ScheduleIndex.MATCH_DURATION));
+        bookings.put(booking.matchId(), booking);
+        bookingsByVenue.computeIfAbsent(venue, v -> new HashSet<>()).add(booking.matchId());
+        mark(booking);
+    }
+
+    private void removeLocked(Long matchId) {
+        Booking booking = bookings.remove(matchId);
+        if (booking == null) {
+            return;
+        }
+        Set<Long> venueBookings = bookingsByVenue.get(booking.venue());
+        venueBookings.remove(matchId);
+
+        for (LocalDateTime slot = slotStart(booking.start()); slot.isBefore(booking.end()); slot = slot.plusMinutes(slotMinutes)) {
+            BitSet[] day = days.get(slot.toLocalDate());
+            BitSet venues = day != null ? day[slotIndex(slot)] : null;
+            if (venues != null) {
+                venues.clear(booking.venue());
+            }
+        }
+
+        // Другие матчи арены могли делить те же слоты - отмечаем их заново
+        for (Long otherId : venueBookings) {
+            Booking other = bookings.get(otherId);
+            if (other.start().isBefore(booking.end()) && booking.start().isBefore(other.end())) {
+                mark(other);
+            }
+        }
+    }
+
+    private void mark(Booking booking) {
+        for (LocalDateTime slot = slotStart(booking.start()); slot.isBefore(booking.end()); slot = slot.plusMinutes(slotMinutes)) {
+            BitSet[] day = days.computeIfAbsent(slot.toLocalDate(), d -> new BitSet[slotsPerDay]);
+            int index = slotIndex(slot);
+            if (day[index] == null) {
+                day[index] = new BitSet();
+            }
+            day[index].set(booking.venue());
+        }
+    }
+
+    private int slotIndex(LocalDateTime time) {
+        return (time.getHour() * 60 + time.getMinute()) / slotMinutes;
+    }
+
+    private LocalDateTime slotStart(LocalDateTime time) {
+        return time.toLocalDate().atStartOfDay().plusMinutes((long) slotIndex(time) * slotMinutes);
+    }
+}
@@ -1,15 +1,29 @@
 package org.example.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.config.PaginationSettings;
+import org.example.dto.CountAndSum;
+import org.example.dto.CountByKey;
+import org.example.dto.KeysetPage;
+import org.example.dto.VenueStatistics;
+import org.example.dto.VenueSummary;
 import org.example.model.Venue;
 import org.example.repository.VenueRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -18,16 +32,60 @@ public class VenueService {
     @Autowired
     private VenueRepository venueRepository;
 
+    @Autowired
+    private PaginationSettings paginationSettings;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private NameSearchIndex nameSearchIndex;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Кэш статистики арен и версия данных (растёт после каждого изменения арен)
+    private record CachedVenueStatistics(long version, VenueStatistics statistics) {
+    }
+
+    private final AtomicLong statisticsVersion = new AtomicLong();
+    private volatile CachedVenueStatistics cachedStatistics;
+
     public List<Venue> getAllVenues() {
         return venueRepository.findAll();
     }
 
+    // Keyset-пагинация по ID: одна лишняя строка показывает, есть ли следующая страница
+    @Transactional(readOnly = true)
+    public KeysetPage<Venue> getVenuesPage(Long afterId, Integer limit) {
+        int pageSize = paginationSettings.resolvePageSize(limit);
+        List<Venue> rows = venueRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId != null ? afterId : 0L, PageRequest.of(0, pageSize + 1));
+        return KeysetPage.of(rows, pageSize, Venue::getId);
+    }
+
+    // Выгрузка всех арен курсором; прочитанные сущности отсоединяются, поэтому память не растёт
+    @Transactional(readOnly = true)
+    public void streamAllVenues(Consumer<Venue> consumer) {
+        try (Stream<Venue> venues = venueRepository.streamAllByOrderByIdAsc()) {
+            venues.forEach(venue -> {
+                consumer.accept(venue);
+                entityManager.detach(venue);
+            });
+        }
+    }
+
+    // Поиск по ID и названию и проверка существования - через кэш справочных данных
     public Optional<Venue> getVenueById(Long id) {
-        return venueRepository.findById(id);
+        return referenceDataCache.findVenue(id);
     }
 
     public Optional<Venue> getVenueByName(String name) {
-        return venueRepository.findByName(name);
+        return referenceDataCache.findVenueByName(name);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return referenceDataCache.getVenueStats();
     }
 
     public List<Venue> getVenuesByCity(String city) {
@@ -38,14 +96,16 @@ public class VenueService {
         return venueRepository.findByCapacityGreaterThanEqual(minCapacity);
     }
 
-    public List<Venue> getLargestVenues(Integer limit) {
-        List<Venue> allVenues = venueRepository.findAllByOrderByCapacityDesc();
-        return limit != null && limit < allVenues.size() ?
-                allVenues.subList(0, limit) : allVenues;
+    // LIMIT выполняется в БД, возвращаются проекции без гидрации сущностей
+    public List<VenueSummary> getLargestVenues(Integer limit) {
+        if (limit != null && limit <= 0) {
+            return List.of();
+        }
+        return venueRepository.findLargestVenues(limit != null ? PageRequest.of(0, limit) : Pageable.unpaged());
     }
 
     public boolean existsById(Long id) {
-        return venueRepository.existsById(id);
+        return referenceDataCache.venueExists(id);
     }
 
     @Transactional
@@ -60,7 +120,12 @@ public class VenueService {
             throw new RuntimeException("Capacity must be positive");
         }
 
-        return venueRepository.save(venue);
+        invalidateStatisticsAfterCommit();
+        Venue savedVenue = venueRepository.save(venue);
+        referenceDataCache.invalidateVenue(savedVenue.getId());
+        TransactionCallbacks.afterCommit(() ->
+                nameSearchIndex.put(NameSearchIndex.Kind.VENUE, savedVenue.getId(), savedVenue.getName()));
+        return savedVenue;
     }
 
     @Transactional
@@ -91,6 +156,10 @@ public class VenueService {
             venue.setFieldType(venueDetails.getFieldType());
         }
 
+        invalidateStatisticsAfterCommit();
+        referenceDataCache.invalidateVenue(id);
+        String name = venue.getName();
+        TransactionCallbacks.afterCommit(() -> nameSearchIndex.put(NameSearchIndex.Kind.VENUE, id, name));
         return venueRepository.save(venue);
     }
 
@@ -100,7 +169,10 @@ public class VenueService {
             throw new RuntimeException("Venue not found with ID: " + id);
         }
 
+        invalidateStatisticsAfterCommit();
+        referenceDataCache.invalidateVenue(id);
         venueRepository.deleteById(id);
+        TransactionCallbacks.afterCommit(() -> nameSearchIndex.remove(NameSearchIndex.Kind.VENUE, id));
     }
 
     // Бизнес-операция: Найти подходящие арены для матча
@@ -129,49 +201,53 @@ public class VenueService {
         }
 
         venue.setCapacity(venue.getCapacity() + additionalCapacity);
+        invalidateStatisticsAfterCommit();
+        referenceDataCache.invalidateVenue(venueId);
         return venueRepository.save(venue);
     }
 
     // Бизнес-операция: Получить статистику арен
-    public Map<String, Object> getVenueStatistics() {
-        List<Venue> allVenues = getAllVenues();
-
-        if (allVenues.isEmpty()) {
-            return Map.of(
-                    "totalVenues", 0,
-                    "totalCapacity", 0,
-                    "averageCapacity", 0.0,
-                    "largestVenue", "No venues"
-            );
+    // Ответ кэшируется до следующего изменения арен; значение помечается версией, прочитанной до запросов,
+    // поэтому результат, посчитанный параллельно с изменением, из кэша не отдаётся
+    @Transactional(readOnly = true)
+    public VenueStatistics getVenueStatistics() {
+        long version = statisticsVersion.get();
+        CachedVenueStatistics cached = cachedStatistics;
+        if (cached != null && cached.version() == version) {
+            return cached.statistics();
         }
 
-        int totalCapacity = allVenues.stream()
-                .mapToInt(Venue::getCapacity)
-                .sum();
-
-        double averageCapacity = (double) totalCapacity / allVenues.size();
-
-        Optional<Venue> largestVenue = allVenues.stream()
-                .max((v1, v2) -> Integer.compare(v1.getCapacity(), v2.getCapacity()));
+        VenueStatistics statistics = computeVenueStatistics();
+        cachedStatistics = new CachedVenueStatistics(version, statistics);
+        return statistics;
+    }
 
-        // Распределение по городам
-        Map<String, Long> venuesByCity = allVenues.stream()
-                .filter(v -> v.getCity() != null)
-                .collect(Collectors.groupingBy(Venue::getCity, Collectors.counting()));
+    // Агрегаты считаются в БД: COUNT/SUM вместимости, GROUP BY по городам и покрытию, самая большая арена - LIMIT 1
+    private VenueStatistics computeVenueStatistics() {
+        CountAndSum capacity = venueRepository.aggregateCapacity();
+        if (capacity.count() == 0) {
+            return new VenueStatistics(0, 0, 0.0, "No venues", Map.of(), Map.of());
+        }
 
-        // Распределение по типу покрытия
-        Map<String, Long> venuesByFieldType = allVenues.stream()
-                .filter(v -> v.getFieldType() != null)
-                .collect(Collectors.groupingBy(Venue::getFieldType, Collectors.counting()));
+        long totalCapacity = capacity.sum() != null ? capacity.sum() : 0;
+        double averageCapacity = (double) totalCapacity / capacity.count();
+        String largestVenue = venueRepository.findLargestVenues(PageRequest.of(0, 1)).stream()
+                .findFirst()
+                .map(v -> v.name() + " (" + v.capacity() + " seats)")
+                .orElse("Unknown");
+
+        return new VenueStatistics(
+                capacity.count(),
+                totalCapacity,
+                Math.round(averageCapacity * 100.0) / 100.0,
+                largestVenue,
+                CountByKey.toMap(venueRepository.countByCity()),
+                CountByKey.toMap(venueRepository.countByFieldType()));
+    }
 
-        return Map.of(
-                "totalVenues", allVenues.size(),
-                "totalCapacity", totalCapacity,
-                "averageCapacity", Math.round(averageCapacity * 100.0) / 100.0,
-                "largestVenue", largestVenue.map(v -> v.getName() + " (" + v.getCapacity() + " seats)").orElse("Unknown"),
-                "venuesByCity", venuesByCity,
-                "venuesByFieldType", venuesByFieldType
-        );
+    // Сброс кэша статистики после коммита изменения арен
+    private void invalidateStatisticsAfterCommit() {
+        TransactionCallbacks.afterCommit(statisticsVersion::incrementAndGet);
     }
 
     // Бизнес-операция: Поиск арен по части названия
@@ -180,6 +256,16 @@ public class VenueService {
             return getAllVenues();
         }
 
-        return venueRepository.findByNameContainingIgnoreCase(searchTerm.trim());
+        // Кандидаты из триграммного индекса; короткий запрос (без слова из трёх символов) - через БД
+        List<Long> ids = nameSearchIndex.findContaining(NameSearchIndex.Kind.VENUE, searchTerm.trim());
+        if (ids == null) {
+            return venueRepository.findByNameContainingIgnoreCase(searchTerm.trim());
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Venue> venues = new ArrayList<>(venueRepository.findAllById(ids));
+        venues.sort(Comparator.comparing(Venue::getId));
+        return venues;
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+-- Уникальный ключ матча (хозяева, гости, время начала), на который опирается импорт (ON CONFLICT DO NOTHING).
+-- Hibernate (ddl-auto: update) не сможет создать ограничение, если в таблице уже есть дубликаты,
+-- поэтому скрипт сначала показывает их, а ограничение добавляет только на чистую таблицу:
+--   psql -d library_db -f match-natural-key.sql
+-- Скрипт идемпотентен.
+
+SELECT home_team_id, away_team_id, match_date, COUNT(*) AS copies, MIN(id) AS keep_id
+FROM matches
+GROUP BY home_team_id, away_team_id, match_date
+HAVING COUNT(*) > 1;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_matches_home_away_date') THEN
+        ALTER TABLE matches
+            ADD CONSTRAINT uk_matches_home_away_date UNIQUE (home_team_id, away_team_id, match_date);
+    END IF;
+END $$;
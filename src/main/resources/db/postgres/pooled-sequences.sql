@@ -0,0 +1,24 @@
+-- Переход с IDENTITY на pooled-последовательности (allocationSize 50) для существующей базы PostgreSQL.
+-- Выполнить один раз до первого запуска новой версии - иначе SequenceGuard прервёт запуск:
+--   psql -d library_db -f pooled-sequences.sql
+-- Скрипт идемпотентен. Значение последовательности v закрепляет диапазон ID (v - 50, v],
+-- поэтому следующее значение ставится на MAX(id) + 50: первый выданный диапазон начинается с MAX(id) + 1.
+-- Старые значения по умолчанию (IDENTITY/serial) у колонок id не мешают: приложение всегда передаёт id явно.
+
+DO $$
+DECLARE
+    t TEXT;
+    max_id BIGINT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY[
+        'users', 'teams', 'players', 'venues', 'matches', 'standings', 'match_outbox',
+        'team_statistics', 'standings_checkpoints', 'standings_checkpoint_rows']
+    LOOP
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY 50', t || '_seq');
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', t || '_seq');
+        IF to_regclass(t) IS NOT NULL THEN
+            EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', t) INTO max_id;
+            PERFORM setval(t || '_seq', GREATEST(max_id + 50, nextval(t || '_seq')), false);
+        END IF;
+    END LOOP;
+END $$;
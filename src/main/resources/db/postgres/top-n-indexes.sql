@@ -0,0 +1,23 @@
+-- Составные индексы под ORDER BY топ-запросов (findTopScorers, findTopScorersByTeamId, findTopTeams, findLargestVenues),
+-- чтобы ORDER BY ... LIMIT читал первые строки индекса без сортировки всей таблицы.
+-- В PostgreSQL DESC по умолчанию ставит NULL первыми, а запросы сортируют NULLS LAST, поэтому порядок задан явно.
+-- Hibernate (ddl-auto: update) создаёт индексы с теми же именами, но без NULLS LAST - скрипт их пересоздаёт:
+--   psql -d library_db -f top-n-indexes.sql
+-- Скрипт идемпотентен. Одноколоночные индексы прежних версий удаляются.
+
+DROP INDEX IF EXISTS idx_players_goals_scored;
+DROP INDEX IF EXISTS idx_players_team_goals;
+DROP INDEX IF EXISTS idx_teams_points;
+DROP INDEX IF EXISTS idx_venues_capacity;
+
+DROP INDEX IF EXISTS idx_players_top_scorers;
+CREATE INDEX idx_players_top_scorers ON players (goals_scored DESC NULLS LAST, id);
+
+DROP INDEX IF EXISTS idx_players_team_top_scorers;
+CREATE INDEX idx_players_team_top_scorers ON players (team_id, goals_scored DESC NULLS LAST, id);
+
+DROP INDEX IF EXISTS idx_teams_top;
+CREATE INDEX idx_teams_top ON teams (points DESC, id);
+
+DROP INDEX IF EXISTS idx_venues_largest;
+CREATE INDEX idx_venues_largest ON venues (capacity DESC NULLS LAST, id);
@@ -0,0 +1,112 @@
+package org.example.benchmark;
+
+import org.example.config.SequenceIds;
+import org.example.model.Team;
+import org.example.service.TeamService;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Общие части замеров: заполнение БД пакетными INSERT и медиана времени по нескольким прогонам.
+// Замеры не входят в обычный mvn test - запускаются явно:
+//   mvn test -Dbenchmark=true -Dtest=<Класс>
+// Размеры данных задаются свойствами -Dbenchmark.<имя>=...
+final class BenchmarkSupport {
+
+    static final String ENABLED_PROPERTY = "benchmark";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private BenchmarkSupport() {
+    }
+
+    static int size(String name, int defaultValue) {
+        return Integer.getInteger("benchmark." + name, defaultValue);
+    }
+
+    // Ряд размеров через запятую: -Dbenchmark.<имя>=10000,100000
+    static int[] sizes(String name, int... defaultValues) {
+        String value = System.getProperty("benchmark." + name);
+        if (value == null) {
+            return defaultValues;
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    // Команды через сервис (вместе с записями в таблице и статистике)
+    static List<Long> createTeams(TeamService teamService, String prefix, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Team team = new Team();
+            team.setName(prefix + " " + i);
+            team.setCity("City " + (i % 50));
+            team.setFoundationYear(1880 + i % 140);
+            ids.add(teamService.createTeam(team).getId());
+        }
+        return ids;
+    }
+
+    // Игроки пакетными INSERT, ID - из players_seq (как у сущностей)
+    static void insertPlayers(JdbcTemplate jdbcTemplate, SequenceIds sequenceIds, List<Long> teamIds, int count) {
+        for (int from = 0; from < count; from += INSERT_BATCH_SIZE) {
+            int size = Math.min(INSERT_BATCH_SIZE, count - from);
+            long[] ids = sequenceIds.next("players_seq", size);
+            List<Object[]> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int n = from + i;
+                rows.add(new Object[]{ids[i], "Player " + n, teamIds.get(n % teamIds.size()), "FORWARD",
+                        n / teamIds.size() + 1, 18 + n % 20, n % 37});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO players (id, name, team_id, position, jersey_number, age, goals_scored) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+    }
+
+    // Матчи со статусом status пакетными INSERT; пары команд и даты без пересечений
+    static void insertMatches(JdbcTemplate jdbcTemplate, SequenceIds sequenceIds, List<Long> teamIds, int count,
+                              String status, LocalDateTime firstKickoff) {
+        for (int from = 0; from < count; from += INSERT_BATCH_SIZE) {
+            int size = Math.min(INSERT_BATCH_SIZE, count - from);
+            long[] ids = sequenceIds.next("matches_seq", size);
+            List<Object[]> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int n = from + i;
+                Long home = teamIds.get(n % teamIds.size());
+                Long away = teamIds.get((n + 1 + n / teamIds.size()) % teamIds.size());
+                if (home.equals(away)) {
+                    away = teamIds.get((n + 1) % teamIds.size());
+                }
+                boolean finished = "FINISHED".equals(status);
+                rows.add(new Object[]{ids[i], home, away, Timestamp.valueOf(firstKickoff.plusHours(3L * n)),
+                        finished ? n % 4 : null, finished ? n % 3 : null, status});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO matches (id, home_team_id, away_team_id, match_date, " +
+                    "home_team_score, away_team_score, status) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+    }
+
+    // Медиана времени (мс) по rounds прогонам после одного прогрева; prepare выполняется перед каждым прогоном вне замера
+    static double medianMillis(int rounds, Runnable prepare, Supplier<?> operation) {
+        double[] times = new double[rounds];
+        for (int round = -1; round < rounds; round++) {
+            prepare.run();
+            long startedAt = System.nanoTime();
+            operation.get();
+            double elapsed = (System.nanoTime() - startedAt) / 1_000_000.0;
+            if (round >= 0) {
+                times[round] = elapsed;
+            }
+        }
+        Arrays.sort(times);
+        return times[rounds / 2];
+    }
+
+    static void printRow(String operation, String variant, double millis, String note) {
+        System.out.printf("BENCHMARK %-28s %-12s %10.1f ms  %s%n", operation, variant, millis, note);
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.example.model.Match;
+import org.example.model.Player;
+import org.example.service.TeamService;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Обращения к БД на 1000 вставок через JPA: по одному INSERT на строку против пакетов по 50.
+//   mvn test -Dbenchmark=true -Dtest=InsertRoundTripBenchmark [-Dbenchmark.rows=1000]
+// Обращения считает обёртка DataSource: каждый execute/executeUpdate/executeQuery/executeBatch (INSERT, пакеты, nextval).
+// Вариант "per-row" - размер пакета сеанса 1: столько же INSERT, сколько было при IDENTITY,
+// где каждая строка ждала свой ID от БД
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bench-round-trips;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = BenchmarkSupport.ENABLED_PROPERTY, matches = "true")
+class InsertRoundTripBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private static final AtomicLong ROUND_TRIPS = new AtomicLong();
+
+    // Счётчик выполнений операторов поверх пула соединений
+    @TestConfiguration
+    static class CountingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource) {
+                        return proxy(DataSource.class, dataSource);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+                if (Statement.class.isAssignableFrom(type) && method.getName().startsWith("execute")) {
+                    ROUND_TRIPS.incrementAndGet();
+                }
+                Object result = invoke(method, target, args);
+                if (result instanceof Connection connection) {
+                    return proxy(Connection.class, connection);
+                }
+                if (result instanceof Statement statement && method.getReturnType().isInterface()) {
+                    return proxy(statementType(method.getReturnType()), statement);
+                }
+                return result;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<Statement> statementType(Class<?> returnType) {
+            return (Class<Statement>) returnType;
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void roundTripsPerThousandInserts() {
+        int rows = BenchmarkSupport.size("rows", 1000);
+        List<Long> teamIds = BenchmarkSupport.createTeams(teamService, "RoundTrip", 40);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        int[] offset = {0};
+        Function<Integer, Match> match = n -> {
+            Match created = new Match();
+            created.setHomeTeamId(teamIds.get(n % teamIds.size()));
+            created.setAwayTeamId(teamIds.get((n + 1) % teamIds.size()));
+            created.setMatchDate(LocalDateTime.of(2030, 1, 1, 12, 0).plusHours(offset[0]++));
+            created.setStatus("SCHEDULED");
+            return created;
+        };
+        Function<Integer, Player> player = n -> {
+            Player created = new Player();
+            created.setName("RoundTrip Player " + n);
+            created.setTeamId(teamIds.get(n % teamIds.size()));
+            created.setPosition("MIDFIELDER");
+            created.setAge(20 + n % 15);
+            return created;
+        };
+
+        for (Integer batchSize : new Integer[] {1, null}) {
+            String variant = batchSize != null ? "per-row" : "batched";
+            measure("matches", variant, rows, batchSize, match, statistics);
+            measure("players", variant, rows, batchSize, player, statistics);
+        }
+    }
+
+    // batchSize null - размер пакета из настроек (hibernate.jdbc.batch_size)
+    private void measure(String entity, String variant, int rows, Integer batchSize,
+                         Function<Integer, ?> factory, Statistics statistics) {
+        long[] roundTrips = new long[1];
+        long[] inserts = new long[1];
+        Runnable reset = () -> {
+            statistics.clear();
+            ROUND_TRIPS.set(0);
+        };
+        double millis = BenchmarkSupport.medianMillis(ROUNDS, reset, () -> transactionTemplate.execute(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (int n = 0; n < rows; n++) {
+                entityManager.persist(factory.apply(n));
+            }
+            entityManager.flush();
+            entityManager.clear();
+            roundTrips[0] = ROUND_TRIPS.get();
+            inserts[0] = statistics.getEntityInsertCount();
+            return null;
+        }));
+        assertEquals(rows, inserts[0]);
+        BenchmarkSupport.printRow("insert " + rows + " " + entity, variant, millis,
+                roundTrips[0] + " round-trips (" + roundTrips[0] * 1000 / rows + " per 1k)");
+        jdbcTemplate.update("DELETE FROM " + entity);
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.benchmark;
+
+import org.example.service.LiveEventHub;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Нагрузка на live-канал: здоровые SSE-клиенты читают поток, "зависшие" клиенты открывают соединение
+// и не читают его - их сокеты заполняются, и запись в них блокируется. Здоровые клиенты должны получить все события.
+//   mvn test -Dbenchmark=true -Dtest=LiveEventLoadBenchmark [-Dbenchmark.healthy=50 -Dbenchmark.stalled=16
+//                                                           -Dbenchmark.events=150 -Dbenchmark.payloadKb=16]
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:bench-live;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = BenchmarkSupport.ENABLED_PROPERTY, matches = "true")
+class LiveEventLoadBenchmark {
+
+    private static final String EVENT = "load-test";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private LiveEventHub liveEventHub;
+
+    @Test
+    void stalledSubscribersDoNotStarveHealthyOnes() throws Exception {
+        int healthy = BenchmarkSupport.size("healthy", 50);
+        int stalled = BenchmarkSupport.size("stalled", 16);
+        int events = BenchmarkSupport.size("events", 150);
+        int payloadKb = BenchmarkSupport.size("payloadKb", 16);
+
+        HttpClient client = HttpClient.newHttpClient();
+        String authorization = register(client);
+
+        // Зависшие клиенты: маленький буфер приёма, ответ не читается
+        List<Socket> stalledSockets = new ArrayList<>();
+        for (int i = 0; i < stalled; i++) {
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new java.net.InetSocketAddress("localhost", port));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /api/matches/live HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n" +
+                    "Authorization: " + authorization + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            stalledSockets.add(socket);
+        }
+
+        CountDownLatch allReceived = new CountDownLatch(healthy);
+        List<AtomicInteger> received = new ArrayList<>();
+        CountDownLatch connected = new CountDownLatch(healthy);
+        for (int i = 0; i < healthy; i++) {
+            AtomicInteger count = new AtomicInteger();
+            received.add(count);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/matches/live"))
+                    .header("Authorization", authorization).header("Accept", "text/event-stream").build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.fromLineSubscriber(
+                    new CountingSubscriber(count, events, connected, allReceived)));
+        }
+        assertTrue(connected.await(30, TimeUnit.SECONDS), "healthy clients did not connect");
+
+        String payload = "x".repeat(payloadKb * 1024);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            liveEventHub.publish(EVENT, null, Map.of("sequence", i, "payload", payload));
+            Thread.sleep(50);
+        }
+        boolean complete = allReceived.await(60, TimeUnit.SECONDS);
+        double elapsedMs = (System.nanoTime() - startedAt) / 1_000_000.0;
+
+        int minimum = received.stream().mapToInt(AtomicInteger::get).min().orElse(0);
+        Map<String, Object> stats = liveEventHub.getStats();
+        BenchmarkSupport.printRow("live-fan-out", "stalled", elapsedMs, healthy + " healthy, " + stalled
+                + " stalled clients, " + events + " events x " + payloadKb + " KB; min received " + minimum
+                + "; " + stats);
+        for (Socket socket : stalledSockets) {
+            socket.close();
+        }
+
+        assertTrue(complete, "healthy clients missed events, min received " + minimum);
+        assertEquals(events, minimum);
+    }
+
+    private String register(HttpClient client) throws Exception {
+        String body = "{\"username\":\"loadtest\",\"email\":\"loadtest@example.org\",\"password\":\"Load#test1\",\"role\":\"USER\"}";
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/auth/register"))
+                .header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body))
+                .timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.statusCode() < 300, "registration failed: " + response.body());
+        return "Basic " + Base64.getEncoder().encodeToString("loadtest:Load#test1".getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Считает события нагрузки в потоке SSE (строки "event:load-test")
+    private static final class CountingSubscriber implements Flow.Subscriber<String> {
+
+        private final AtomicInteger count;
+        private final int expected;
+        private final CountDownLatch connected;
+        private final CountDownLatch allReceived;
+
+        CountingSubscriber(AtomicInteger count, int expected, CountDownLatch connected, CountDownLatch allReceived) {
+            this.count = count;
+            this.expected = expected;
+            this.connected = connected;
+            this.allReceived = allReceived;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.equals("event:connected")) {
+                connected.countDown();
+            } else if (line.equals("event:" + EVENT) && count.incrementAndGet() == expected) {
+                allReceived.countDown();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.benchmark;
+
+import org.example.config.SequenceIds;
+import org.example.model.Standing;
+import org.example.repository.MatchRepository;
+import org.example.repository.PlayerRepository;
+import org.example.repository.StandingRepository;
+import org.example.repository.TeamRepository;
+import org.example.service.PlayerService;
+import org.example.service.StandingService;
+import org.example.service.TeamService;
+import org.example.service.TournamentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Новый сезон: загрузка сущностей и save() по одной против одного SQL-оператора на шаг.
+//   mvn test -Dbenchmark=true -Dtest=SeasonRolloverBenchmark [-Dbenchmark.teams=200 -Dbenchmark.players=200000]
+// Пособъектный вариант сбрасывает таблицу на месте (deleteAll + новые записи нарушали уникальность team_id)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bench-rollover;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = BenchmarkSupport.ENABLED_PROPERTY, matches = "true")
+class SeasonRolloverBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private PlayerService playerService;
+
+    @Autowired
+    private StandingService standingService;
+
+    @Autowired
+    private TournamentService tournamentService;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private StandingRepository standingRepository;
+
+    @Autowired
+    private MatchRepository matchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void perEntityVersusSetBased() {
+        int teams = BenchmarkSupport.size("teams", 200);
+        int players = BenchmarkSupport.size("players", 200_000);
+        int matches = teams * 10;
+
+        List<Long> teamIds = BenchmarkSupport.createTeams(teamService, "Rollover", teams);
+        BenchmarkSupport.insertPlayers(jdbcTemplate, sequenceIds, teamIds, players);
+        Runnable scheduleMatches = () -> {
+            jdbcTemplate.update("DELETE FROM matches WHERE status <> 'FINISHED'");
+            BenchmarkSupport.insertMatches(jdbcTemplate, sequenceIds, teamIds, matches, "SCHEDULED",
+                    LocalDateTime.now().plusDays(1));
+        };
+        Runnable nothing = () -> {
+        };
+
+        String note = teams + " teams, " + players + " players";
+        Integer agesBefore = jdbcTemplate.queryForObject("SELECT SUM(age) FROM players", Integer.class);
+
+        // Возраст игроков +1
+        BenchmarkSupport.printRow("increment-age", "per-entity", BenchmarkSupport.medianMillis(ROUNDS, nothing,
+                () -> transactionTemplate.execute(status -> {
+                    playerRepository.findAll().forEach(player -> {
+                        player.setAge(player.getAge() + 1);
+                        playerRepository.save(player);
+                    });
+                    return null;
+                })), note);
+        BenchmarkSupport.printRow("increment-age", "set-based", BenchmarkSupport.medianMillis(ROUNDS, nothing,
+                playerService::incrementAllPlayersAge), note);
+        Integer agesAfter = jdbcTemplate.queryForObject("SELECT SUM(age) FROM players", Integer.class);
+        assertEquals(agesBefore + 2L * (ROUNDS + 1) * players, agesAfter.longValue());
+
+        // Сброс турнирной таблицы
+        BenchmarkSupport.printRow("standings-reset", "per-entity", BenchmarkSupport.medianMillis(ROUNDS, nothing,
+                () -> transactionTemplate.execute(status -> {
+                    standingRepository.findAll().forEach(standing -> {
+                        resetInPlace(standing);
+                        standingRepository.save(standing);
+                    });
+                    return null;
+                })), note);
+        BenchmarkSupport.printRow("standings-reset", "set-based", BenchmarkSupport.medianMillis(ROUNDS, nothing,
+                standingService::resetAllStandings), note);
+
+        // Новый сезон: удаление незавершённых матчей, очки команд, таблица
+        String seasonNote = note + ", " + matches + " scheduled matches";
+        BenchmarkSupport.printRow("season-initialize", "per-entity", BenchmarkSupport.medianMillis(ROUNDS,
+                scheduleMatches, () -> transactionTemplate.execute(status -> {
+                    matchRepository.deleteAll(matchRepository.findByStatusNot("FINISHED"));
+                    teamRepository.findAll().forEach(team -> {
+                        team.setPoints(0);
+                        teamRepository.save(team);
+                    });
+                    standingRepository.findAll().forEach(standing -> {
+                        resetInPlace(standing);
+                        standingRepository.save(standing);
+                    });
+                    return null;
+                })), seasonNote);
+        BenchmarkSupport.printRow("season-initialize", "set-based", BenchmarkSupport.medianMillis(ROUNDS,
+                scheduleMatches, tournamentService::initializeNewSeason), seasonNote);
+        assertEquals(0, matchRepository.findByStatusNot("FINISHED").size());
+    }
+
+    private static void resetInPlace(Standing standing) {
+        standing.setPosition(0);
+        standing.setMatchesPlayed(0);
+        standing.setWins(0);
+        standing.setDraws(0);
+        standing.setLosses(0);
+        standing.setGoalsFor(0);
+        standing.setGoalsAgainst(0);
+        standing.setGoalDifference(0);
+        standing.setPoints(0);
+    }
+}
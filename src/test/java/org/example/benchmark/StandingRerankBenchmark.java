@@ -0,0 +1,123 @@
+package org.example.benchmark;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.config.DatabaseDialect;
+import org.example.model.Standing;
+import org.example.repository.StandingRepository;
+import org.example.service.StandingPositionRanker;
+import org.example.service.TeamService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Пересчёт позиций: загрузка всей таблицы и save() на каждую строку против одного оператора с ROW_NUMBER().
+//   mvn test -Dbenchmark=true -Dtest=StandingRerankBenchmark [-Dbenchmark.teams=400]
+// Два сценария: перемешанная таблица (меняется почти каждая позиция) и один результат (меняются единицы строк).
+// Пособъектный вариант считает UPDATE по статистике Hibernate, оператор - по числу изменённых строк
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bench-rerank;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = BenchmarkSupport.ENABLED_PROPERTY, matches = "true")
+class StandingRerankBenchmark {
+
+    private static final int ROUNDS = 7;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private StandingRepository standingRepository;
+
+    @Autowired
+    private StandingPositionRanker positionRanker;
+
+    @Autowired
+    private DatabaseDialect databaseDialect;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void perRowSaveVersusSetBased() {
+        int teams = BenchmarkSupport.size("teams", 400);
+        List<Long> teamIds = BenchmarkSupport.createTeams(teamService, "Rerank", teams);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        String note = teams + " teams";
+
+        // Все показатели случайные: позиции почти всех строк меняются
+        measure("rerank reshuffle", note, teams, statistics, random -> scramble(teamIds, random));
+        // Одна команда получила 3 очка: таблица уже упорядочена, меняется несколько позиций
+        measure("rerank one-result", note, teams, statistics, random -> {
+            positionRanker.rerank();
+            jdbcTemplate.update("UPDATE standings SET points = points + 3 WHERE team_id = ?",
+                    teamIds.get(random.nextInt(teamIds.size())));
+        });
+    }
+
+    // Оба варианта получают одинаковую последовательность состояний таблицы (общее зерно)
+    private void measure(String operation, String note, int teams, Statistics statistics, Consumer<Random> prepare) {
+        long[] updated = new long[1];
+
+        Random perRowRandom = new Random(42);
+        double perRow = BenchmarkSupport.medianMillis(ROUNDS, () -> {
+            prepare.accept(perRowRandom);
+            statistics.clear();
+        }, () -> transactionTemplate.execute(status -> {
+            List<Standing> standings = standingRepository.findAllByOrderByPointsDescGoalDifferenceDescGoalsForDesc();
+            for (int i = 0; i < standings.size(); i++) {
+                Standing standing = standings.get(i);
+                standing.setPosition(i + 1);
+                standingRepository.save(standing);
+            }
+            return null;
+        }));
+        updated[0] = statistics.getEntityUpdateCount();
+        assertPositionsArePermutation(teams);
+        BenchmarkSupport.printRow(operation, "per-row", perRow, note + ", " + updated[0] + " rows updated");
+
+        Random setBasedRandom = new Random(42);
+        double setBased = BenchmarkSupport.medianMillis(ROUNDS, () -> prepare.accept(setBasedRandom),
+                () -> updated[0] = positionRanker.rerank());
+        assertPositionsArePermutation(teams);
+        String statement = databaseDialect.isPostgres() ? "UPDATE ... FROM" : "MERGE";
+        BenchmarkSupport.printRow(operation, "set-based", setBased,
+                note + ", " + updated[0] + " rows updated (" + statement + ")");
+    }
+
+    private void scramble(List<Long> teamIds, Random random) {
+        List<Object[]> rows = new ArrayList<>(teamIds.size());
+        for (Long teamId : teamIds) {
+            int goalsFor = random.nextInt(80);
+            int goalsAgainst = random.nextInt(80);
+            rows.add(new Object[]{random.nextInt(100), goalsFor - goalsAgainst, goalsFor, teamId});
+        }
+        jdbcTemplate.batchUpdate("UPDATE standings SET points = ?, goal_difference = ?, goals_for = ? WHERE team_id = ?",
+                rows);
+    }
+
+    private void assertPositionsArePermutation(int teams) {
+        Long distinct = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT position) FROM standings WHERE position BETWEEN 1 AND ?", Long.class, teams);
+        assertEquals(teams, distinct.longValue());
+    }
+}
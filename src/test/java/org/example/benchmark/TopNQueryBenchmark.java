@@ -0,0 +1,155 @@
+package org.example.benchmark;
+
+import org.example.config.SequenceIds;
+import org.example.model.Player;
+import org.example.model.Team;
+import org.example.model.Venue;
+import org.example.repository.PlayerRepository;
+import org.example.repository.TeamRepository;
+import org.example.repository.VenueRepository;
+import org.example.service.PlayerService;
+import org.example.service.TeamService;
+import org.example.service.VenueService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Топ-N: полная загрузка сущностей с subList против LIMIT в БД без составного индекса и с ним.
+//   mvn test -Dbenchmark=true -Dtest=TopNQueryBenchmark [-Dbenchmark.sizes=10000,100000,1000000 -Dbenchmark.fullLoadMax=1000000]
+// Таблица наращивается до каждого размера и очищается после замера; полная загрузка выше fullLoadMax строк пропускается.
+// Для 1 000 000 строк с полной загрузкой нужна куча побольше: -DargLine=-Xmx3g
+// Кэш результатов запросов H2 отключён: иначе повторные прогоны без изменения таблицы не выполняют запрос
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bench-top-n;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = BenchmarkSupport.ENABLED_PROPERTY, matches = "true")
+class TopNQueryBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int LIMIT = 10;
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private PlayerService playerService;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private TeamRepository teamRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void topScorers() {
+        List<Long> teamIds = BenchmarkSupport.createTeams(teamService, "Scorers", 100);
+        run("top-scorers", "players", "idx_players_top_scorers", "goals_scored DESC, id",
+                count -> BenchmarkSupport.insertPlayers(jdbcTemplate, sequenceIds, teamIds, count),
+                () -> ids(playerRepository.findAllByOrderByGoalsScoredDesc().stream().map(Player::getId).toList()),
+                () -> playerService.getTopScorers(LIMIT).stream().map(p -> p.id()).toList(),
+                () -> jdbcTemplate.update("DELETE FROM players"));
+    }
+
+    @Test
+    void topTeams() {
+        run("top-teams", "teams", "idx_teams_top", "points DESC, id",
+                count -> insertRows("teams_seq", count, (id, n) -> new Object[]{id, "Top Team " + id, "City " + n % 50, n % 97},
+                        "INSERT INTO teams (id, name, city, points) VALUES (?, ?, ?, ?)"),
+                () -> ids(teamRepository.findAllByOrderByPointsDesc().stream().map(Team::getId).toList()),
+                () -> teamService.getTopTeams(LIMIT).stream().map(t -> t.id()).toList(),
+                () -> jdbcTemplate.update("DELETE FROM teams WHERE name LIKE 'Top Team %'"));
+    }
+
+    @Test
+    void largestVenues() {
+        // Каждая десятая арена без вместимости - проверка NULLS LAST
+        run("largest-venues", "venues", "idx_venues_largest", "capacity DESC, id",
+                count -> insertRows("venues_seq", count, (id, n) -> new Object[]{id, "Top Venue " + id, "City " + n % 50,
+                        n % 10 == 0 ? null : 1000 + n % 90_000}, "INSERT INTO venues (id, name, city, capacity) VALUES (?, ?, ?, ?)"),
+                () -> ids(venueRepository.findAllByOrderByCapacityDesc().stream().map(Venue::getId).toList()),
+                () -> venueService.getLargestVenues(LIMIT).stream().map(v -> v.id()).toList(),
+                () -> jdbcTemplate.update("DELETE FROM venues WHERE name LIKE 'Top Venue %'"));
+    }
+
+    private void run(String operation, String table, String index, String indexColumns, IntConsumer grow,
+                     Supplier<List<Long>> fullLoad, Supplier<List<Long>> topN, Runnable cleanup) {
+        int fullLoadMax = BenchmarkSupport.size("fullLoadMax", 1_000_000);
+        int rows = count(table);
+        for (int size : BenchmarkSupport.sizes("sizes", 10_000, 100_000, 1_000_000)) {
+            if (size > rows) {
+                grow.accept(size - rows);
+                rows = count(table);
+            }
+            String note = rows + " rows, limit " + LIMIT;
+            Supplier<List<Long>> inTransaction = () -> transactionTemplate.execute(status -> topN.get());
+            List<Long> expected = inTransaction.get();
+
+            if (rows <= fullLoadMax) {
+                BenchmarkSupport.printRow(operation, "full-load", BenchmarkSupport.medianMillis(ROUNDS, () -> {
+                }, () -> transactionTemplate.execute(status -> fullLoad.get())), note);
+            } else {
+                System.out.printf("BENCHMARK %-28s %-12s %10s     %s%n", operation, "full-load", "skipped", note);
+            }
+
+            jdbcTemplate.execute("DROP INDEX " + index);
+            BenchmarkSupport.printRow(operation, "no-index", BenchmarkSupport.medianMillis(ROUNDS, () -> {
+            }, inTransaction), note);
+            jdbcTemplate.execute("CREATE INDEX " + index + " ON " + table + " (" + indexColumns + ")");
+
+            BenchmarkSupport.printRow(operation, "limit+index", BenchmarkSupport.medianMillis(ROUNDS, () -> {
+            }, inTransaction), note);
+            assertEquals(expected, inTransaction.get());
+        }
+        cleanup.run();
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static List<Long> ids(List<Long> all) {
+        return new ArrayList<>(all.subList(0, Math.min(LIMIT, all.size())));
+    }
+
+    private interface RowFactory {
+        Object[] row(long id, int n);
+    }
+
+    private void insertRows(String sequence, int count, RowFactory factory, String sql) {
+        for (int from = 0; from < count; from += INSERT_BATCH_SIZE) {
+            int size = Math.min(INSERT_BATCH_SIZE, count - from);
+            long[] ids = sequenceIds.next(sequence, size);
+            List<Object[]> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                rows.add(factory.row(ids[i], from + i));
+            }
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+}
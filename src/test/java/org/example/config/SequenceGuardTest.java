@@ -0,0 +1,42 @@
+package org.example.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Последовательность, отставшая от MAX(id) (база без pooled-sequences.sql), останавливает запуск
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:sequence-guard;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+class SequenceGuardTest {
+
+    @Autowired
+    private SequenceGuard sequenceGuard;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Test
+    void failsWhenSequenceIsBehindData() {
+        long id = sequenceIds.next("venues_seq", 1)[0];
+        jdbcTemplate.update("INSERT INTO venues (id, name) VALUES (?, 'Guard Arena')", id);
+        assertDoesNotThrow(sequenceGuard::verify);
+
+        // Строка с ID за пределами выданных диапазонов - как после перехода с IDENTITY
+        jdbcTemplate.update("INSERT INTO venues (id, name) VALUES (?, 'Legacy Arena')", id + 1000);
+        IllegalStateException error = assertThrows(IllegalStateException.class, sequenceGuard::verify);
+        assertTrue(error.getMessage().contains("venues_seq"), error.getMessage());
+
+        // То же, что делает pooled-sequences.sql: следующее значение - MAX(id) + 50
+        jdbcTemplate.update("ALTER SEQUENCE venues_seq RESTART WITH " + (id + 1000 + SequenceIds.ALLOCATION_SIZE));
+        assertDoesNotThrow(sequenceGuard::verify);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.service;
+
+import org.example.config.SequenceIds;
+import org.example.model.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Кэш прогноза: параметры сводятся к ступеням, прерванные бюджетом прогоны не кэшируются
+@SpringBootTest
+@ActiveProfiles("test")
+class ChampionshipSimulatorTest {
+
+    @Autowired
+    private StandingService standingService;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Test
+    void cacheKeysAreTieredAndTruncatedRunsAreNotCached() {
+        List<Long> teamIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Team team = new Team();
+            team.setName("Simulation Team " + i);
+            teamIds.add(teamService.createTeam(team).getId());
+        }
+
+        // Немного оставшихся матчей: прогон 5 000 сезонов укладывается в бюджет с запасом даже на одном ядре
+        LocalDateTime start = LocalDateTime.now().plusYears(5);
+        insertFixtures(teamIds, start, 300);
+
+        Map<String, Object> first = simulation(1_234, 1_900L);
+        Map<String, Object> second = simulation(1_999, 1_500L);
+        assertEquals(5_000, first.get("iterationsRequested"));
+        assertEquals(2_000L, first.get("budgetMs"));
+        assertEquals(false, first.get("truncated"));
+        assertSame(first, second);
+
+        // Много оставшихся матчей: полный прогон 200 000 сезонов не укладывается в минимальный бюджет
+        insertFixtures(teamIds, start.plusYears(1), 5_000);
+        Map<String, Object> truncated = simulation(200_000, 1L);
+        assertEquals(true, truncated.get("truncated"));
+        assertTrue(((Number) truncated.get("iterations")).longValue() < 200_000);
+        assertNotSame(truncated, simulation(150_000, 1L));
+    }
+
+    private void insertFixtures(List<Long> teamIds, LocalDateTime start, int fixtures) {
+        long[] ids = sequenceIds.next("matches_seq", fixtures);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < fixtures; i++) {
+            rows.add(new Object[]{ids[i], teamIds.get(i % 6), teamIds.get((i + 1 + i / 6 % 5) % 6),
+                    Timestamp.valueOf(start.plusHours(3L * i)), "SCHEDULED"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO matches (id, home_team_id, away_team_id, match_date, status) " +
+                "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> simulation(int iterations, long budgetMs) {
+        return (Map<String, Object>) standingService.predictChampion(iterations, budgetMs).get("simulation");
+    }
+}
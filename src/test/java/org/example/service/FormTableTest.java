@@ -0,0 +1,68 @@
+package org.example.service;
+
+import org.example.dto.DatedMatchResult;
+import org.example.dto.FormRow;
+import org.example.repository.MatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Результат, добавленный во время чтения из БД (reload, reloadTeams), не теряется при замене буферов
+class FormTableTest {
+
+    private static final LocalDateTime KICKOFF = LocalDateTime.of(2026, 3, 1, 18, 0);
+
+    private final MatchRepository matchRepository = mock(MatchRepository.class);
+    private final FormTable formTable = new FormTable(matchRepository, 10, 5);
+
+    @Test
+    void resultAddedDuringReloadIsKept() {
+        DatedMatchResult stored = result(1L, 0, 10L, 20L, 2, 0);
+        DatedMatchResult concurrent = result(2L, 1, 10L, 30L, 1, 1);
+        when(matchRepository.findFinishedDatedResultsAfter(eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            formTable.addResults(List.of(concurrent)); // коммит пришёл, пока читались порции
+            return List.of(stored);
+        });
+        when(matchRepository.findFinishedDatedResultsAfter(eq(1L), any(Pageable.class))).thenReturn(List.of());
+
+        formTable.reload();
+
+        FormRow team = row(10L);
+        assertEquals(2, team.matchesPlayed());
+        assertEquals("DW", team.form());
+        assertEquals(1, row(30L).matchesPlayed());
+    }
+
+    @Test
+    void resultAddedDuringTeamReloadIsKept() {
+        DatedMatchResult corrected = result(1L, 0, 10L, 20L, 0, 3);
+        DatedMatchResult concurrent = result(2L, 1, 10L, 30L, 4, 0);
+        when(matchRepository.findRecentFinishedResultsByTeamId(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            formTable.addResults(List.of(concurrent));
+            return List.of(corrected);
+        });
+
+        formTable.reloadTeams(List.of(10L));
+
+        FormRow team = row(10L);
+        assertEquals(2, team.matchesPlayed());
+        assertEquals("WL", team.form());
+    }
+
+    private FormRow row(Long teamId) {
+        return formTable.getTable(5).stream().filter(r -> r.teamId().equals(teamId)).findFirst().orElseThrow();
+    }
+
+    private static DatedMatchResult result(Long id, int day, Long home, Long away, int homeScore, int awayScore) {
+        return new DatedMatchResult(id, KICKOFF.plusDays(day), home, away, homeScore, awayScore);
+    }
+}
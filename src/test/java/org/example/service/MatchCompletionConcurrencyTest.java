@@ -0,0 +1,152 @@
+package org.example.service;
+
+import org.example.model.Match;
+import org.example.model.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Параллельное завершение разных матчей с общими командами (completeMatch и PUT со статусом FINISHED):
+// строки таблицы, очки и статистика каждой команды совпадают с повтором завершённых матчей
+@SpringBootTest
+@ActiveProfiles("test")
+class MatchCompletionConcurrencyTest {
+
+    private static final int TEAMS = 8;
+    private static final int MATCHES = 24;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private MatchService matchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentCompletionsAreAppliedOnce() throws Exception {
+        List<Long> teamIds = new ArrayList<>();
+        for (int i = 0; i < TEAMS; i++) {
+            Team team = new Team();
+            team.setName("Concurrency Team " + i);
+            team.setCity("City");
+            teamIds.add(teamService.createTeam(team).getId());
+        }
+
+        List<Long> matchIds = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        for (int k = 0; k < MATCHES; k++) {
+            Match match = new Match();
+            match.setHomeTeamId(teamIds.get(k % TEAMS));
+            match.setAwayTeamId(teamIds.get((k + 1 + k / TEAMS) % TEAMS));
+            match.setMatchDate(start.minusDays(k));
+            Long id = matchService.createMatch(match).getId();
+            matchService.startMatch(id);
+            matchIds.add(id);
+        }
+
+        // Все матчи завершаются одновременно: у соседних матчей общие команды, потерянное обновление
+        // строки таблицы или статистики одной из команд нарушит инварианты ниже
+        ExecutorService executor = Executors.newFixedThreadPool(MATCHES);
+        Map<Long, int[]> expected = new HashMap<>();
+        teamIds.forEach(teamId -> expected.put(teamId, new int[5]));
+        try {
+            CountDownLatch startGate = new CountDownLatch(1);
+            List<Future<?>> completions = new ArrayList<>();
+            for (int k = 0; k < MATCHES; k++) {
+                Long matchId = matchIds.get(k);
+                int homeScore = k % 4;
+                int awayScore = k % 3;
+                boolean viaUpdate = k % 2 == 1;
+                record(expected.get(teamIds.get(k % TEAMS)), homeScore, awayScore);
+                record(expected.get(teamIds.get((k + 1 + k / TEAMS) % TEAMS)), awayScore, homeScore);
+                completions.add(executor.submit(() -> {
+                    startGate.await();
+                    if (viaUpdate) {
+                        Match details = new Match();
+                        details.setHomeTeamScore(homeScore);
+                        details.setAwayTeamScore(awayScore);
+                        details.setStatus("FINISHED");
+                        matchService.updateMatch(matchId, details);
+                    } else {
+                        matchService.completeMatch(matchId, homeScore, awayScore);
+                    }
+                    return null;
+                }));
+            }
+            startGate.countDown();
+
+            for (Future<?> completion : completions) {
+                completion.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Integer finished = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM matches WHERE status = 'FINISHED' AND id IN (" + joinIds(matchIds) + ")",
+                Integer.class);
+        assertEquals(MATCHES, finished);
+
+        assertTrue(matchService.awaitStandings(matchIds), "standings were not updated in time");
+
+        for (Long teamId : teamIds) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT s.matches_played, s.wins, s.draws, s.losses, s.goals_for, s.goals_against, " +
+                    "s.points, t.points AS team_points, ts.home_played + ts.away_played AS stats_played " +
+                    "FROM standings s JOIN teams t ON t.id = s.team_id " +
+                    "JOIN team_statistics ts ON ts.team_id = s.team_id WHERE s.team_id = ?", teamId);
+            int played = number(row, "matches_played");
+            int wins = number(row, "wins");
+            int draws = number(row, "draws");
+            int losses = number(row, "losses");
+            int points = number(row, "points");
+            int[] replay = expected.get(teamId);
+            String team = "team " + teamId;
+
+            assertEquals(wins + draws + losses, played, team + ": played != W+D+L");
+            assertEquals(3 * wins + draws, points, team + ": points != 3W+D");
+            assertEquals(points, number(row, "team_points"), team + ": Team.points != standings.points");
+            assertEquals(replay[0], wins, team + ": wins");
+            assertEquals(replay[1], draws, team + ": draws");
+            assertEquals(replay[2], losses, team + ": losses");
+            assertEquals(replay[3], number(row, "goals_for"), team + ": goals for");
+            assertEquals(replay[4], number(row, "goals_against"), team + ": goals against");
+            assertEquals(played, number(row, "stats_played"), team + ": home/away statistics");
+        }
+    }
+
+    // Ожидаемые показатели команды по повтору результатов: победы, ничьи, поражения, забито, пропущено
+    private static void record(int[] totals, int scored, int conceded) {
+        totals[scored > conceded ? 0 : scored == conceded ? 1 : 2]++;
+        totals[3] += scored;
+        totals[4] += conceded;
+    }
+
+    private static int number(Map<String, Object> row, String column) {
+        return ((Number) row.get(column)).intValue();
+    }
+
+    private static String joinIds(List<Long> ids) {
+        return String.join(",", ids.stream().map(String::valueOf).toList());
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.service;
+
+import org.example.model.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Дубликаты отсекает уникальный ключ матча: повтор в файле, повторный импорт и матч, записанный в обход импорта
+@SpringBootTest
+@ActiveProfiles("test")
+class MatchImportServiceTest {
+
+    @Autowired
+    private MatchImportService matchImportService;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void duplicatesAreCountedFromInsertResult() {
+        Long homeId = createTeam("Import Home");
+        Long awayId = createTeam("Import Away");
+
+        // Этот матч уже есть в БД к началу импорта
+        jdbcTemplate.update("""
+                INSERT INTO matches (id, home_team_id, away_team_id, match_date, home_team_score, away_team_score, status)
+                VALUES (NEXT VALUE FOR matches_seq, ?, ?, TIMESTAMP '2001-03-01 18:00:00', 1, 0, 'FINISHED')""",
+                homeId, awayId);
+
+        String csv = "home_team_id,away_team_id,match_date,home_score,away_score\n"
+                + row(homeId, awayId, "2001-03-01T18:00", 1, 0)
+                + row(homeId, awayId, "2001-03-08T18:00", 2, 2)
+                + row(homeId, awayId, "2001-03-08T18:00", 2, 2)
+                + row(awayId, homeId, "2001-03-15T18:00", 0, 3);
+
+        Map<String, Object> first = importCsv(csv);
+        assertEquals(2L, first.get("inserted"));
+        assertEquals(2L, first.get("duplicates"));
+        assertEquals(3, matches(homeId, awayId));
+        // В статистику попали только вставленные матчи
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT home_played FROM team_statistics WHERE team_id = ?", Integer.class, homeId));
+
+        Map<String, Object> second = importCsv(csv);
+        assertEquals(0L, second.get("inserted"));
+        assertEquals(4L, second.get("duplicates"));
+        assertEquals(3, matches(homeId, awayId));
+
+        // Ключ держит сама БД, а не проверка в сервисе
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update("""
+                INSERT INTO matches (id, home_team_id, away_team_id, match_date, status)
+                VALUES (NEXT VALUE FOR matches_seq, ?, ?, TIMESTAMP '2001-03-08 18:00:00', 'SCHEDULED')""",
+                homeId, awayId));
+    }
+
+    private Map<String, Object> importCsv(String csv) {
+        return matchImportService.importMatches(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                MatchImportService.FORMAT_CSV, null, 2);
+    }
+
+    private int matches(Long homeId, Long awayId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM matches WHERE home_team_id IN (?, ?)",
+                Integer.class, homeId, awayId);
+    }
+
+    private Long createTeam(String name) {
+        Team team = new Team();
+        team.setName(name);
+        return teamService.createTeam(team).getId();
+    }
+
+    private static String row(Long homeId, Long awayId, String date, int homeScore, int awayScore) {
+        return homeId + "," + awayId + "," + date + "," + homeScore + "," + awayScore + "\n";
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.service;
+
+import org.example.config.SequenceIds;
+import org.example.model.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Отложенное с ошибкой событие не считается применённым; после возврата в очередь результат попадает в таблицу
+@SpringBootTest
+@ActiveProfiles("test")
+class MatchOutboxTest {
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private MatchService matchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Test
+    void failedEventIsNotReportedAppliedUntilRequeued() {
+        Team home = new Team();
+        home.setName("Outbox Home");
+        Team away = new Team();
+        away.setName("Outbox Away");
+        Long homeId = teamService.createTeam(home).getId();
+        Long awayId = teamService.createTeam(away).getId();
+
+        Long matchId = sequenceIds.next("matches_seq", 1)[0];
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO match_outbox (id, match_id, home_team_id, away_team_id, home_score, " +
+                        "away_score, created_at, failed_at, last_error) VALUES (?, ?, ?, ?, 2, 0, ?, ?, 'test')",
+                sequenceIds.next("match_outbox_seq", 1)[0], matchId, homeId, awayId, now, now);
+
+        assertFalse(matchService.awaitStandings(List.of(matchId)));
+        assertEquals(0, wins(homeId));
+
+        assertEquals(1, matchService.requeueFailedResults(List.of(matchId)));
+        assertTrue(matchService.awaitStandings(List.of(matchId)));
+        assertEquals(1, wins(homeId));
+    }
+
+    private int wins(Long teamId) {
+        return jdbcTemplate.queryForObject("SELECT wins FROM standings WHERE team_id = ?", Integer.class, teamId);
+    }
+}
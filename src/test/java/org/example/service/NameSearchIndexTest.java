@@ -0,0 +1,34 @@
+package org.example.service;
+
+import org.example.dto.NameMatch;
+import org.example.dto.TypeaheadResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Подсчёт совпавших триграмм по кандидатам: ранжирование и удалённые слоты при числе кандидатов
+// больше начального размера таблицы счётчиков
+class NameSearchIndexTest {
+
+    private final NameSearchIndex index = new NameSearchIndex(null, 10, 100, 1_000_000, 0.5);
+
+    @Test
+    void ranksCandidatesAcrossManySlots() {
+        for (long id = 1; id <= 500; id++) {
+            index.put(NameSearchIndex.Kind.PLAYER, id, "Player Number " + id);
+        }
+        index.put(NameSearchIndex.Kind.PLAYER, 1000L, "Zlatan");
+        index.put(NameSearchIndex.Kind.PLAYER, 1001L, "Zlatko Dalic");
+        index.remove(NameSearchIndex.Kind.PLAYER, 7L);
+
+        TypeaheadResult zlat = index.search("zlat", List.of(NameSearchIndex.Kind.PLAYER), 5);
+        assertEquals(List.of(1000L, 1001L), zlat.matches().stream().map(NameMatch::id).toList());
+
+        TypeaheadResult numbers = index.search("player number 7", List.of(NameSearchIndex.Kind.PLAYER), 3);
+        assertFalse(numbers.partial());
+        assertEquals(List.of(70L, 71L, 72L), numbers.matches().stream().map(NameMatch::id).toList());
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.service;
+
+import org.example.model.Player;
+import org.example.model.Team;
+import org.example.repository.PlayerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Голы с отложенной записью и изменения игрока: save() не затирает записанные счётчиком голы,
+// явно заданное значение не получает сверху дельту из памяти, откаченные изменения не трогают счётчик в памяти,
+// чтение во время записи порций не удваивает и не теряет голы
+@SpringBootTest
+@ActiveProfiles("test")
+class PlayerGoalsConsistencyTest {
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private PlayerService playerService;
+
+    @Autowired
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    private GoalCounter goalCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void updateDoesNotOverwriteGoalsFlushedConcurrently() {
+        Long playerId = createPlayer("Goals Team A", 7);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Игрок прочитан до записи голов другим потоком; изменение и коммит - после неё
+            playerRepository.findById(playerId).orElseThrow();
+            goalCounter.add(playerId, 200);
+            CompletableFuture.runAsync(goalCounter::flush).join();
+
+            Player details = new Player();
+            details.setName("Renamed Player");
+            playerService.updatePlayer(playerId, details);
+        });
+
+        assertEquals(200, goalsInDatabase(playerId));
+        assertEquals(0, goalCounter.pendingFor(playerId));
+        assertEquals("Renamed Player", jdbcTemplate.queryForObject(
+                "SELECT name FROM players WHERE id = ?", String.class, playerId));
+    }
+
+    @Test
+    void explicitGoalsReplacePendingOnes() {
+        Long playerId = createPlayer("Goals Team B", 9);
+        goalCounter.add(playerId, 150);
+
+        Player details = new Player();
+        details.setGoalsScored(3);
+        assertEquals(3, playerService.updatePlayer(playerId, details).getGoalsScored());
+
+        goalCounter.flush();
+        assertEquals(3, goalsInDatabase(playerId));
+        assertEquals(3, playerService.getPlayerById(playerId).orElseThrow().getGoalsScored());
+    }
+
+    @Test
+    void rolledBackChangesDoNotTouchBufferedGoals() {
+        Long playerId = createPlayer("Goals Team C", 11);
+        goalCounter.add(playerId, 5);
+
+        // Гол в откаченной транзакции не попадает в счётчик
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(6, playerService.scoreGoal(playerId).getGoalsScored());
+            status.setRollbackOnly();
+        });
+        assertEquals(5, goalCounter.pendingFor(playerId));
+
+        // Откаченные явное значение и удаление не сбрасывают накопленные голы
+        transactionTemplate.executeWithoutResult(status -> {
+            Player details = new Player();
+            details.setGoalsScored(0);
+            playerService.updatePlayer(playerId, details);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            playerService.deletePlayer(playerId);
+            status.setRollbackOnly();
+        });
+        assertEquals(5, goalCounter.pendingFor(playerId));
+
+        assertEquals(6, playerService.scoreGoal(playerId).getGoalsScored());
+        goalCounter.flush();
+        assertEquals(6, goalsInDatabase(playerId));
+    }
+
+    @Test
+    void readsDuringFlushesNeitherDoubleCountNorLoseGoals() throws Exception {
+        Long playerId = createPlayer("Goals Team D", 13);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // Голы и запись порций идут непрерывно; каждое чтение должно попасть между уже добавленными и начатыми
+        CompletableFuture<Void> scorer = CompletableFuture.runAsync(() -> {
+            while (running.get()) {
+                started.incrementAndGet();
+                goalCounter.add(playerId, 1);
+                done.incrementAndGet();
+            }
+        });
+        CompletableFuture<Void> flusher = CompletableFuture.runAsync(() -> {
+            while (running.get()) {
+                goalCounter.flush();
+            }
+        });
+        try {
+            long deadline = System.currentTimeMillis() + 1000;
+            while (System.currentTimeMillis() < deadline) {
+                int low = done.get();
+                int goals = playerService.getPlayerById(playerId).orElseThrow().getGoalsScored();
+                int high = started.get();
+                assertTrue(goals >= low && goals <= high, goals + " goals read, expected " + low + ".." + high);
+            }
+        } finally {
+            running.set(false);
+            CompletableFuture.allOf(scorer, flusher).get(10, TimeUnit.SECONDS);
+        }
+
+        goalCounter.flush();
+        assertEquals(done.get(), goalsInDatabase(playerId));
+        assertEquals(0, goalCounter.pendingFor(playerId));
+    }
+
+    private Long createPlayer(String teamName, int jerseyNumber) {
+        Team team = new Team();
+        team.setName(teamName);
+        Long teamId = teamService.createTeam(team).getId();
+
+        Player player = new Player();
+        player.setName("Player of " + teamName);
+        player.setTeamId(teamId);
+        player.setJerseyNumber(jerseyNumber);
+        player.setAge(25);
+        return playerService.createPlayer(player).getId();
+    }
+
+    private int goalsInDatabase(Long playerId) {
+        return jdbcTemplate.queryForObject("SELECT goals_scored FROM players WHERE id = ?", Integer.class, playerId);
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.service;
+
+import org.example.model.Match;
+import org.example.model.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Параллельное создание матчей одной команды на одно время: слот бронируется до коммита,
+// поэтому проходит ровно одно создание; бронь откатившейся транзакции снимается
+@SpringBootTest
+@ActiveProfiles("test")
+class ScheduleConflictConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private MatchService matchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentCreatesBookSlotOnce() throws Exception {
+        List<Long> teamIds = createTeams("Booking Team", THREADS + 1);
+        Long homeTeamId = teamIds.get(0);
+        LocalDateTime kickoff = LocalDateTime.now().plusYears(20);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch startGate = new CountDownLatch(1);
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Long awayTeamId = teamIds.get(t + 1);
+                LocalDateTime start = kickoff.plusMinutes(t * 10L);
+                attempts.add(executor.submit(() -> {
+                    startGate.await();
+                    try {
+                        matchService.createMatch(match(homeTeamId, awayTeamId, start));
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            startGate.countDown();
+
+            int created = 0;
+            for (Future<Boolean> attempt : attempts) {
+                created += attempt.get() ? 1 : 0;
+            }
+            assertEquals(1, created);
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM matches WHERE home_team_id = ? AND status = 'SCHEDULED'", Integer.class, homeTeamId));
+    }
+
+    @Test
+    void rolledBackBookingIsReleased() {
+        List<Long> teamIds = createTeams("Rollback Team", 3);
+        LocalDateTime kickoff = LocalDateTime.now().plusYears(21);
+
+        // Бронь видна внутри транзакции: второй матч той же команды на то же время отклоняется
+        assertThrows(RuntimeException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            matchService.createMatch(match(teamIds.get(0), teamIds.get(1), kickoff));
+            matchService.createMatch(match(teamIds.get(0), teamIds.get(2), kickoff.plusHours(1)));
+        }));
+
+        // Транзакция откатилась - слот снова свободен
+        matchService.createMatch(match(teamIds.get(0), teamIds.get(2), kickoff.plusHours(1)));
+    }
+
+    private List<Long> createTeams(String prefix, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Team team = new Team();
+            team.setName(prefix + " " + i);
+            ids.add(teamService.createTeam(team).getId());
+        }
+        return ids;
+    }
+
+    private static Match match(Long homeTeamId, Long awayTeamId, LocalDateTime start) {
+        Match match = new Match();
+        match.setHomeTeamId(homeTeamId);
+        match.setAwayTeamId(awayTeamId);
+        match.setMatchDate(start);
+        return match;
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.service;
+
+import org.example.model.Match;
+import org.example.repository.MatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Ошибка чтения из БД во время перезагрузки не очищает индекс: проверка конфликтов продолжает работать
+class ScheduleIndexTest {
+
+    private static final LocalDateTime KICKOFF = LocalDateTime.of(2030, 5, 1, 18, 0);
+
+    private final MatchRepository matchRepository = mock(MatchRepository.class);
+    private final ScheduleIndex scheduleIndex = new ScheduleIndex(matchRepository);
+
+    @Test
+    void failedReloadKeepsIndex() {
+        Match match = new Match();
+        match.setId(1L);
+        match.setHomeTeamId(10L);
+        match.setAwayTeamId(20L);
+        match.setVenueId(5L);
+        match.setMatchDate(KICKOFF);
+        match.setStatus("SCHEDULED");
+        scheduleIndex.put(match);
+
+        when(matchRepository.findByStatusNotIn(any())).thenThrow(new DataAccessResourceFailureException("down"));
+        assertThrows(DataAccessResourceFailureException.class, scheduleIndex::reload);
+
+        assertTrue(scheduleIndex.findConflict(10L, 30L, null, KICKOFF.plusMinutes(30), null).isPresent());
+        assertTrue(scheduleIndex.findConflict(40L, 50L, 5L, KICKOFF.plusMinutes(30), null).isPresent());
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.service;
+
+import org.example.config.SequenceIds;
+import org.example.model.Standing;
+import org.example.model.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// История позиций: каждая дата ряда совпадает с таблицей на эту дату,
+// а воспроизводятся только матчи после ближайших точек, а не весь период
+@SpringBootTest
+@ActiveProfiles("test")
+class StandingHistoryServiceTest {
+
+    private static final int TEAMS = 10;
+    private static final int DAYS = 300;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private StandingHistoryService standingHistoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void positionHistoryMatchesStandingsAsOfAndReplaysOnlySinceCheckpoints() {
+        List<Long> teamIds = new ArrayList<>();
+        for (int i = 0; i < TEAMS; i++) {
+            Team team = new Team();
+            team.setName("History Team " + i);
+            teamIds.add(teamService.createTeam(team).getId());
+        }
+
+        // Один завершённый матч в день на протяжении DAYS дней
+        LocalDate first = LocalDate.now().minusDays(DAYS + 30);
+        long[] ids = sequenceIds.next("matches_seq", DAYS);
+        List<Object[]> rows = new ArrayList<>();
+        for (int day = 0; day < DAYS; day++) {
+            rows.add(new Object[]{ids[day], teamIds.get(day % TEAMS), teamIds.get((day * 3 + 1) % TEAMS == day % TEAMS
+                    ? (day + 1) % TEAMS : (day * 3 + 1) % TEAMS), Timestamp.valueOf(first.plusDays(day).atTime(18, 0)),
+                    day % 4, (day * 7) % 3, "FINISHED"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO matches (id, home_team_id, away_team_id, match_date, home_team_score, " +
+                "away_team_score, status) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        standingHistoryService.rebuildCheckpoints();
+
+        Long teamId = teamIds.get(3);
+        int step = 30;
+        Map<String, Object> history = standingHistoryService.getTeamPositionHistory(
+                teamId, first, first.plusDays(DAYS), step, null);
+        List<Map<String, Object>> series = (List<Map<String, Object>>) history.get("series");
+        assertEquals(DAYS / step + 1, series.size());
+
+        for (Map<String, Object> point : series) {
+            LocalDate date = (LocalDate) point.get("date");
+            List<Standing> standings = (List<Standing>) standingHistoryService.getStandingsAsOf(date, null)
+                    .get("standings");
+            Standing standing = standings.stream().filter(s -> s.getTeamId().equals(teamId)).findFirst().orElseThrow();
+            assertEquals(standing.getPosition(), point.get("position"), "position on " + date);
+            assertEquals(standing.getPoints(), point.get("points"), "points on " + date);
+        }
+
+        // Каждая дата начинается с точки (интервал 7 дней), поэтому воспроизводится меньше недели матчей на дату
+        int replayed = (Integer) history.get("replayedMatches");
+        assertTrue((Integer) history.get("checkpointsUsed") > 0);
+        assertTrue(replayed <= series.size() * 7, "replayed " + replayed + " matches");
+    }
+}
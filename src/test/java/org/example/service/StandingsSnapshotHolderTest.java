@@ -0,0 +1,97 @@
+package org.example.service;
+
+import org.example.model.Standing;
+import org.example.repository.StandingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Пересборка снимка после изменения отдельных команд читает только их строки и применяет их к индексам;
+// результат совпадает с полной перестройкой; без изменений строк версия снимка не меняется
+class StandingsSnapshotHolderTest {
+
+    private final StandingRepository standingRepository = mock(StandingRepository.class);
+    private final StandingRankIndex rankIndex = new StandingRankIndex();
+    private final LeagueAggregates leagueAggregates = new LeagueAggregates();
+    private final StandingsSnapshotHolder holder = new StandingsSnapshotHolder(standingRepository,
+            rankIndex, leagueAggregates, mock(LiveEventHub.class), mock(PlatformTransactionManager.class));
+
+    @Test
+    void changedTeamsAreAppliedIncrementally() {
+        when(standingRepository.findAll()).thenReturn(List.of(
+                standing(1L, 10, 6, 3), standing(2L, 20, 3, 1), standing(3L, 30, 1, 0)));
+        holder.init();
+        assertEquals(List.of(10L, 20L, 30L), teamOrder());
+
+        // Команда 30 выиграла дважды, команда 20 удалена
+        Standing updated = standing(3L, 30, 7, 4);
+        when(standingRepository.findByTeamIdIn(anyCollection())).thenReturn(List.of(updated));
+        holder.teamsChanged(List.of(20L, 30L));
+        assertTrue(holder.awaitRefresh(5_000));
+
+        verify(standingRepository, times(1)).findAll();
+        verify(standingRepository).findByTeamIdIn(Set.of(20L, 30L));
+        assertEquals(List.of(30L, 10L), teamOrder());
+        assertEquals(List.of(1, 2), holder.current().toStandings(null).stream().map(Standing::getPosition).toList());
+
+        List<Standing> table = List.of(standing(1L, 10, 6, 3), updated);
+        assertEquals(0, leagueAggregates.verify(table).size());
+        assertEquals(0, rankIndex.verify(table).size());
+        assertEquals(30L, leagueAggregates.totals().bestAttackTeamId());
+    }
+
+    @Test
+    void refreshWithoutChangesReadsNoRowsAndKeepsVersion() {
+        when(standingRepository.findAll()).thenReturn(List.of(standing(1L, 10, 3, 1)));
+        holder.init();
+        StandingsSnapshot published = holder.current();
+
+        assertTrue(holder.awaitRefresh(5_000));
+
+        verify(standingRepository, times(1)).findAll();
+        verify(standingRepository, never()).findByTeamIdIn(anyCollection());
+        assertSame(published, holder.current());
+        assertEquals(1, holder.current().getVersion());
+
+        // Строка команды перечитана, но не изменилась
+        when(standingRepository.findByTeamIdIn(anyCollection())).thenReturn(List.of(standing(1L, 10, 3, 1)));
+        holder.teamsChanged(List.of(10L));
+        assertTrue(holder.awaitRefresh(5_000));
+        assertSame(published, holder.current());
+
+        when(standingRepository.findByTeamIdIn(anyCollection())).thenReturn(List.of(standing(1L, 10, 6, 1)));
+        holder.teamsChanged(List.of(10L));
+        assertTrue(holder.awaitRefresh(5_000));
+        assertEquals(2, holder.current().getVersion());
+    }
+
+    private List<Long> teamOrder() {
+        return holder.current().toStandings(null).stream().map(Standing::getTeamId).toList();
+    }
+
+    private static Standing standing(Long id, long teamId, int points, int goalsFor) {
+        Standing standing = new Standing();
+        standing.setId(id);
+        standing.setTeamId(teamId);
+        standing.setPosition(0);
+        standing.setMatchesPlayed(points / 3);
+        standing.setWins(points / 3);
+        standing.setPoints(points);
+        standing.setGoalsFor(goalsFor);
+        standing.setGoalsAgainst(0);
+        standing.setGoalDifference(goalsFor);
+        return standing;
+    }
+}
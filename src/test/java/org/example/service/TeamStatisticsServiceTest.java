@@ -0,0 +1,55 @@
+package org.example.service;
+
+import org.example.dto.MatchResultRow;
+import org.example.model.Team;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Откат результата не создаёт строку статистики для команды, у которой её нет
+@SpringBootTest
+@ActiveProfiles("test")
+class TeamStatisticsServiceTest {
+
+    @Autowired
+    private TeamStatisticsService teamStatisticsService;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void revertSkipsTeamsWithoutRow() {
+        Team home = new Team();
+        home.setName("Stats Home");
+        Team away = new Team();
+        away.setName("Stats Away");
+        Long homeId = teamService.createTeam(home).getId();
+        Long awayId = teamService.createTeam(away).getId();
+        jdbcTemplate.update("DELETE FROM team_statistics WHERE team_id = ?", awayId);
+
+        teamStatisticsService.revertResults(List.of(new MatchResultRow(-1L, homeId, awayId, 2, 1)));
+
+        assertEquals(0, count(awayId));
+        assertEquals(-1, jdbcTemplate.queryForObject(
+                "SELECT home_played FROM team_statistics WHERE team_id = ?", Integer.class, homeId));
+
+        // Учёт результата по-прежнему создаёт недостающую строку
+        teamStatisticsService.recordResults(List.of(new MatchResultRow(-1L, homeId, awayId, 2, 1)));
+        assertEquals(1, count(awayId));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT away_losses FROM team_statistics WHERE team_id = ?", Integer.class, awayId));
+    }
+
+    private int count(Long teamId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM team_statistics WHERE team_id = ?", Integer.class, teamId);
+    }
+}
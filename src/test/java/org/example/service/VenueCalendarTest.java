@@ -0,0 +1,117 @@
+package org.example.service;
+
+import org.example.config.SequenceIds;
+import org.example.dto.VenueBookingRow;
+import org.example.model.Match;
+import org.example.model.Team;
+import org.example.model.Venue;
+import org.example.repository.MatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Календарь арен загружает только горизонт от сегодняшнего дня: прошлые матчи не попадают в память,
+// а запрос занятости до горизонта отклоняется, а не отвечает "свободно";
+// брони, созданные и удалённые во время загрузки, не теряются и не возвращаются при замене карт
+@SpringBootTest
+@ActiveProfiles("test")
+class VenueCalendarTest {
+
+    @Autowired
+    private VenueCalendar venueCalendar;
+
+    @Autowired
+    private VenueService venueService;
+
+    @Autowired
+    private TeamService teamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SequenceIds sequenceIds;
+
+    @Test
+    void reloadKeepsOnlyMatchesFromHorizon() {
+        Venue venue = new Venue();
+        venue.setName("Calendar Arena");
+        venue.setCapacity(1000);
+        venue = venueService.createVenue(venue);
+        Team home = new Team();
+        home.setName("Calendar Home");
+        Team away = new Team();
+        away.setName("Calendar Away");
+        Long homeId = teamService.createTeam(home).getId();
+        Long awayId = teamService.createTeam(away).getId();
+
+        LocalDateTime past = LocalDate.now().minusDays(10).atTime(15, 0);
+        LocalDateTime future = LocalDate.now().plusDays(10).atTime(15, 0);
+        long[] ids = sequenceIds.next("matches_seq", 2);
+        String insert = "INSERT INTO matches (id, home_team_id, away_team_id, venue_id, match_date, home_team_score, " +
+                "away_team_score, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.update(insert, ids[0], homeId, awayId, venue.getId(), Timestamp.valueOf(past), 1, 0, "FINISHED");
+        jdbcTemplate.update(insert, ids[1], homeId, awayId, venue.getId(), Timestamp.valueOf(future), null, null, "SCHEDULED");
+
+        venueCalendar.reload();
+
+        assertEquals(LocalDate.now().atStartOfDay(), venueCalendar.trackedFrom());
+        List<Venue> candidates = List.of(venue);
+        assertTrue(venueCalendar.freeVenues(candidates,
+                venueCalendar.busyBetween(future, future.plusHours(1))).isEmpty());
+        assertFalse(venueCalendar.freeVenues(candidates,
+                venueCalendar.busyBetween(future.plusHours(3), future.plusHours(4))).isEmpty());
+        assertThrows(RuntimeException.class, () -> venueCalendar.busyBetween(past, past.plusHours(1)));
+    }
+
+    @Test
+    void changesDuringReloadAreReplayed() {
+        MatchRepository matchRepository = mock(MatchRepository.class);
+        VenueCalendar calendar = new VenueCalendar(matchRepository, 30, 0);
+        LocalDateTime kickoff = LocalDate.now().plusDays(3).atTime(18, 0);
+        Venue deletedArena = venue(1L);
+        Venue bookedArena = venue(2L);
+        when(matchRepository.findVenueBookingsFrom(any(LocalDateTime.class), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    // Пока читались порции: матч из прочитанного снимка удалён, на другой арене создан новый
+                    calendar.remove(100L);
+                    Match created = new Match();
+                    created.setId(200L);
+                    created.setVenueId(bookedArena.getId());
+                    created.setMatchDate(kickoff);
+                    created.setStatus("SCHEDULED");
+                    calendar.put(created);
+                    return List.of(new VenueBookingRow(100L, deletedArena.getId(), kickoff));
+                });
+
+        calendar.reload();
+
+        List<Venue> free = calendar.freeVenues(List.of(deletedArena, bookedArena),
+                calendar.busyBetween(kickoff, kickoff.plusHours(1)));
+        assertEquals(List.of(deletedArena), free);
+    }
+
+    private static Venue venue(Long id) {
+        Venue venue = new Venue();
+        venue.setId(id);
+        venue.setName("Arena " + id);
+        return venue;
+    }
+}